@@ -0,0 +1,238 @@
+package com.github.knlao.chesslib.app;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.knlao.chesslib.chess.Attacks;
+import com.github.knlao.chesslib.chess.Color;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.Piece;
+
+/**
+ * A check of the bytes the hot paths of the rules engine allocate per call, measured after warm-up
+ * with com.sun.management.ThreadMXBean#getThreadAllocatedBytes.
+ * Every operation has a budget; the check fails with exit status 1 when an operation allocates more,
+ * so a change which adds garbage to a hot path is caught. Lower a budget when a path gets leaner.
+ * The bitboard paths allocate nothing. The paths which move a piece are not free yet: Board.placePiece gives the piece
+ * its own copy of the position, because the pieces change their positions while they generate moves, and
+ * the operations returning arrays allocate them for the caller; their budgets are what that costs today, not a goal.
+ * The budgets hold for the default optimizing compiler, whose escape analysis removes the short-lived iterators;
+ * with -XX:TieredStopAtLevel=1 or an interpreter they are exceeded.
+ * Usage: AllocationBudget [-verbose]
+ * @author kimilao
+ * @version 1.0
+ */
+public class AllocationBudget {
+
+	/**
+	 * The position of the measurements, with castling, captures, checks and pins
+	 */
+	private static final String FEN = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+
+	/**
+	 * How many calls warm up an operation before it is measured
+	 */
+	private static final int WARM_UP = 50000;
+
+	/**
+	 * How many calls are measured in a round
+	 */
+	private static final int CALLS = 100000;
+
+	/**
+	 * How many rounds are measured, the leanest round counts
+	 */
+	private static final int ROUNDS = 3;
+
+	/**
+	 * An operation and its budget
+	 */
+	private static class Budget {
+
+		/**
+		 * The name of the operation
+		 */
+		final String name;
+
+		/**
+		 * The most bytes a call may allocate
+		 */
+		final long bytes;
+
+		/**
+		 * The operation, the argument is the number of the call
+		 */
+		final Call call;
+
+		/**
+		 * The setup which the operation needs for every call and which isn't counted, null for none
+		 */
+		final Call baseline;
+
+		/**
+		 * Construct a budget
+		 * @param name The name of the operation
+		 * @param bytes The most bytes a call may allocate
+		 * @param call The operation
+		 */
+		Budget(String name, long bytes, Call call) {
+			this(name, bytes, call, null);
+		}
+
+		/**
+		 * Construct a budget of an operation which needs a setup for every call
+		 * @param name The name of the operation
+		 * @param bytes The most bytes a call may allocate
+		 * @param call The setup and the operation
+		 * @param baseline The setup alone, its bytes are taken off the bytes of the call
+		 */
+		Budget(String name, long bytes, Call call, Call baseline) {
+			this.name = name;
+			this.bytes = bytes;
+			this.call = call;
+			this.baseline = baseline;
+		}
+
+	}
+
+	/**
+	 * A call of an operation
+	 */
+	private interface Call {
+
+		/**
+		 * Call the operation
+		 * @param i The number of the call
+		 * @return A value of the result, summed so the call isn't optimized away
+		 */
+		long run(int i);
+
+	}
+
+	public static void main(String[] args) {
+		if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("This JVM can't measure allocated bytes");
+			System.exit(2);
+		}
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		if (!threads.isThreadAllocatedMemorySupported()) {
+			System.out.println("This JVM can't measure allocated bytes");
+			System.exit(2);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		boolean verbose = args.length > 0 && args[0].equals("-verbose");
+
+		boolean passed = true;
+		for (Budget budget : budgets()) {
+			double bytes = measure(threads, budget.call);
+			if (budget.baseline != null) {
+				bytes = Math.max(0, bytes - measure(threads, budget.baseline));
+			}
+			boolean ok = bytes <= budget.bytes;
+			passed &= ok;
+			if (verbose || !ok) {
+				System.out.printf("%-4s %-36s %8.1f bytes/call, budget %d%n", ok ? "ok" : "FAIL", budget.name, bytes, budget.bytes);
+			}
+		}
+		System.out.println(passed ? "All allocation budgets are met" : "Allocation budgets are exceeded");
+		System.exit(passed ? 0 : 1);
+	}
+
+	/**
+	 * Build the operations and their budgets
+	 * @return The budgets
+	 */
+	private static List<Budget> budgets() {
+		Match match = new Match(FEN);
+		List<Piece> pieces = new ArrayList<>();
+		long squares = 0;
+		Piece[][] board = match.getPieces();
+		for (int i = 0; i < board.length; i++) {
+			for (int j = 0; j < board[i].length; j++) {
+				Piece p = board[i][j];
+				if (p != null) {
+					squares |= 1L << (i * 8 + j);
+					if (p.getColor() == Color.WHITE) {
+						pieces.add(p);
+					}
+				}
+			}
+		}
+		List<Move> moves = match.legalMoves();
+		long occupied = squares;
+		// the set of legal moves of this match answers hasAnyLegalMove at once, so the search runs on
+		// a lazy match in the position after each move, where neither the set nor the status is known
+		Match lazy = new Match();
+		lazy.setLazyStatus(true);
+		lazy.setPosition(FEN);
+
+		List<Budget> budgets = new ArrayList<>();
+		budgets.add(new Budget("Attacks lookups", 0,
+				i -> Attacks.queen(i & 63, occupied) ^ Attacks.knight(i & 63) ^ Attacks.pawn(Color.WHITE, i & 63)));
+		budgets.add(new Budget("Piece.attacks", 0,
+				i -> pieces.get(i % pieces.size()).attacks()));
+		// the positions the board copies for the moved piece, and for the rook when castling
+		budgets.add(new Budget("Match.testMove", 64,
+				i -> {
+					Move m = moves.get(i % moves.size());
+					return match.testMove(m.getSource(), m.getTarget(), Color.WHITE) ? 1 : 0;
+				}));
+		// the search itself keeps no garbage, each trial move pays the position copies of testMove
+		budgets.add(new Budget("Match.hasAnyLegalMove", 64,
+				i -> {
+					lazy.performChessMove(moves.get(i % moves.size()));
+					boolean any = lazy.hasAnyLegalMove();
+					lazy.undo();
+					return any ? 1 : 0;
+				},
+				i -> {
+					lazy.performChessMove(moves.get(i % moves.size()));
+					lazy.undo();
+					return 1;
+				}));
+		budgets.add(new Budget("Piece.possibleMoves", 512,
+				i -> pieces.get(i % pieces.size()).possibleMoves().length));
+		budgets.add(new Budget("Match.getAttackedPositions", 256,
+				i -> match.getAttackedPositions(Color.BLACK).length));
+		budgets.add(new Budget("Match.getPieces", 448,
+				i -> match.getPieces().length));
+		budgets.add(new Budget("Match.performChessMove and undo", 1024,
+				i -> {
+					match.performChessMove(moves.get(i % moves.size()));
+					match.undo();
+					return 1;
+				}));
+		return budgets;
+	}
+
+	/**
+	 * Measure the bytes an operation allocates per call
+	 * @param threads The bean measuring the allocations of the thread
+	 * @param call The operation
+	 * @return The bytes per call of the leanest round
+	 */
+	private static double measure(com.sun.management.ThreadMXBean threads, Call call) {
+		long id = Thread.currentThread().getId();
+		long sink = 0;
+		for (int i = 0; i < WARM_UP; i++) {
+			sink += call.run(i);
+		}
+		double least = Double.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			long before = threads.getThreadAllocatedBytes(id);
+			for (int i = 0; i < CALLS; i++) {
+				sink += call.run(i);
+			}
+			long after = threads.getThreadAllocatedBytes(id);
+			least = Math.min(least, (double) (after - before) / CALLS);
+		}
+		// the sum is used so the calls can't be removed as dead code
+		if (sink == 42) {
+			System.out.print("");
+		}
+		return least;
+	}
+
+}
@@ -0,0 +1,189 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Pgn;
+
+/**
+ * The parallel replay of archives of games in PGN shared by the tools which scan archives.
+ * The games are read on the calling thread and replayed on a pool, a batch a task, each thread on a match of its own
+ * with a lazy status. The results of the batches are taken on the calling thread in the order the games were read,
+ * so what a tool writes doesn't depend on the count of threads
+ * @param <T> The result of a batch
+ * @author kimilao
+ * @version 1.0
+ */
+final class ArchiveReplay<T> implements AutoCloseable {
+
+	/**
+	 * How many games a task replays
+	 */
+	private static final int GAMES_PER_TASK = 64;
+
+	/**
+	 * Replays a batch of games on a pool thread
+	 * @param <T> The result of a batch
+	 */
+	interface Replay<T> {
+
+		/**
+		 * Replay a batch of games
+		 * @param games The games in PGN
+		 * @param match The match of the thread, set to the start of each game by the parser
+		 * @return The result of the batch
+		 * @throws IOException If the result can't be written
+		 */
+		T replay(List<String> games, Match match) throws IOException;
+
+	}
+
+	/**
+	 * Takes the results of the batches on the calling thread, in the order of the games
+	 * @param <T> The result of a batch
+	 */
+	interface Sink<T> {
+
+		/**
+		 * Take the result of a batch
+		 * @param result The result
+		 * @throws IOException If the result can't be written
+		 */
+		void accept(T result) throws IOException;
+
+	}
+
+	/**
+	 * How many threads replay games
+	 */
+	private final int threads;
+
+	/**
+	 * The threads
+	 */
+	private final ExecutorService pool;
+
+	/**
+	 * Replays the batches
+	 */
+	private final Replay<T> replay;
+
+	/**
+	 * Takes the results
+	 */
+	private final Sink<T> sink;
+
+	/**
+	 * The batches not taken yet, a few of them ahead of the sink keep the threads busy
+	 */
+	private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+	/**
+	 * The match of each thread
+	 */
+	private final ThreadLocal<Match> matches = ThreadLocal.withInitial(() -> {
+		Match match = new Match();
+		match.setLazyStatus(true);
+		return match;
+	});
+
+	/**
+	 * Construct a replay
+	 * @param threads How many threads replay games
+	 * @param replay Replays the batches
+	 * @param sink Takes the results
+	 */
+	ArchiveReplay(int threads, Replay<T> replay, Sink<T> sink) {
+		this.threads = threads;
+		this.pool = Executors.newFixedThreadPool(threads);
+		this.replay = replay;
+		this.sink = sink;
+	}
+
+	/**
+	 * Read the games of an archive and replay them, the last batches can be taken after the method returns
+	 * @param archive The archive
+	 * @return How many games were read
+	 * @throws IOException If the archive can't be read, a batch failed or the sink failed
+	 * @throws InterruptedException If the thread is interrupted while waiting for a batch
+	 */
+	long add(File archive) throws IOException, InterruptedException {
+		long games = 0;
+		// ISO-8859-1 reads any byte, the tags the tools read such as results and ratings are ASCII
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(archive), StandardCharsets.ISO_8859_1), 1 << 20)) {
+			List<String> batch = new ArrayList<>();
+			String game;
+			while ((game = Pgn.readGame(reader)) != null) {
+				batch.add(game);
+				games++;
+				if (batch.size() == GAMES_PER_TASK) {
+					submit(batch);
+					batch = new ArrayList<>();
+					drain(threads * 4);
+				}
+			}
+			if (!batch.isEmpty()) {
+				submit(batch);
+			}
+		}
+		return games;
+	}
+
+	/**
+	 * Wait until the results of all the games read are taken
+	 * @throws IOException If a batch failed or the sink failed
+	 * @throws InterruptedException If the thread is interrupted while waiting for a batch
+	 */
+	void finish() throws IOException, InterruptedException {
+		drain(0);
+	}
+
+	/**
+	 * Stop the threads, the batches not taken are dropped
+	 */
+	@Override
+	public void close() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Replay a batch of games on the pool
+	 * @param games The games in PGN
+	 */
+	private void submit(List<String> games) {
+		pending.add(pool.submit(() -> replay.replay(games, matches.get())));
+	}
+
+	/**
+	 * Take the results of the oldest batches until few enough are left
+	 * @param left How many batches can be left
+	 * @throws IOException If a batch failed or the sink failed
+	 * @throws InterruptedException If the thread is interrupted while waiting for a batch
+	 */
+	private void drain(int left) throws IOException, InterruptedException {
+		while (pending.size() > left) {
+			T result;
+			try {
+				result = pending.poll().get();
+			}
+			catch (ExecutionException e) {
+				throw new IOException("A batch failed", e.getCause());
+			}
+			sink.accept(result);
+		}
+	}
+
+}
@@ -0,0 +1,350 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.engine.Search;
+import com.github.knlao.chesslib.engine.SearchLimits;
+import com.github.knlao.chesslib.engine.SearchResult;
+import com.github.knlao.chesslib.engine.TranspositionTable;
+
+/**
+ * A runner of EPD test suites, the positions are tested in parallel, one position a task.
+ * Perft positions have "D1 20; D2 400" or "perft 1 20; perft 2 400" operations,
+ * best move positions have "bm Nf3 Nc3" or "am Qxb7" operations in Standard Algebraic Notation.
+ * Usage: EpdSuite [-threads n] [-maxdepth n] [-nodes n | -movetime ms | -depth n] [-hash mb] file...
+ * @author kimilao
+ * @version 1.0
+ */
+public class EpdSuite {
+
+	/**
+	 * How many positions are tested at the same time
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The deepest perft operation which is tested
+	 */
+	private int maxDepth = 6;
+
+	/**
+	 * The node limit of a best move search, 0 for none
+	 */
+	private long nodes;
+
+	/**
+	 * The time limit of a best move search in milliseconds, 0 for none
+	 */
+	private long moveTime;
+
+	/**
+	 * The depth limit of a best move search, 0 for none
+	 */
+	private int depth;
+
+	/**
+	 * The size of the transposition table of each best move search in megabytes
+	 */
+	private int hash = 16;
+
+	/**
+	 * The files of the suites
+	 */
+	private final List<File> files = new ArrayList<>();
+
+	/**
+	 * The outcome of a position
+	 */
+	private static class Outcome {
+
+		/**
+		 * The name of the position: its id, or the file and line
+		 */
+		String name;
+
+		/**
+		 * <b>true</b>: Every operation passed<br>
+		 * <b>false</b>: An operation failed
+		 */
+		boolean passed = true;
+
+		/**
+		 * The nodes counted or searched
+		 */
+		long nodes;
+
+		/**
+		 * The time in milliseconds
+		 */
+		long time;
+
+		/**
+		 * What was tested and what failed
+		 */
+		final StringBuilder detail = new StringBuilder();
+
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		EpdSuite suite = new EpdSuite();
+		try {
+			suite.parse(args);
+		}
+		catch (RuntimeException e) {
+			System.out.println("Usage: EpdSuite [-threads n] [-maxdepth n] [-nodes n | -movetime ms | -depth n] [-hash mb] file...");
+			return;
+		}
+		System.exit(suite.run() ? 0 : 1);
+	}
+
+	/**
+	 * Read the options
+	 * @param args The options
+	 */
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-threads": threads = Integer.parseInt(args[++i]); break;
+			case "-maxdepth": maxDepth = Integer.parseInt(args[++i]); break;
+			case "-nodes": nodes = Long.parseLong(args[++i]); break;
+			case "-movetime": moveTime = Long.parseLong(args[++i]); break;
+			case "-depth": depth = Integer.parseInt(args[++i]); break;
+			case "-hash": hash = Integer.parseInt(args[++i]); break;
+			default:
+				if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException(args[i]);
+				}
+				files.add(new File(args[i]));
+			}
+		}
+		if (files.isEmpty()) {
+			throw new IllegalArgumentException("No suite");
+		}
+		if (nodes == 0 && moveTime == 0 && depth == 0) {
+			moveTime = 1000;
+		}
+	}
+
+	/**
+	 * Test every position of the suites and report the outcomes
+	 * @return <b>true</b>: Every position passed<br>
+	 *         <b>false</b>: A position failed
+	 * @throws IOException If a suite can't be read
+	 * @throws InterruptedException If the thread is interrupted while waiting for the positions
+	 */
+	public boolean run() throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Outcome>> futures = new ArrayList<>();
+		for (File file : files) {
+			List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+			for (int i = 0; i < lines.size(); i++) {
+				final String line = lines.get(i).trim();
+				final String name = file.getName() + ":" + (i + 1);
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					futures.add(pool.submit(() -> test(name, line)));
+				}
+			}
+		}
+		pool.shutdown();
+
+		int passed = 0;
+		long totalNodes = 0;
+		for (Future<Outcome> future : futures) {
+			Outcome outcome;
+			try {
+				outcome = future.get();
+			}
+			catch (ExecutionException e) {
+				outcome = new Outcome();
+				outcome.name = "?";
+				outcome.passed = false;
+				outcome.detail.append(e.getCause());
+			}
+			if (outcome.passed) {
+				passed++;
+			}
+			totalNodes += outcome.nodes;
+			System.out.printf("%-4s %-24s %12d nodes %8d ms  %s%n", outcome.passed ? "pass" : "FAIL",
+					outcome.name, outcome.nodes, outcome.time, outcome.detail);
+		}
+
+		long wall = (System.nanoTime() - start) / 1000000;
+		System.out.println();
+		System.out.printf("score %d/%d (%.1f%%)%n", passed, futures.size(), futures.isEmpty() ? 0 : 100.0 * passed / futures.size());
+		System.out.printf("nodes %d, time %d ms, nps %d, %d threads%n", totalNodes, wall, wall == 0 ? 0 : totalNodes * 1000 / wall, threads);
+		return passed == futures.size();
+	}
+
+	/**
+	 * Test a position of a suite
+	 * @param name The file and line of the position
+	 * @param line The position and its operations in EPD
+	 * @return The outcome
+	 */
+	private Outcome test(String name, String line) {
+		Outcome outcome = new Outcome();
+		outcome.name = name;
+		long start = System.currentTimeMillis();
+		try {
+			String[] operations = line.split(";");
+			String[] fields = operations[0].trim().split("\\s+");
+			if (fields.length < 4) {
+				throw new ChessException("Invalid EPD: " + line);
+			}
+			String fen = fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3];
+			int first = 4;
+			if (fields.length >= 6 && fields[4].matches("\\d+") && fields[5].matches("\\d+")) {
+				fen += " " + fields[4] + " " + fields[5];
+				first = 6;
+			}
+			else {
+				fen += " 0 1";
+			}
+
+			// The first operation follows the position without a semicolon
+			List<String> ops = new ArrayList<>();
+			StringBuilder op = new StringBuilder();
+			for (int i = first; i < fields.length; i++) {
+				op.append(i > first ? " " : "").append(fields[i]);
+			}
+			ops.add(op.toString());
+			for (int i = 1; i < operations.length; i++) {
+				ops.add(operations[i].trim());
+			}
+
+			Match match = new Match(fen);
+			List<String> bestMoves = new ArrayList<>();
+			List<String> avoidMoves = new ArrayList<>();
+			for (String s : ops) {
+				String[] tokens = s.split("\\s+");
+				if (tokens[0].isEmpty()) {
+					continue;
+				}
+				if (tokens[0].equals("id") && tokens.length > 1) {
+					outcome.name = s.substring(2).trim().replace("\"", "");
+				}
+				else if (tokens[0].matches("D\\d+") && tokens.length > 1) {
+					testPerft(outcome, match, Integer.parseInt(tokens[0].substring(1)), Long.parseLong(tokens[1]));
+				}
+				else if (tokens[0].equals("perft") && tokens.length > 2) {
+					testPerft(outcome, match, Integer.parseInt(tokens[1]), Long.parseLong(tokens[2]));
+				}
+				else if (tokens[0].equals("bm")) {
+					for (int i = 1; i < tokens.length; i++) {
+						bestMoves.add(tokens[i]);
+					}
+				}
+				else if (tokens[0].equals("am")) {
+					for (int i = 1; i < tokens.length; i++) {
+						avoidMoves.add(tokens[i]);
+					}
+				}
+			}
+			if (!bestMoves.isEmpty() || !avoidMoves.isEmpty()) {
+				testBestMove(outcome, match, bestMoves, avoidMoves);
+			}
+		}
+		catch (RuntimeException e) {
+			outcome.passed = false;
+			outcome.detail.append(e.getMessage());
+		}
+		outcome.time = System.currentTimeMillis() - start;
+		return outcome;
+	}
+
+	/**
+	 * Test a perft operation
+	 * @param outcome The outcome of the position
+	 * @param match The position
+	 * @param depth The depth
+	 * @param expected The expected count of leaf nodes
+	 */
+	private void testPerft(Outcome outcome, Match match, int depth, long expected) {
+		if (depth > maxDepth) {
+			return;
+		}
+		long count = perft(match, depth);
+		outcome.nodes += count;
+		outcome.detail.append("D").append(depth);
+		if (count != expected) {
+			outcome.passed = false;
+			outcome.detail.append("=").append(count).append("!=").append(expected);
+		}
+		outcome.detail.append(' ');
+	}
+
+	/**
+	 * Test the best move operations
+	 * @param outcome The outcome of the position
+	 * @param match The position
+	 * @param bestMoves The moves of which one should be played
+	 * @param avoidMoves The moves which should not be played
+	 */
+	private void testBestMove(Outcome outcome, Match match, List<String> bestMoves, List<String> avoidMoves) {
+		List<Move> best = new ArrayList<>();
+		for (String san : bestMoves) {
+			best.add(match.parseSan(san));
+		}
+		List<Move> avoid = new ArrayList<>();
+		for (String san : avoidMoves) {
+			avoid.add(match.parseSan(san));
+		}
+
+		SearchLimits limits = new SearchLimits();
+		limits.setNodes(nodes);
+		limits.setMoveTime(moveTime);
+		limits.setDepth(depth);
+		SearchResult result = new Search(new TranspositionTable(hash)).think(match, limits, null);
+		outcome.nodes += result.getNodes();
+
+		Move move = result.getBestMove();
+		String san = (move == null) ? "(none)" : match.toSan(move);
+		if (move == null || (!best.isEmpty() && !best.contains(move)) || avoid.contains(move)) {
+			outcome.passed = false;
+		}
+		outcome.detail.append(san);
+		if (!bestMoves.isEmpty()) {
+			outcome.detail.append(" bm ").append(String.join(" ", bestMoves));
+		}
+		if (!avoidMoves.isEmpty()) {
+			outcome.detail.append(" am ").append(String.join(" ", avoidMoves));
+		}
+	}
+
+	/**
+	 * Count the leaf nodes of the legal move tree, the moves of the last ply are counted without being played
+	 * @param match The position
+	 * @param depth The depth
+	 * @return The count of leaf nodes
+	 */
+	static long perft(Match match, int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		List<Move> moves = match.legalMoves();
+		if (depth == 1) {
+			return moves.size();
+		}
+		long count = 0;
+		for (Move move : moves) {
+			Match child = new Match(match);
+			child.performChessMove(move);
+			count += perft(child, depth - 1);
+		}
+		return count;
+	}
+
+}
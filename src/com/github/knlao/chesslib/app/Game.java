@@ -23,7 +23,7 @@ public class Game {
 		Match match = new Match();
 		List<Piece> captured = new ArrayList<>();
 		
-		while (!match.getCheckmate()) {
+		while (!match.getStatus().isOver()) {
 
 			try {
 				UI.clearScreen();
@@ -65,7 +65,12 @@ public class Game {
 			}
 		}
 		
-		System.out.println("CHECKMATE!!!");
+		if (match.getCheckmate()) {
+			System.out.println("CHECKMATE!!!");
+		}
+		else {
+			System.out.println("DRAW!!! " + match.getStatus().getMessage());
+		}
 	}
 	
 }
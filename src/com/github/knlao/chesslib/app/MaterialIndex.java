@@ -0,0 +1,386 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.MaterialSignature;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.MoveListener;
+import com.github.knlao.chesslib.chess.Pgn;
+import com.github.knlao.chesslib.chess.PostingIndex;
+import com.github.knlao.chesslib.chess.PostingIndexBuilder;
+
+/**
+ * An index of the games of archives in PGN by the positions they reached. With archives it replays the games in parallel,
+ * a batch a task, and adds the id of each game to the lists of the {@link MaterialSignature material signatures} and the
+ * placement keys of its positions, in two {@link PostingIndex posting indexes}; with a signature, such as "KRPvKR",
+ * or a position it prints the games which reached it, without reading the archives again. The ids are numbered
+ * in the order of the games across all the archives added, a text file lists the first id and the count of games of each archive.
+ * Games with an illegal move keep their id but aren't indexed.
+ * Usage: MaterialIndex -index base [-threads n] [-memory bytes] archive...
+ *        MaterialIndex -index base [-material signature] [-placement fen] [-limit n]
+ * @author kimilao
+ * @version 1.0
+ */
+public class MaterialIndex {
+
+	/**
+	 * The base name of the files of the index
+	 */
+	private String base;
+
+	/**
+	 * How many threads replay games
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * About how many bytes the lists of each posting index take in the memory before they are written to a run
+	 */
+	private long memory = 1 << 27;
+
+	/**
+	 * The material signature of a query, null for any
+	 */
+	private String material;
+
+	/**
+	 * The position of a query in FEN, null for any
+	 */
+	private String placement;
+
+	/**
+	 * How many games of a query are printed
+	 */
+	private int limit = 20;
+
+	/**
+	 * The archives
+	 */
+	private final List<File> archives = new ArrayList<>();
+
+	/**
+	 * The keys of a batch of games
+	 */
+	private static class Batch {
+
+		/**
+		 * The material signatures of each game, sorted and without duplicates, null for a skipped game
+		 */
+		long[][] signatures;
+
+		/**
+		 * The placement keys of each game, sorted and without duplicates, null for a skipped game
+		 */
+		long[][] placements;
+
+		/**
+		 * How many games were skipped
+		 */
+		int skipped;
+
+	}
+
+	/**
+	 * The keys of the positions of a game as it is parsed
+	 */
+	private static class Keys implements MoveListener {
+
+		/**
+		 * The material signatures
+		 */
+		long[] signatures = new long[256];
+
+		/**
+		 * The placement keys
+		 */
+		long[] placements = new long[256];
+
+		/**
+		 * How many positions there are
+		 */
+		int size;
+
+		@Override
+		public void movePlayed(Match match, Move move) {
+			add(match);
+		}
+
+		/**
+		 * Add the keys of a position
+		 * @param match The position
+		 */
+		void add(Match match) {
+			if (size == signatures.length) {
+				signatures = Arrays.copyOf(signatures, size * 2);
+				placements = Arrays.copyOf(placements, size * 2);
+			}
+			signatures[size] = MaterialSignature.of(match);
+			placements[size] = match.getPlacementKey();
+			size++;
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		MaterialIndex index = new MaterialIndex();
+		try {
+			index.parse(args);
+		}
+		catch (RuntimeException e) {
+			System.out.println("Usage: MaterialIndex -index base [-threads n] [-memory bytes] archive...");
+			System.out.println("       MaterialIndex -index base [-material signature] [-placement fen] [-limit n]");
+			return;
+		}
+		if (index.archives.isEmpty()) {
+			index.query();
+		}
+		else {
+			index.build();
+		}
+	}
+
+	/**
+	 * Read the options
+	 * @param args The options
+	 */
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-index": base = args[++i]; break;
+			case "-threads": threads = Integer.parseInt(args[++i]); break;
+			case "-memory": memory = Long.parseLong(args[++i]); break;
+			case "-material": material = args[++i]; break;
+			case "-placement": placement = args[++i]; break;
+			case "-limit": limit = Integer.parseInt(args[++i]); break;
+			default:
+				if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException(args[i]);
+				}
+				archives.add(new File(args[i]));
+			}
+		}
+		boolean query = material != null || placement != null;
+		if (base == null || archives.isEmpty() == !query || threads < 1 || memory < 1 || limit < 0) {
+			throw new IllegalArgumentException("Invalid options");
+		}
+	}
+
+	/**
+	 * Add the archives to the index and report the counts
+	 * @throws IOException If an archive can't be read or the index can't be written
+	 * @throws InterruptedException If the thread is interrupted while waiting for a batch
+	 */
+	public void build() throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		List<long[]> ranges = new ArrayList<>();
+		List<String> paths = new ArrayList<>();
+		readArchives(ranges, paths);
+		// the indexes keep the next id, the list of the archives is written after them and may miss the last archives
+		long first = ranges.isEmpty() ? 0 : ranges.get(ranges.size() - 1)[0] + ranges.get(ranges.size() - 1)[1];
+		first = Math.max(first, nextId(new File(base + ".sig")));
+		first = Math.max(first, nextId(new File(base + ".pos")));
+
+		PostingIndexBuilder signatures = new PostingIndexBuilder(new File(base + ".sig"), memory);
+		PostingIndexBuilder placements = new PostingIndexBuilder(new File(base + ".pos"), memory);
+		long[] counts = { first, 0, 0 };
+		List<long[]> added = new ArrayList<>();
+		// the batches are added in the order they were read, so the ids are in ascending order
+		try (ArchiveReplay<Batch> replay = new ArchiveReplay<>(threads, MaterialIndex::replay,
+				batch -> add(batch, counts, signatures, placements))) {
+			for (File archive : archives) {
+				long archiveFirst = counts[0];
+				replay.add(archive);
+				replay.finish();
+				added.add(new long[] { archiveFirst, counts[0] - archiveFirst });
+			}
+		}
+		long replayed = (System.nanoTime() - start) / 1000000;
+		long signatureKeys = signatures.build(counts[0]);
+		long placementKeys = placements.build(counts[0]);
+		// the archives are listed only when their games are in the index
+		try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(base + ".archives", true), StandardCharsets.UTF_8))) {
+			for (int i = 0; i < archives.size(); i++) {
+				out.printf("%d %d %s%n", added.get(i)[0], added.get(i)[1], archives.get(i).getPath());
+			}
+		}
+		long wall = Math.max(1, (System.nanoTime() - start) / 1000000);
+		System.out.printf("games %d, skipped %d, signatures %d, placements %d, total games %d%n",
+				counts[0] - first, counts[1], signatureKeys, placementKeys, counts[0]);
+		System.out.printf("time %d ms (replay %d ms, merge %d ms), %d games/s, %d threads%n",
+				wall, replayed, wall - replayed, (counts[0] - first) * 1000 / wall, threads);
+	}
+
+	/**
+	 * Add the keys of a batch
+	 * @param batch The batch
+	 * @param counts The next id and the counts of skipped games and keys, they are updated
+	 * @param signatures The builder of the signatures
+	 * @param placements The builder of the placement keys
+	 * @throws IOException If a run can't be written
+	 */
+	private static void add(Batch batch, long[] counts, PostingIndexBuilder signatures, PostingIndexBuilder placements)
+			throws IOException {
+		counts[1] += batch.skipped;
+		for (int i = 0; i < batch.signatures.length; i++) {
+			if (counts[0] > Integer.MAX_VALUE) {
+				throw new ChessException("Too many games for the index");
+			}
+			int id = (int) counts[0]++;
+			if (batch.signatures[i] == null) {
+				continue;
+			}
+			for (long key : batch.signatures[i]) {
+				signatures.add(key, id);
+			}
+			for (long key : batch.placements[i]) {
+				placements.add(key, id);
+			}
+			counts[2] += batch.signatures[i].length + batch.placements[i].length;
+		}
+	}
+
+	/**
+	 * Replay a batch of games on a pool thread, the keys of every position are kept
+	 * @param games The games in PGN
+	 * @param match The match of the thread
+	 * @return The keys of the games
+	 */
+	private static Batch replay(List<String> games, Match match) {
+		Batch batch = new Batch();
+		batch.signatures = new long[games.size()][];
+		batch.placements = new long[games.size()][];
+		Keys keys = new Keys();
+		for (int g = 0; g < games.size(); g++) {
+			keys.size = 0;
+			try {
+				Pgn.parse(games.get(g), match, Integer.MAX_VALUE, keys);
+				keys.add(match);
+				batch.signatures[g] = distinct(keys.signatures, keys.size);
+				batch.placements[g] = distinct(keys.placements, keys.size);
+			}
+			catch (ChessException e) {
+				batch.skipped++;
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Get the distinct keys of a game
+	 * @param keys The keys, they are sorted
+	 * @param size How many keys there are
+	 * @return The distinct keys in ascending order
+	 */
+	private static long[] distinct(long[] keys, int size) {
+		Arrays.sort(keys, 0, size);
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (n == 0 || keys[i] != keys[n - 1]) {
+				keys[n++] = keys[i];
+			}
+		}
+		return Arrays.copyOf(keys, n);
+	}
+
+	/**
+	 * Print the games which reached the signature and the position of the query, either color can have
+	 * the material of white in the signature
+	 * @throws IOException If the index can't be read
+	 */
+	public void query() throws IOException {
+		List<long[]> ranges = new ArrayList<>();
+		List<String> paths = new ArrayList<>();
+		readArchives(ranges, paths);
+		long key = (placement == null) ? 0 : new Match(placement).getPlacementKey();
+		long start = System.nanoTime();
+		int[] ids = null;
+		if (material != null) {
+			long signature = MaterialSignature.parse(material);
+			try (PostingIndex index = new PostingIndex(new File(base + ".sig"))) {
+				ids = index.get(signature);
+				if (MaterialSignature.flip(signature) != signature) {
+					ids = PostingIndex.union(ids, index.get(MaterialSignature.flip(signature)));
+				}
+			}
+		}
+		if (placement != null) {
+			try (PostingIndex index = new PostingIndex(new File(base + ".pos"))) {
+				ids = (ids == null) ? index.get(key) : PostingIndex.intersect(ids, index.get(key));
+			}
+		}
+		long micros = (System.nanoTime() - start) / 1000;
+		System.out.printf("%d games in %d us%n", ids.length, micros);
+		for (int i = 0; i < Math.min(limit, ids.length); i++) {
+			// the last archive starting at or before the id holds the game
+			int low = 0;
+			int high = ranges.size() - 1;
+			while (low < high) {
+				int middle = (low + high + 1) >>> 1;
+				if (ranges.get(middle)[0] <= ids[i]) {
+					low = middle;
+				}
+				else {
+					high = middle - 1;
+				}
+			}
+			if (ranges.isEmpty() || ids[i] >= ranges.get(low)[0] + ranges.get(low)[1]) {
+				System.out.printf("game %d%n", ids[i]);
+			}
+			else {
+				System.out.printf("%s #%d%n", paths.get(low), ids[i] - ranges.get(low)[0] + 1);
+			}
+		}
+	}
+
+	/**
+	 * Get the id the next games of an index are numbered from
+	 * @param file The file of the index
+	 * @return The next id, 0 if there is no index
+	 * @throws IOException If the index can't be read
+	 */
+	private static long nextId(File file) throws IOException {
+		if (!file.exists()) {
+			return 0;
+		}
+		try (PostingIndex index = new PostingIndex(file)) {
+			return index.getNextId();
+		}
+	}
+
+	/**
+	 * Read the list of the archives in the index
+	 * @param ranges The first id and the count of games of each archive are added to it
+	 * @param paths The path of each archive is added to it
+	 * @throws IOException If the list can't be read
+	 */
+	private void readArchives(List<long[]> ranges, List<String> paths) throws IOException {
+		File list = new File(base + ".archives");
+		if (!list.exists()) {
+			return;
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(list), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split(" ", 3);
+				if (fields.length == 3) {
+					ranges.add(new long[] { Long.parseLong(fields[0]), Long.parseLong(fields[1]) });
+					paths.add(fields[2]);
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.engine.OpeningMove;
+import com.github.knlao.chesslib.engine.OpeningTree;
+import com.github.knlao.chesslib.engine.OpeningTreeBuilder;
+
+/**
+ * An opening explorer. With archives of games in PGN it adds them to the index of an {@link OpeningTree},
+ * the games are parsed and replayed in parallel up to the ply the index counts to; with a position it prints the moves played from it.
+ * Usage: OpeningExplorer -index file [-maxply n] [-threads n] [-memory entries] archive...
+ *        OpeningExplorer -index file -query fen
+ * @author kimilao
+ * @version 1.0
+ */
+public class OpeningExplorer {
+
+	/**
+	 * The file of the index
+	 */
+	private File index;
+
+	/**
+	 * The deepest ply which is counted
+	 */
+	private int maxPly = 30;
+
+	/**
+	 * How many threads parse and replay games
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * How many entries are counted in the memory before they are written to a run
+	 */
+	private int memory = 1 << 20;
+
+	/**
+	 * The position of a query in FEN, null to build
+	 */
+	private String query;
+
+	/**
+	 * The archives
+	 */
+	private final List<File> archives = new ArrayList<>();
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		OpeningExplorer explorer = new OpeningExplorer();
+		try {
+			explorer.parse(args);
+		}
+		catch (RuntimeException e) {
+			System.out.println("Usage: OpeningExplorer -index file [-maxply n] [-threads n] [-memory entries] archive...");
+			System.out.println("       OpeningExplorer -index file -query fen");
+			return;
+		}
+		if (explorer.query != null) {
+			explorer.query();
+		}
+		else {
+			explorer.build();
+		}
+	}
+
+	/**
+	 * Read the options
+	 * @param args The options
+	 */
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-index": index = new File(args[++i]); break;
+			case "-maxply": maxPly = Integer.parseInt(args[++i]); break;
+			case "-threads": threads = Integer.parseInt(args[++i]); break;
+			case "-memory": memory = Integer.parseInt(args[++i]); break;
+			case "-query": query = args[++i]; break;
+			default:
+				if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException(args[i]);
+				}
+				archives.add(new File(args[i]));
+			}
+		}
+		if (index == null || (query == null && archives.isEmpty()) || maxPly < 1 || threads < 1 || memory < 1) {
+			throw new IllegalArgumentException("Invalid options");
+		}
+	}
+
+	/**
+	 * Add the archives to the index and report the counts
+	 * @throws IOException If an archive can't be read or the index can't be written
+	 * @throws InterruptedException If the thread is interrupted while waiting for a batch
+	 */
+	public void build() throws IOException, InterruptedException {
+		if (index.exists()) {
+			// the games of an index all count up to the same ply, so it is checked before the archives are read
+			try (OpeningTree tree = new OpeningTree(index)) {
+				if (tree.getMaxPly() != maxPly) {
+					System.out.println("The index counts up to ply " + tree.getMaxPly() + ", add to it with -maxply " + tree.getMaxPly());
+					return;
+				}
+			}
+		}
+		long start = System.nanoTime();
+		OpeningTreeBuilder builder = new OpeningTreeBuilder(index, maxPly, memory);
+		long games = 0;
+		long[] skipped = new long[1];
+		try (ArchiveReplay<Integer> replay = new ArchiveReplay<>(threads, (batch, match) -> add(builder, batch, match), n -> skipped[0] += n)) {
+			for (File archive : archives) {
+				games += replay.add(archive);
+			}
+			replay.finish();
+		}
+		long replayed = (System.nanoTime() - start) / 1000000;
+		long entries = builder.build();
+		long wall = Math.max(1, (System.nanoTime() - start) / 1000000);
+		System.out.printf("games %d, skipped %d, entries %d%n", games, skipped[0], entries);
+		System.out.printf("time %d ms (replay %d ms, merge %d ms), %d games/s, %d threads%n",
+				wall, replayed, wall - replayed, games * 1000 / wall, threads);
+	}
+
+	/**
+	 * Parse and add a batch of games on a pool thread, each up to the deepest ply
+	 * @param builder The builder
+	 * @param games The games in PGN
+	 * @param match The match of the thread
+	 * @return How many games were skipped
+	 * @throws IOException If a run can't be written
+	 */
+	private static int add(OpeningTreeBuilder builder, List<String> games, Match match) throws IOException {
+		int skipped = 0;
+		for (String text : games) {
+			try {
+				builder.add(text, match);
+			}
+			catch (ChessException e) {
+				skipped++;
+			}
+		}
+		return skipped;
+	}
+
+	/**
+	 * Print the moves played from the position of the query
+	 * @throws IOException If the index can't be read
+	 */
+	public void query() throws IOException {
+		try (OpeningTree tree = new OpeningTree(index)) {
+			Match match = new Match(query);
+			long start = System.nanoTime();
+			List<OpeningMove> moves = tree.moves(match);
+			long micros = (System.nanoTime() - start) / 1000;
+			System.out.printf("%d games, %d entries, %d moves in %d us%n", tree.getGames(), tree.size(), moves.size(), micros);
+			for (OpeningMove move : moves) {
+				System.out.printf("%-8s %10d games  %5.1f%% white  %5.1f%% draw  %5.1f%% black  rating %4.0f%n",
+						match.toSan(move.getMove()), move.getGames(), percent(move.getWhiteWins(), move.getGames()),
+						percent(move.getDraws(), move.getGames()), percent(move.getBlackWins(), move.getGames()), move.getAverageRating());
+			}
+		}
+	}
+
+	/**
+	 * Get a share in percent
+	 * @param part The part
+	 * @param whole The whole
+	 * @return The share, 0 if the whole is 0
+	 */
+	private static double percent(long part, long whole) {
+		return (whole == 0) ? 0 : 100.0 * part / whole;
+	}
+
+}
@@ -0,0 +1,256 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Pgn;
+import com.github.knlao.chesslib.chess.PositionSet;
+
+/**
+ * A deduplicator of the positions of archives of games in PGN.
+ * The games are replayed in parallel, a batch a task, and the hash key of every position is counted in a {@link PositionSet}
+ * in the order of the archives. The set can be kept in a memory-mapped file, so later archives add to the counts of earlier ones.
+ * The report has the count of unique positions, how often they occurred and the most frequent keys;
+ * the first occurrence of each new position can be written in FEN, one a line, for the analysis of unique positions only.
+ * Games with an illegal move are skipped.
+ * Usage: PositionDedup [-threads n] [-expected n] [-set file] [-unique file] [-top n] archive...
+ * @author kimilao
+ * @version 1.0
+ */
+public class PositionDedup {
+
+	/**
+	 * How many threads replay games
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * How many unique positions a new set will hold
+	 */
+	private long expected = 1 << 22;
+
+	/**
+	 * The file of the set, null for a set in memory
+	 */
+	private File setFile;
+
+	/**
+	 * The file of the new positions in FEN, null for none
+	 */
+	private File uniqueFile;
+
+	/**
+	 * How many of the most frequent positions are reported
+	 */
+	private int top = 10;
+
+	/**
+	 * The archives
+	 */
+	private final List<File> archives = new ArrayList<>();
+
+	/**
+	 * The positions of a batch of games
+	 */
+	private static class Batch {
+
+		/**
+		 * The hash keys of the positions
+		 */
+		long[] keys = new long[1024];
+
+		/**
+		 * The positions in FEN, null if they aren't written
+		 */
+		String[] fens;
+
+		/**
+		 * How many positions there are
+		 */
+		int size;
+
+		/**
+		 * How many games were skipped
+		 */
+		int skipped;
+
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		PositionDedup dedup = new PositionDedup();
+		try {
+			dedup.parse(args);
+		}
+		catch (RuntimeException e) {
+			System.out.println("Usage: PositionDedup [-threads n] [-expected n] [-set file] [-unique file] [-top n] archive...");
+			return;
+		}
+		dedup.run();
+	}
+
+	/**
+	 * Read the options
+	 * @param args The options
+	 */
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-threads": threads = Integer.parseInt(args[++i]); break;
+			case "-expected": expected = Long.parseLong(args[++i]); break;
+			case "-set": setFile = new File(args[++i]); break;
+			case "-unique": uniqueFile = new File(args[++i]); break;
+			case "-top": top = Integer.parseInt(args[++i]); break;
+			default:
+				if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException(args[i]);
+				}
+				archives.add(new File(args[i]));
+			}
+		}
+		if (archives.isEmpty() || threads < 1 || expected < 1 || top < 0) {
+			throw new IllegalArgumentException("Invalid options");
+		}
+	}
+
+	/**
+	 * Count the positions of every archive and report the counts
+	 * @throws IOException If an archive can't be read or the set or the positions can't be written
+	 * @throws InterruptedException If the thread is interrupted while waiting for a batch
+	 */
+	public void run() throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		long[] counts = new long[3];
+		try (PositionSet set = (setFile == null) ? new PositionSet(expected) : PositionSet.open(setFile, expected);
+				Writer unique = (uniqueFile == null) ? null
+						: new BufferedWriter(new OutputStreamWriter(new FileOutputStream(uniqueFile, true), StandardCharsets.UTF_8), 1 << 16)) {
+			long before = set.size();
+			// the batches are counted in the order they were read, so the first occurrences are the same for any count of threads
+			try (ArchiveReplay<Batch> replay = new ArchiveReplay<>(threads, this::replay, batch -> count(batch, counts, set, unique))) {
+				for (File archive : archives) {
+					counts[0] += replay.add(archive);
+				}
+				replay.finish();
+			}
+
+			long wall = Math.max(1, (System.nanoTime() - start) / 1000000);
+			System.out.printf("games %d, skipped %d, positions %d, new %d%n", counts[0], counts[1], counts[2], set.size() - before);
+			System.out.printf("unique %d of %d positions (%.1f%%), capacity %d%n", set.size(), set.getTotal(),
+					set.getTotal() == 0 ? 0 : 100.0 * set.size() / set.getTotal(), set.getCapacity());
+			System.out.printf("time %d ms, %d positions/s, %d threads%n", wall, counts[2] * 1000 / wall, threads);
+			report(set);
+		}
+	}
+
+	/**
+	 * Count the positions of a batch
+	 * @param batch The batch
+	 * @param counts The counts of games, skipped games and positions, the skipped games and positions are added to them
+	 * @param set The set
+	 * @param unique The output of the new positions, can be null
+	 * @throws IOException If a position can't be written
+	 */
+	private static void count(Batch batch, long[] counts, PositionSet set, Writer unique) throws IOException {
+		counts[1] += batch.skipped;
+		counts[2] += batch.size;
+		for (int i = 0; i < batch.size; i++) {
+			if (set.add(batch.keys[i]) && unique != null) {
+				unique.write(batch.fens[i]);
+				unique.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Replay a batch of games on a pool thread, every position before a move and the last position are kept
+	 * @param games The games in PGN
+	 * @param match The match of the thread
+	 * @return The positions of the games
+	 */
+	private Batch replay(List<String> games, Match match) {
+		Batch batch = new Batch();
+		if (uniqueFile != null) {
+			batch.fens = new String[batch.keys.length];
+		}
+		for (String text : games) {
+			int mark = batch.size;
+			try {
+				Pgn.parse(text, match, Integer.MAX_VALUE, (position, move) -> add(batch, position));
+				add(batch, match);
+			}
+			catch (ChessException e) {
+				batch.size = mark;
+				batch.skipped++;
+			}
+		}
+		return batch;
+	}
+
+	/**
+	 * Add a position to a batch
+	 * @param batch The batch
+	 * @param match The position
+	 */
+	private static void add(Batch batch, Match match) {
+		if (batch.size == batch.keys.length) {
+			batch.keys = Arrays.copyOf(batch.keys, batch.size * 2);
+			if (batch.fens != null) {
+				batch.fens = Arrays.copyOf(batch.fens, batch.size * 2);
+			}
+		}
+		batch.keys[batch.size] = match.getHashKey();
+		if (batch.fens != null) {
+			batch.fens[batch.size] = match.toFen();
+		}
+		batch.size++;
+	}
+
+	/**
+	 * Report how often the positions of a set occurred: the unique positions by count of occurrences,
+	 * in powers of two, and the most frequent keys
+	 * @param set The set
+	 */
+	private void report(PositionSet set) {
+		long[] histogram = new long[64];
+		// the least frequent of the most frequent keys is first, each entry is { count, key }
+		PriorityQueue<long[]> frequent = new PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+		set.forEach((key, count) -> {
+			histogram[63 - Long.numberOfLeadingZeros(count)]++;
+			if (top > 0 && (frequent.size() < top || count > frequent.peek()[0])) {
+				frequent.add(new long[] { count, key });
+				if (frequent.size() > top) {
+					frequent.poll();
+				}
+			}
+		});
+
+		System.out.println();
+		System.out.println("occurrences  positions");
+		for (int i = 0; i < histogram.length; i++) {
+			if (histogram[i] > 0) {
+				String range = (i == 0) ? "1" : (1L << i) + "-" + ((1L << (i + 1)) - 1);
+				System.out.printf("%-12s %10d%n", range, histogram[i]);
+			}
+		}
+		if (!frequent.isEmpty()) {
+			System.out.println();
+			System.out.println("most frequent keys");
+			List<long[]> list = new ArrayList<>(frequent);
+			list.sort((a, b) -> Long.compare(b[0], a[0]));
+			for (long[] entry : list) {
+				System.out.printf("%016x %10d%n", entry[1], entry[0]);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,320 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Color;
+import com.github.knlao.chesslib.chess.GameStatus;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.Pgn;
+import com.github.knlao.chesslib.engine.Search;
+import com.github.knlao.chesslib.engine.SearchLimits;
+import com.github.knlao.chesslib.engine.SearchResult;
+import com.github.knlao.chesslib.engine.TranspositionTable;
+
+/**
+ * A self-play tournament: games of the engine against itself played concurrently,
+ * each on its own match with its own searches, from the start or from a suite of openings.
+ * Usage: Tournament [-games n] [-concurrency n] [-nodes n | -movetime ms | -depth n]
+ * [-hash mb] [-maxplies n] [-openings file] [-out directory]
+ * @author kimilao
+ * @version 1.0
+ */
+public class Tournament {
+
+	/**
+	 * How many games are played
+	 */
+	private int games = 10;
+
+	/**
+	 * How many games are played at the same time
+	 */
+	private int concurrency = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The node limit of each move, 0 for none
+	 */
+	private long nodes;
+
+	/**
+	 * The time limit of each move in milliseconds, 0 for none
+	 */
+	private long moveTime;
+
+	/**
+	 * The depth limit of each move, 0 for none
+	 */
+	private int depth;
+
+	/**
+	 * The size of the transposition table of each player in megabytes
+	 */
+	private int hash = 16;
+
+	/**
+	 * How many plies are played before a game is adjudicated a draw
+	 */
+	private int maxPlies = 400;
+
+	/**
+	 * The start positions in FEN, played in turn
+	 */
+	private final List<String> openings = new ArrayList<>();
+
+	/**
+	 * The directory of the results and the games, null to write nothing
+	 */
+	private File out;
+
+	/**
+	 * How many nodes were searched by all games
+	 */
+	private final LongAdder searchNodes = new LongAdder();
+
+	/**
+	 * How many milliseconds all games searched
+	 */
+	private final LongAdder searchTime = new LongAdder();
+
+	/**
+	 * How many nanoseconds of CPU time the players used
+	 */
+	private final LongAdder cpuTime = new LongAdder();
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Tournament tournament = new Tournament();
+		try {
+			tournament.parse(args);
+		}
+		catch (RuntimeException e) {
+			System.out.println("Usage: Tournament [-games n] [-concurrency n] [-nodes n | -movetime ms | -depth n]"
+					+ " [-hash mb] [-maxplies n] [-openings file] [-out directory]");
+			return;
+		}
+		tournament.run();
+	}
+
+	/**
+	 * Read the options
+	 * @param args The options
+	 * @throws IOException If the openings can't be read
+	 */
+	private void parse(String[] args) throws IOException {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-games": games = Integer.parseInt(args[++i]); break;
+			case "-concurrency": concurrency = Integer.parseInt(args[++i]); break;
+			case "-nodes": nodes = Long.parseLong(args[++i]); break;
+			case "-movetime": moveTime = Long.parseLong(args[++i]); break;
+			case "-depth": depth = Integer.parseInt(args[++i]); break;
+			case "-hash": hash = Integer.parseInt(args[++i]); break;
+			case "-maxplies": maxPlies = Integer.parseInt(args[++i]); break;
+			case "-openings": readOpenings(new File(args[++i])); break;
+			case "-out": out = new File(args[++i]); break;
+			default: throw new IllegalArgumentException(args[i]);
+			}
+		}
+		if (nodes == 0 && moveTime == 0 && depth == 0) {
+			nodes = 20000;
+		}
+	}
+
+	/**
+	 * Read a suite of openings, one FEN or EPD position a line,
+	 * the halfmove clock and fullmove number of an EPD position are 0 and 1
+	 * @param file The file of the openings
+	 * @throws IOException If the file can't be read
+	 */
+	private void readOpenings(File file) throws IOException {
+		for (String line : Files.readAllLines(file.toPath(), StandardCharsets.UTF_8)) {
+			String[] fields = line.trim().split("\\s+");
+			if (fields.length < 4 || line.trim().startsWith("#")) {
+				continue;
+			}
+			boolean fen = fields.length >= 6 && fields[4].matches("\\d+") && fields[5].matches("\\d+");
+			openings.add(fields[0] + " " + fields[1] + " " + fields[2] + " " + fields[3]
+					+ (fen ? " " + fields[4] + " " + fields[5] : " 0 1"));
+		}
+	}
+
+	/**
+	 * Play the games and report the results
+	 * @throws IOException If the results can't be written
+	 * @throws InterruptedException If the thread is interrupted while waiting for the games
+	 */
+	public void run() throws IOException, InterruptedException {
+		if (out != null && !out.isDirectory() && !out.mkdirs()) {
+			throw new IOException("Can't create the directory " + out);
+		}
+		System.out.println("Playing " + games + " games, " + concurrency + " at a time, " + describeLimits());
+
+		long start = System.nanoTime();
+		ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+		List<Future<Pgn>> futures = new ArrayList<>();
+		for (int i = 0; i < games; i++) {
+			final int round = i + 1;
+			final String opening = openings.isEmpty() ? null : openings.get(i % openings.size());
+			futures.add(pool.submit(() -> play(round, opening)));
+		}
+		pool.shutdown();
+
+		int whiteWins = 0;
+		int blackWins = 0;
+		int draws = 0;
+		PrintWriter results = (out == null) ? null : new PrintWriter(new File(out, "results.txt"), "UTF-8");
+		try {
+			for (Future<Pgn> future : futures) {
+				Pgn pgn;
+				try {
+					pgn = future.get();
+				}
+				catch (ExecutionException e) {
+					System.out.println("A game failed: " + e.getCause());
+					continue;
+				}
+				String result = pgn.getResult();
+				if (result.equals("1-0")) {
+					whiteWins++;
+				}
+				else if (result.equals("0-1")) {
+					blackWins++;
+				}
+				else {
+					draws++;
+				}
+				String line = String.format("%4s %-7s %4d plies  %s", pgn.getTag("Round"), result, pgn.getMoves().size(), pgn.getTag("Termination"));
+				System.out.println(line);
+				if (out != null) {
+					results.println(line);
+					Files.write(new File(out, String.format("game-%04d.pgn", Integer.parseInt(pgn.getTag("Round")))).toPath(),
+							pgn.toString().getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		}
+		finally {
+			if (results != null) {
+				results.close();
+			}
+		}
+
+		double wall = (System.nanoTime() - start) / 1e9;
+		int played = whiteWins + blackWins + draws;
+		System.out.println();
+		System.out.printf("+%d =%d -%d (white wins, draws, black wins)%n", whiteWins, draws, blackWins);
+		System.out.printf("games/min %.1f%n", played / (wall / 60));
+		System.out.printf("nps %d%n", searchTime.sum() == 0 ? 0 : searchNodes.sum() * 1000 / searchTime.sum());
+		System.out.printf("cpu %.0f%% of %d cores%n", 100.0 * cpuTime.sum() / 1e9 / (wall * Runtime.getRuntime().availableProcessors()),
+				Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Play a game
+	 * @param round The number of the game
+	 * @param opening The start position in FEN, null for the start of a match
+	 * @return The game
+	 */
+	private Pgn play(int round, String opening) {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		long cpuStart = threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+
+		Pgn pgn = new Pgn(opening);
+		pgn.setTag("Event", "chesslib self-play");
+		pgn.setTag("Site", "?");
+		pgn.setTag("Round", String.valueOf(round));
+		pgn.setTag("White", "chesslib");
+		pgn.setTag("Black", "chesslib");
+
+		Match match = pgn.startMatch();
+		Search white = new Search(new TranspositionTable(hash));
+		Search black = new Search(new TranspositionTable(hash));
+		Map<Long, Integer> seen = new HashMap<>();
+		Color mover = null;
+		String termination = null;
+
+		while (termination == null) {
+			GameStatus status = match.getStatus();
+			if (status == GameStatus.CHECKMATE) {
+				pgn.setResult((mover == Color.WHITE) ? "1-0" : "0-1");
+				termination = "checkmate";
+			}
+			else if (status.isOver()) {
+				pgn.setResult("1/2-1/2");
+				termination = status.getMessage();
+			}
+			else if (seen.merge(match.getHashKey(), 1, Integer::sum) >= 3) {
+				pgn.setResult("1/2-1/2");
+				termination = "threefold repetition";
+			}
+			else if (pgn.getMoves().size() >= maxPlies) {
+				pgn.setResult("1/2-1/2");
+				termination = "adjudicated after " + maxPlies + " plies";
+			}
+			else {
+				mover = match.getCurrentPlayer();
+				SearchResult result = ((mover == Color.WHITE) ? white : black).think(match, limits(), null);
+				searchNodes.add(result.getNodes());
+				searchTime.add(result.getTime());
+				Move best = result.getBestMove();
+				if (best == null) {
+					throw new ChessException("The search found no move in " + match.toFen());
+				}
+				match.performChessMove(best);
+				pgn.addMove(best);
+			}
+		}
+		pgn.setTag("Termination", termination);
+
+		if (threads.isCurrentThreadCpuTimeSupported()) {
+			cpuTime.add(threads.getCurrentThreadCpuTime() - cpuStart);
+		}
+		return pgn;
+	}
+
+	/**
+	 * Build the limits of a move, every search gets its own
+	 * @return The limits
+	 */
+	private SearchLimits limits() {
+		SearchLimits limits = new SearchLimits();
+		limits.setNodes(nodes);
+		limits.setMoveTime(moveTime);
+		limits.setDepth(depth);
+		return limits;
+	}
+
+	/**
+	 * Describe the limits of a move
+	 * @return The description
+	 */
+	private String describeLimits() {
+		List<String> parts = new ArrayList<>();
+		if (nodes > 0) {
+			parts.add(nodes + " nodes");
+		}
+		if (moveTime > 0) {
+			parts.add(moveTime + " ms");
+		}
+		if (depth > 0) {
+			parts.add("depth " + depth);
+		}
+		return String.join(", ", parts) + " a move";
+	}
+
+}
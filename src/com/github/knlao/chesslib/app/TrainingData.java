@@ -0,0 +1,340 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Pgn;
+import com.github.knlao.chesslib.chess.TrainingRecord;
+
+/**
+ * An extractor of training samples from archives of games in PGN.
+ * Every game is replayed and each position gives a {@link TrainingRecord}: the position, the player to move,
+ * the result of the game and the move played. The games are parsed and replayed in parallel, a batch a task,
+ * and the records are written in the order of the archives to memory-mapped shards of a fixed count of records.
+ * Each record goes to one of several buckets by a seeded hash of its index and a full shard is shuffled before it is closed,
+ * so the positions of a game are spread over the shards and the output only depends on the archives and the seed.
+ * A shard is named "shard-bucket-number.bin" once it is closed and ends with ".part" while it is written.
+ * Games without a result or with an illegal move are skipped.
+ * Usage: TrainingData [-threads n] [-records n] [-buckets n] [-seed n] [-out directory] archive...
+ * @author kimilao
+ * @version 1.0
+ */
+public class TrainingData {
+
+	/**
+	 * How many threads replay games
+	 */
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * How many records a shard holds, only the last shard of a bucket can hold fewer
+	 */
+	private int records = 1 << 20;
+
+	/**
+	 * How many buckets the records are spread over, each fills its own shards
+	 */
+	private int buckets = 16;
+
+	/**
+	 * The seed of the shuffle
+	 */
+	private long seed = 1;
+
+	/**
+	 * The directory of the shards
+	 */
+	private File out = new File("training");
+
+	/**
+	 * The archives
+	 */
+	private final List<File> archives = new ArrayList<>();
+
+	/**
+	 * The records of a batch of games
+	 */
+	private static class Batch {
+
+		/**
+		 * The records, one after another
+		 */
+		ByteBuffer records;
+
+		/**
+		 * How many games were skipped
+		 */
+		int skipped;
+
+	}
+
+	/**
+	 * A bucket of records, filling one shard at a time
+	 */
+	private class Bucket {
+
+		/**
+		 * The number of the bucket
+		 */
+		final int number;
+
+		/**
+		 * How many shards of the bucket were opened
+		 */
+		int shards;
+
+		/**
+		 * The file of the open shard, which is mapped while the shard is open
+		 */
+		File part;
+
+		/**
+		 * The open shard
+		 */
+		RandomAccessFile file;
+
+		/**
+		 * The mapping of the open shard, null if no shard is open
+		 */
+		MappedByteBuffer buffer;
+
+		/**
+		 * How many records the open shard holds
+		 */
+		int count;
+
+		/**
+		 * Construct a bucket
+		 * @param number The number of the bucket
+		 */
+		Bucket(int number) {
+			this.number = number;
+		}
+
+		/**
+		 * Add a record, the shard is closed when it is full
+		 * @param data The records
+		 * @param offset The offset of the record
+		 * @throws IOException If the shard can't be written
+		 */
+		void add(byte[] data, int offset) throws IOException {
+			if (buffer == null) {
+				part = new File(out, String.format("shard-%02d-%05d.bin.part", number, shards));
+				file = new RandomAccessFile(part, "rw");
+				file.setLength(0);
+				buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) records * TrainingRecord.SIZE);
+				shards++;
+				count = 0;
+			}
+			buffer.put(data, offset, TrainingRecord.SIZE);
+			count++;
+			if (count == records) {
+				close();
+			}
+		}
+
+		/**
+		 * Shuffle the open shard and copy its records to a file under its name without ".part".
+		 * A mapped file can't be renamed or cut on every system and the mapping stays until it is collected,
+		 * so full shards are copied as well and the ".part" file is deleted when it can be
+		 * @throws IOException If the shard can't be written
+		 */
+		void close() throws IOException {
+			if (buffer == null) {
+				return;
+			}
+			shuffle(buffer, count, new Random(mix(seed ^ ((long) number << 32) ^ shards)));
+			File shard = new File(out, part.getName().substring(0, part.getName().length() - ".part".length()));
+			ByteBuffer data = buffer.duplicate();
+			data.position(0).limit(count * TrainingRecord.SIZE);
+			buffer = null;
+			try (FileOutputStream copy = new FileOutputStream(shard)) {
+				while (data.hasRemaining()) {
+					copy.getChannel().write(data);
+				}
+			}
+			finally {
+				file.close();
+			}
+			if (!part.delete()) {
+				part.deleteOnExit();
+			}
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		TrainingData data = new TrainingData();
+		try {
+			data.parse(args);
+		}
+		catch (RuntimeException e) {
+			System.out.println("Usage: TrainingData [-threads n] [-records n] [-buckets n] [-seed n] [-out directory] archive...");
+			return;
+		}
+		data.run();
+	}
+
+	/**
+	 * Read the options
+	 * @param args The options
+	 */
+	private void parse(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+			case "-threads": threads = Integer.parseInt(args[++i]); break;
+			case "-records": records = Integer.parseInt(args[++i]); break;
+			case "-buckets": buckets = Integer.parseInt(args[++i]); break;
+			case "-seed": seed = Long.parseLong(args[++i]); break;
+			case "-out": out = new File(args[++i]); break;
+			default:
+				if (args[i].startsWith("-")) {
+					throw new IllegalArgumentException(args[i]);
+				}
+				archives.add(new File(args[i]));
+			}
+		}
+		if (archives.isEmpty() || threads < 1 || buckets < 1 || records < 1 || records > Integer.MAX_VALUE / TrainingRecord.SIZE) {
+			throw new IllegalArgumentException("Invalid options");
+		}
+	}
+
+	/**
+	 * Extract the records of every archive and report the counts
+	 * @throws IOException If an archive can't be read or a shard can't be written
+	 * @throws InterruptedException If the thread is interrupted while waiting for a batch
+	 */
+	public void run() throws IOException, InterruptedException {
+		long start = System.nanoTime();
+		if (!out.isDirectory() && !out.mkdirs()) {
+			throw new IOException("Can't create " + out);
+		}
+		Bucket[] bucketList = new Bucket[buckets];
+		for (int i = 0; i < buckets; i++) {
+			bucketList[i] = new Bucket(i);
+		}
+
+		long[] counts = new long[3];
+		// the batches are written in the order they were read
+		try (ArchiveReplay<Batch> replay = new ArchiveReplay<>(threads, TrainingData::extract, batch -> write(batch, counts, bucketList))) {
+			for (File archive : archives) {
+				counts[0] += replay.add(archive);
+			}
+			replay.finish();
+		}
+		int shards = 0;
+		for (Bucket bucket : bucketList) {
+			bucket.close();
+			shards += bucket.shards;
+		}
+
+		long wall = Math.max(1, (System.nanoTime() - start) / 1000000);
+		System.out.printf("games %d, skipped %d, records %d, shards %d%n", counts[0], counts[1], counts[2], shards);
+		System.out.printf("time %d ms, %d records/s, %d threads%n", wall, counts[2] * 1000 / wall, threads);
+	}
+
+	/**
+	 * Write the records of a batch
+	 * @param batch The batch
+	 * @param counts The counts of games, skipped games and records, the skipped games and records are added to them
+	 * @param bucketList The buckets
+	 * @throws IOException If a shard can't be written
+	 */
+	private void write(Batch batch, long[] counts, Bucket[] bucketList) throws IOException {
+		counts[1] += batch.skipped;
+		byte[] data = batch.records.array();
+		for (int offset = 0; offset < batch.records.limit(); offset += TrainingRecord.SIZE) {
+			bucketList[(int) Long.remainderUnsigned(mix(seed + counts[2]), buckets)].add(data, offset);
+			counts[2]++;
+		}
+	}
+
+	/**
+	 * Replay a batch of games on a pool thread
+	 * @param games The games in PGN
+	 * @param match The match of the thread
+	 * @return The records of the games
+	 */
+	private static Batch extract(List<String> games, Match match) {
+		Batch batch = new Batch();
+		batch.records = ByteBuffer.allocate(games.size() * 80 * TrainingRecord.SIZE);
+		for (String text : games) {
+			int mark = batch.records.position();
+			try {
+				// the game is replayed once as it is parsed, the result is known at its end
+				Pgn pgn = Pgn.parse(text, match, Integer.MAX_VALUE, (position, move) -> {
+					if (batch.records.remaining() < TrainingRecord.SIZE) {
+						ByteBuffer larger = ByteBuffer.allocate(batch.records.capacity() * 2);
+						batch.records.flip();
+						larger.put(batch.records);
+						batch.records = larger;
+					}
+					TrainingRecord.write(position, move, TrainingRecord.DRAW, batch.records);
+				});
+				int result = TrainingRecord.result(pgn.getResult());
+				if (result < 0) {
+					batch.records.position(mark);
+					batch.skipped++;
+					continue;
+				}
+				for (int offset = mark; offset < batch.records.position(); offset += TrainingRecord.SIZE) {
+					TrainingRecord.setResult(batch.records, offset, result);
+				}
+			}
+			catch (ChessException e) {
+				batch.records.position(mark);
+				batch.skipped++;
+			}
+		}
+		batch.records.flip();
+		return batch;
+	}
+
+	/**
+	 * Shuffle the records of a shard in place, Fisher-Yates
+	 * @param buffer The shard
+	 * @param count How many records it holds
+	 * @param random The random numbers
+	 */
+	private static void shuffle(ByteBuffer buffer, int count, Random random) {
+		byte[] a = new byte[TrainingRecord.SIZE];
+		byte[] b = new byte[TrainingRecord.SIZE];
+		for (int i = count - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			if (i == j) {
+				continue;
+			}
+			buffer.position(i * TrainingRecord.SIZE);
+			buffer.get(a);
+			buffer.position(j * TrainingRecord.SIZE);
+			buffer.get(b);
+			buffer.position(j * TrainingRecord.SIZE);
+			buffer.put(a);
+			buffer.position(i * TrainingRecord.SIZE);
+			buffer.put(b);
+		}
+	}
+
+	/**
+	 * Mix the bits of a number, the finalizer of SplitMix64
+	 * @param x The number
+	 * @return The mixed number
+	 */
+	private static long mix(long x) {
+		x = (x ^ (x >>> 30)) * 0xBF58476D1CE4E5B9L;
+		x = (x ^ (x >>> 27)) * 0x94D049BB133111EBL;
+		return x ^ (x >>> 31);
+	}
+
+}
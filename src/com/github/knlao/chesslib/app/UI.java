@@ -73,7 +73,11 @@ public class UI {
 		printCapturedPieces(captured);
 		System.out.println();
 		System.out.println("Turn : " + chessMatch.getTurn());
-		if (!chessMatch.getCheckmate()) {
+		if (chessMatch.getStatus().isDraw()) {
+			System.out.println("DRAW!");
+			System.out.println(chessMatch.getStatus().getMessage());
+		}
+		else if (!chessMatch.getCheckmate()) {
 			System.out.println("Waiting player: " + chessMatch.getCurrentPlayer());
 			if (chessMatch.getCheck()) {
 				System.out.println("CHECK!");
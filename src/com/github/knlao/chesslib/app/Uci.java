@@ -0,0 +1,294 @@
+package com.github.knlao.chesslib.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.List;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.engine.Search;
+import com.github.knlao.chesslib.engine.SearchLimits;
+import com.github.knlao.chesslib.engine.SearchListener;
+import com.github.knlao.chesslib.engine.SearchResult;
+import com.github.knlao.chesslib.engine.TranspositionTable;
+
+/**
+ * The Universal Chess Interface front end,
+ * the commands are read on the main thread and the search runs on its own thread
+ * so stop and isready are answered while it is searching
+ * @author kimilao
+ * @version 1.0
+ */
+public class Uci implements SearchListener {
+
+	/**
+	 * The position of the start of a match
+	 */
+	private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	/**
+	 * The default size of the transposition table in megabytes
+	 */
+	private static final int DEFAULT_HASH = 16;
+
+	/**
+	 * The output to the GUI
+	 */
+	private final PrintStream out;
+
+	/**
+	 * The current position
+	 */
+	private Match match = new Match();
+
+	/**
+	 * The search
+	 */
+	private final Search search = new Search(new TranspositionTable(DEFAULT_HASH));
+
+	/**
+	 * Construct a UCI front end
+	 * @param out The output to the GUI
+	 */
+	public Uci(PrintStream out) {
+		this.out = out;
+	}
+
+	public static void main(String[] args) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		new Uci(System.out).loop(in);
+	}
+
+	/**
+	 * Read and execute commands until quit or the end of the input
+	 * @param in The input from the GUI
+	 * @throws IOException If the input can't be read
+	 */
+	public void loop(BufferedReader in) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!execute(line.trim())) {
+				break;
+			}
+		}
+		search.stop();
+		search.waitFor();
+	}
+
+	/**
+	 * Execute a command
+	 * @param line The command
+	 * @return <b>true</b>: Read the next command<br>
+	 *         <b>false</b>: Quit
+	 */
+	public boolean execute(String line) {
+		String[] tokens = line.split("\\s+");
+		switch (tokens[0]) {
+		case "uci":
+			send("id name chesslib");
+			send("id author kimilao");
+			send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max 4096");
+			send("option name Threads type spin default 1 min 1 max 256");
+			send("option name MultiPV type spin default 1 min 1 max 256");
+			send("option name Ponder type check default false");
+			send("uciok");
+			break;
+		case "isready":
+			send("readyok");
+			break;
+		case "setoption":
+			setOption(tokens);
+			break;
+		case "ucinewgame":
+			search.stop();
+			search.waitFor();
+			search.getTranspositionTable().clear();
+			match = new Match();
+			break;
+		case "position":
+			position(tokens);
+			break;
+		case "go":
+			go(tokens);
+			break;
+		case "stop":
+			search.stop();
+			break;
+		case "ponderhit":
+			search.ponderHit();
+			break;
+		case "quit":
+			return false;
+		default:
+			if (!tokens[0].isEmpty()) {
+				send("info string unknown command " + tokens[0]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Execute "setoption name [name] value [value]"
+	 * @param tokens The tokens of the command
+	 */
+	private void setOption(String[] tokens) {
+		String name = "";
+		String value = "";
+		int i = 1;
+		if (i < tokens.length && tokens[i].equals("name")) {
+			i++;
+			while (i < tokens.length && !tokens[i].equals("value")) {
+				name += (name.isEmpty() ? "" : " ") + tokens[i++];
+			}
+		}
+		if (i < tokens.length && tokens[i].equals("value")) {
+			i++;
+			while (i < tokens.length) {
+				value += (value.isEmpty() ? "" : " ") + tokens[i++];
+			}
+		}
+
+		try {
+			if (name.equalsIgnoreCase("Hash")) {
+				search.stop();
+				search.waitFor();
+				search.getTranspositionTable().resize(Integer.parseInt(value));
+			}
+			else if (name.equalsIgnoreCase("Threads")) {
+				search.setThreads(Integer.parseInt(value));
+			}
+			else if (name.equalsIgnoreCase("MultiPV")) {
+				search.setMultiPv(Integer.parseInt(value));
+			}
+			else if (!name.equalsIgnoreCase("Ponder")) {
+				send("info string unknown option " + name);
+			}
+		}
+		catch (NumberFormatException e) {
+			send("info string invalid value " + value + " for option " + name);
+		}
+	}
+
+	/**
+	 * Execute "position [startpos | fen [fen]] moves [moves]"
+	 * @param tokens The tokens of the command
+	 */
+	private void position(String[] tokens) {
+		int i = 1;
+		String fen;
+		if (i < tokens.length && tokens[i].equals("startpos")) {
+			fen = START_FEN;
+			i++;
+		}
+		else if (i < tokens.length && tokens[i].equals("fen")) {
+			i++;
+			StringBuilder sb = new StringBuilder();
+			while (i < tokens.length && !tokens[i].equals("moves")) {
+				sb.append(tokens[i++]).append(' ');
+			}
+			fen = sb.toString().trim();
+		}
+		else {
+			send("info string invalid position command");
+			return;
+		}
+
+		try {
+			Match m = new Match(fen);
+			if (i < tokens.length && tokens[i].equals("moves")) {
+				for (i++; i < tokens.length; i++) {
+					m.performChessMove(Move.fromNotation(tokens[i]));
+				}
+			}
+			match = m;
+		}
+		catch (ChessException e) {
+			send("info string " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Execute "go" with its limits
+	 * @param tokens The tokens of the command
+	 */
+	private void go(String[] tokens) {
+		SearchLimits limits = new SearchLimits();
+		try {
+			for (int i = 1; i < tokens.length; i++) {
+				switch (tokens[i]) {
+				case "wtime": limits.setWhiteTime(Long.parseLong(tokens[++i])); break;
+				case "btime": limits.setBlackTime(Long.parseLong(tokens[++i])); break;
+				case "winc": limits.setWhiteIncrement(Long.parseLong(tokens[++i])); break;
+				case "binc": limits.setBlackIncrement(Long.parseLong(tokens[++i])); break;
+				case "movestogo": limits.setMovesToGo(Integer.parseInt(tokens[++i])); break;
+				case "depth": limits.setDepth(Integer.parseInt(tokens[++i])); break;
+				case "nodes": limits.setNodes(Long.parseLong(tokens[++i])); break;
+				case "movetime": limits.setMoveTime(Long.parseLong(tokens[++i])); break;
+				case "infinite": limits.setInfinite(true); break;
+				case "ponder": limits.setPonder(true); break;
+				default: break;
+				}
+			}
+		}
+		catch (RuntimeException e) {
+			send("info string invalid go command");
+			return;
+		}
+		search.start(match, limits, this);
+	}
+
+	@Override
+	public void iterationFinished(SearchResult result, int hashfull) {
+		List<SearchResult> lines = result.getLines();
+		for (int i = 0; i < lines.size(); i++) {
+			SearchResult line = lines.get(i);
+			StringBuilder sb = new StringBuilder("info depth ").append(result.getDepth());
+			if (lines.size() > 1) {
+				sb.append(" multipv ").append(i + 1);
+			}
+			if (line.isMate()) {
+				sb.append(" score mate ").append(line.getMateIn());
+			}
+			else {
+				sb.append(" score cp ").append(line.getScore());
+			}
+			sb.append(" nodes ").append(result.getNodes())
+				.append(" nps ").append(result.getNps())
+				.append(" time ").append(result.getTime())
+				.append(" hashfull ").append(hashfull)
+				.append(" pv");
+			for (Move m : line.getPv()) {
+				sb.append(' ').append(m);
+			}
+			send(sb.toString());
+		}
+	}
+
+	@Override
+	public void searchFinished(SearchResult result) {
+		Move best = result.getBestMove();
+		Move ponder = result.getPonderMove();
+		if (best == null) {
+			send("bestmove 0000");
+		}
+		else if (ponder == null) {
+			send("bestmove " + best);
+		}
+		else {
+			send("bestmove " + best + " ponder " + ponder);
+		}
+	}
+
+	/**
+	 * Send a line to the GUI, the search thread and the command thread both send lines
+	 * @param s The line
+	 */
+	private synchronized void send(String s) {
+		out.println(s);
+		out.flush();
+	}
+
+}
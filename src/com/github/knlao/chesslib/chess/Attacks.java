@@ -0,0 +1,279 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * The attacks of the pieces as bitboards, bit row * 8 + column of a long is the square.
+ * The attacks of a leaping piece are a lookup by square, the attacks of a sliding piece are one lookup in a table indexed by the blockers on its rays,
+ * hashed by a magic multiplication
+ * @author kimilao
+ * @version 1.0
+ */
+public final class Attacks {
+
+	/**
+	 * The directions of the rook (row, column)
+	 */
+	private static final int[][] ROOK_DIRECTIONS = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } };
+
+	/**
+	 * The directions of the bishop (row, column)
+	 */
+	private static final int[][] BISHOP_DIRECTIONS = { { -1, -1 }, { -1, 1 }, { 1, -1 }, { 1, 1 } };
+
+	/**
+	 * The squares attacked by a knight by square
+	 */
+	private static final long[] KNIGHT = new long[64];
+
+	/**
+	 * The squares attacked by a king by square
+	 */
+	private static final long[] KING = new long[64];
+
+	/**
+	 * The squares attacked by a pawn by color and square, indexed by [color][square]
+	 */
+	private static final long[][] PAWN = new long[2][64];
+
+	/**
+	 * The magic multipliers of the rook by square, found once by a random search
+	 */
+	private static final long[] ROOK_MAGICS = {
+		0x2A00104100802200L, 0x024010004000E000L, 0x0200081020804200L, 0x4100040810002300L,
+		0x6080040081020800L, 0x0100040001000208L, 0xE200008804212200L, 0x4100004100002082L,
+		0x0000800020804015L, 0x8024400840201000L, 0x4044802004801004L, 0x2000800800100086L,
+		0x08018008000C0080L, 0x0012001008020004L, 0x0100808001000200L, 0x8001000080410002L,
+		0x0000908000204000L, 0x200141401000A002L, 0x0002410020041102L, 0x000101001000200BL,
+		0x000081801C004800L, 0x1002808002000400L, 0x0080C40008100912L, 0x430CA20000409C01L,
+		0x2000800080204000L, 0x00110042002A0080L, 0x1012002200108044L, 0x0268080080801000L,
+		0x0405040080080280L, 0x24A1100801044020L, 0x0100010400424850L, 0x005803020020508CL,
+		0x8C80002004400040L, 0x1020210081004000L, 0x2211410013002000L, 0xA400800804801000L,
+		0x1030800800800400L, 0x1510040080800200L, 0x5012004152000468L, 0x00042C0092000049L,
+		0x4800804000208001L, 0x0410500020004000L, 0x4400102082020040L, 0x800800801002800AL,
+		0x0401000800130004L, 0x000400050049000DL, 0x0280020001008080L, 0x4090404100820004L,
+		0x0009298000400180L, 0x0060400080210100L, 0x4402200080100480L, 0x0001830804100080L,
+		0x0008040801001100L, 0x63A1000400080300L, 0x002E000401080200L, 0x0001208408D50200L,
+		0x0005A0C100188001L, 0x0600802040010213L, 0x08A0004010082101L, 0x0018100100200905L,
+		0x0002000421885002L, 0x4001001218140005L, 0x0D80102088010204L, 0x40140504004090AAL
+	};
+
+	/**
+	 * The magic multipliers of the bishop by square, found once by a random search
+	 */
+	private static final long[] BISHOP_MAGICS = {
+		0x0910021000408100L, 0x00031C04008208C0L, 0x4010142048400002L, 0x10020A0600014220L,
+		0x1002121000080420L, 0x000B05A010084000L, 0x0000481414200004L, 0x4202004402080200L,
+		0x1010102002009202L, 0x0000282688004109L, 0x0004082204002081L, 0x1028080483008080L,
+		0x000002021000008DL, 0x0000609010084200L, 0x0010206208244000L, 0x0201004400880880L,
+		0x1021000802048806L, 0x300A281922280204L, 0x2002001000820408L, 0x4808082082004210L,
+		0x0055011820080044L, 0x0102040840422000L, 0x2000610202122010L, 0x300C200100821000L,
+		0x00242000C0028428L, 0x0904A00004181080L, 0x0005100021004200L, 0x0A01040040440080L,
+		0x0202002022008040L, 0x00110202A10080B1L, 0x1004010000611005L, 0x8080484806010400L,
+		0x2001204880A02846L, 0x0208010430482800L, 0x0000802082100088L, 0x00820080204A0200L,
+		0x0001080200022200L, 0x00F0004600804108L, 0x001802A11A028800L, 0x3708022040442100L,
+		0x0002105008000400L, 0x1904108410400480L, 0x4C91412401005000L, 0x1000212011014800L,
+		0x0000200208804400L, 0x4040500100404208L, 0x0082820C04200502L, 0x2208084080225081L,
+		0x2C04008490A81C00L, 0x0142240208048001L, 0x0010060100884534L, 0x0850000020880044L,
+		0x4002200890242080L, 0x0554040488020200L, 0x01C0129806008040L, 0x310A8C8801810000L,
+		0x0001010290013800L, 0x000808814C0A2080L, 0x8080C0204424040CL, 0x3914020008208801L,
+		0x0400000024050C04L, 0x0040804008210440L, 0x0800441122080304L, 0x0B02029004010340L
+	};
+
+	/**
+	 * The squares of the rays of the rook which can block it, the last square of each ray is left out
+	 */
+	private static final long[] ROOK_MASKS = new long[64];
+
+	/**
+	 * The squares of the rays of the bishop which can block it, the last square of each ray is left out
+	 */
+	private static final long[] BISHOP_MASKS = new long[64];
+
+	/**
+	 * The start of the table of each square in the rook table
+	 */
+	private static final int[] ROOK_OFFSETS = new int[64];
+
+	/**
+	 * The start of the table of each square in the bishop table
+	 */
+	private static final int[] BISHOP_OFFSETS = new int[64];
+
+	/**
+	 * The attacks of the rook, 2^(bits of the mask) entries for each square
+	 */
+	private static final long[] ROOK_TABLE;
+
+	/**
+	 * The attacks of the bishop, 2^(bits of the mask) entries for each square
+	 */
+	private static final long[] BISHOP_TABLE;
+
+	static {
+		for (int square = 0; square < 64; square++) {
+			KNIGHT[square] = leap(square, new int[][] { { -2, -1 }, { -2, 1 }, { -1, -2 }, { -1, 2 }, { 1, -2 }, { 1, 2 }, { 2, -1 }, { 2, 1 } });
+			KING[square] = leap(square, new int[][] { { -1, -1 }, { -1, 0 }, { -1, 1 }, { 0, -1 }, { 0, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 } });
+			// white pawns move up the board, towards row 0
+			PAWN[Color.WHITE.ordinal()][square] = leap(square, new int[][] { { -1, -1 }, { -1, 1 } });
+			PAWN[Color.BLACK.ordinal()][square] = leap(square, new int[][] { { 1, -1 }, { 1, 1 } });
+		}
+		ROOK_TABLE = init(ROOK_DIRECTIONS, ROOK_MAGICS, ROOK_MASKS, ROOK_OFFSETS);
+		BISHOP_TABLE = init(BISHOP_DIRECTIONS, BISHOP_MAGICS, BISHOP_MASKS, BISHOP_OFFSETS);
+	}
+
+	private Attacks() {
+	}
+
+	/**
+	 * Get the squares attacked by a knight
+	 * @param square The square of the knight (row * 8 + column)
+	 * @return The attacked squares
+	 */
+	public static long knight(int square) {
+		return KNIGHT[square];
+	}
+
+	/**
+	 * Get the squares attacked by a king
+	 * @param square The square of the king (row * 8 + column)
+	 * @return The attacked squares
+	 */
+	public static long king(int square) {
+		return KING[square];
+	}
+
+	/**
+	 * Get the squares attacked by a pawn
+	 * @param color The color of the pawn
+	 * @param square The square of the pawn (row * 8 + column)
+	 * @return The attacked squares
+	 */
+	public static long pawn(Color color, int square) {
+		return PAWN[color.ordinal()][square];
+	}
+
+	/**
+	 * Get the squares attacked by a rook
+	 * @param square The square of the rook (row * 8 + column)
+	 * @param occupied The occupied squares
+	 * @return The attacked squares, including the first piece on each ray of either color
+	 */
+	public static long rook(int square, long occupied) {
+		long blockers = occupied & ROOK_MASKS[square];
+		return ROOK_TABLE[ROOK_OFFSETS[square] + (int) ((blockers * ROOK_MAGICS[square]) >>> (64 - Long.bitCount(ROOK_MASKS[square])))];
+	}
+
+	/**
+	 * Get the squares attacked by a bishop
+	 * @param square The square of the bishop (row * 8 + column)
+	 * @param occupied The occupied squares
+	 * @return The attacked squares, including the first piece on each ray of either color
+	 */
+	public static long bishop(int square, long occupied) {
+		long blockers = occupied & BISHOP_MASKS[square];
+		return BISHOP_TABLE[BISHOP_OFFSETS[square] + (int) ((blockers * BISHOP_MAGICS[square]) >>> (64 - Long.bitCount(BISHOP_MASKS[square])))];
+	}
+
+	/**
+	 * Get the squares attacked by a queen
+	 * @param square The square of the queen (row * 8 + column)
+	 * @param occupied The occupied squares
+	 * @return The attacked squares, including the first piece on each ray of either color
+	 */
+	public static long queen(int square, long occupied) {
+		return rook(square, occupied) | bishop(square, occupied);
+	}
+
+	/**
+	 * Convert a bitboard to the 2d-array form used by the pieces
+	 * @param squares The bitboard
+	 * @return The squares in a 2d-array form
+	 */
+	public static boolean[][] toMatrix(long squares) {
+		boolean[][] mat = new boolean[8][8];
+		while (squares != 0) {
+			int square = Long.numberOfTrailingZeros(squares);
+			mat[square / 8][square % 8] = true;
+			squares &= squares - 1;
+		}
+		return mat;
+	}
+
+	/**
+	 * Fill the masks and offsets of a sliding piece and build its table
+	 * @param directions The directions of the piece
+	 * @param magics The magic multipliers
+	 * @param masks The masks to be filled
+	 * @param offsets The offsets to be filled
+	 * @return The table of attacks
+	 */
+	private static long[] init(int[][] directions, long[] magics, long[] masks, int[] offsets) {
+		int size = 0;
+		for (int square = 0; square < 64; square++) {
+			masks[square] = slide(square, 0, directions, true);
+			offsets[square] = size;
+			size += 1 << Long.bitCount(masks[square]);
+		}
+		long[] table = new long[size];
+		for (int square = 0; square < 64; square++) {
+			long mask = masks[square];
+			int shift = 64 - Long.bitCount(mask);
+			// every subset of the mask, by the carry-rippler trick
+			long blockers = 0;
+			do {
+				table[offsets[square] + (int) ((blockers * magics[square]) >>> shift)] = slide(square, blockers, directions, false);
+				blockers = (blockers - mask) & mask;
+			} while (blockers != 0);
+		}
+		return table;
+	}
+
+	/**
+	 * Get the squares a leaping piece reaches
+	 * @param square The square of the piece
+	 * @param offsets The offsets of the piece (row, column)
+	 * @return The squares on the board
+	 */
+	private static long leap(int square, int[][] offsets) {
+		long squares = 0;
+		for (int[] d : offsets) {
+			int row = square / 8 + d[0];
+			int column = square % 8 + d[1];
+			if (row >= 0 && row < 8 && column >= 0 && column < 8) {
+				squares |= 1L << (row * 8 + column);
+			}
+		}
+		return squares;
+	}
+
+	/**
+	 * Walk the rays of a sliding piece
+	 * @param square The square of the piece
+	 * @param occupied The occupied squares, a ray stops at the first one
+	 * @param directions The directions of the piece
+	 * @param mask <b>true</b>: Leave out the last square of each ray, for the mask of blockers<br>
+	 *             <b>false</b>: Walk the full rays, for the attacks
+	 * @return The squares on the rays
+	 */
+	private static long slide(int square, long occupied, int[][] directions, boolean mask) {
+		long squares = 0;
+		for (int[] d : directions) {
+			int row = square / 8 + d[0];
+			int column = square % 8 + d[1];
+			while (row >= 0 && row < 8 && column >= 0 && column < 8) {
+				int nextRow = row + d[0];
+				int nextColumn = column + d[1];
+				if (mask && (nextRow < 0 || nextRow >= 8 || nextColumn < 0 || nextColumn >= 8)) {
+					break;
+				}
+				squares |= 1L << (row * 8 + column);
+				if ((occupied & (1L << (row * 8 + column))) != 0) {
+					break;
+				}
+				row = nextRow;
+				column = nextColumn;
+			}
+		}
+		return squares;
+	}
+
+}
@@ -21,6 +21,11 @@ public class Board {
 	 * The board which store the pieces
 	 */
 	private Piece[][] pieces = new Piece[rows][columns];
+	
+	/**
+	 * The occupied squares of each color as bitboards (bit row * 8 + column), indexed by the ordinal of the color
+	 */
+	private long[] occupied = new long[2];
 
 	/**
 	 * Get how many rows
@@ -63,6 +68,23 @@ public class Board {
 		return pieces[position.getRow()][position.getColumn()];
 	}
 	
+	/**
+	 * Get the occupied squares
+	 * @return The bitboard of the occupied squares (bit row * 8 + column)
+	 */
+	public long getOccupied() {
+		return occupied[0] | occupied[1];
+	}
+	
+	/**
+	 * Get the squares occupied by the color's pieces
+	 * @param color The color
+	 * @return The bitboard of the occupied squares (bit row * 8 + column)
+	 */
+	public long getOccupied(Color color) {
+		return occupied[color.ordinal()];
+	}
+	
 	/**
 	 * Place a piece on the position
 	 * @param piece The piece to be placed
@@ -73,7 +95,9 @@ public class Board {
 			throw new ChessException("There is already a piece on the position");
 		}
 		pieces[position.getRow()][position.getColumn()] = piece;
-		piece.setPosition(position);
+		occupied[piece.getColor().ordinal()] |= 1L << (position.getRow() * 8 + position.getColumn());
+		// the pieces reuse their positions while generating moves, so the piece keeps its own copy
+		piece.setPosition(new Position(position.getRow(), position.getColumn()));
 	}
 	
 	/**
@@ -92,6 +116,7 @@ public class Board {
 		Piece tmp = piece(position);
 		tmp.setPosition(null);
 		pieces[position.getRow()][position.getColumn()] = null;
+		occupied[tmp.getColor().ordinal()] &= ~(1L << (position.getRow() * 8 + position.getColumn()));
 		return tmp;
 	}
 	
@@ -15,4 +15,13 @@ public class ChessException extends RuntimeException {
 	public ChessException(String msg) {
 		super(msg);
 	}
+	
+	/**
+	 * Raise a chess exception which may skip filling its stack trace
+	 * @param msg error message
+	 * @param writableStackTrace Fill the stack trace or not
+	 */
+	protected ChessException(String msg, boolean writableStackTrace) {
+		super(msg, null, false, writableStackTrace);
+	}
 }
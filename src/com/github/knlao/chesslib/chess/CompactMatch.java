@@ -0,0 +1,174 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * A compact snapshot of a match: one byte per square and one packed state word,
+ * a little over a hundred bytes instead of a board, 32 piece objects and their positions.
+ * The squares refer to the shared piece types; the Piece and Position API is built on demand by toMatch
+ * @author kimilao
+ * @version 1.0
+ */
+public final class CompactMatch {
+
+	/**
+	 * The bit of a black piece in a square, the lower bits are the ordinal of the type plus 1
+	 */
+	private static final int BLACK = 8;
+
+	/**
+	 * The pieces by square (row * 8 + column), 0 for an empty square
+	 */
+	private final byte[] squares = new byte[64];
+
+	/**
+	 * The packed state:
+	 * bit 0 black to move, bits 1-4 castling rights (KQkq), bits 5-8 en passant column plus 1,
+	 * bit 9 check, bit 10 checkmate, bits 11-26 halfmove clock, bits 27-58 turn
+	 */
+	private final long state;
+
+	/**
+	 * Construct a compact snapshot of a match
+	 * @param match The match
+	 */
+	public CompactMatch(Match match) {
+		Piece[][] pieces = match.getPieces();
+		for (int i = 0; i < pieces.length; i++) {
+			for (int j = 0; j < pieces[i].length; j++) {
+				Piece p = pieces[i][j];
+				if (p != null) {
+					squares[i * 8 + j] = (byte) ((PieceType.of(p).ordinal() + 1) | (p.getColor() == Color.BLACK ? BLACK : 0));
+				}
+			}
+		}
+
+		long s = (match.getCurrentPlayer() == Color.BLACK) ? 1 : 0;
+		boolean[] rights = match.castlingRights();
+		for (int i = 0; i < rights.length; i++) {
+			if (rights[i]) {
+				s |= 1L << (1 + i);
+			}
+		}
+		if (match.getEnPassantVulnerable() != null) {
+			s |= (long) (match.getEnPassantVulnerable().getPosition().getColumn() + 1) << 5;
+		}
+		if (match.getCheck()) {
+			s |= 1L << 9;
+		}
+		if (match.getCheckmate()) {
+			s |= 1L << 10;
+		}
+		s |= (long) (Math.min(match.getHalfmoveClock(), 0xFFFF)) << 11;
+		s |= (long) match.getTurn() << 27;
+		state = s;
+	}
+
+	/**
+	 * Build a match with the Piece and Position API from the snapshot
+	 * @return The new match
+	 */
+	public Match toMatch() {
+		return new Match(this);
+	}
+
+	/**
+	 * Get the type of the piece on a square
+	 * @param row The row
+	 * @param column The column
+	 * @return <b>PieceType</b>: The type of the piece<br>
+	 *         <b>null</b>: There is no piece on the square
+	 */
+	public PieceType pieceType(int row, int column) {
+		int code = squares[row * 8 + column] & (BLACK - 1);
+		return code == 0 ? null : PieceType.values()[code - 1];
+	}
+
+	/**
+	 * Get the type of the piece on a position
+	 * @param position The position
+	 * @return <b>PieceType</b>: The type of the piece<br>
+	 *         <b>null</b>: There is no piece on the position
+	 */
+	public PieceType pieceType(Position position) {
+		return pieceType(position.getRow(), position.getColumn());
+	}
+
+	/**
+	 * Get the color of the piece on a square
+	 * @param row The row
+	 * @param column The column
+	 * @return <b>Color</b>: The color of the piece<br>
+	 *         <b>null</b>: There is no piece on the square
+	 */
+	public Color pieceColor(int row, int column) {
+		int code = squares[row * 8 + column];
+		if (code == 0) {
+			return null;
+		}
+		return (code & BLACK) != 0 ? Color.BLACK : Color.WHITE;
+	}
+
+	/**
+	 * Get the color of the current player
+	 * @return The color of the current player
+	 */
+	public Color getCurrentPlayer() {
+		return (state & 1) != 0 ? Color.BLACK : Color.WHITE;
+	}
+
+	/**
+	 * Get the castling rights
+	 * @return The castling rights in FEN, such as "KQkq" or "-"
+	 */
+	public String getCastling() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 4; i++) {
+			if ((state & (1L << (1 + i))) != 0) {
+				sb.append("KQkq".charAt(i));
+			}
+		}
+		return sb.length() == 0 ? "-" : sb.toString();
+	}
+
+	/**
+	 * Get the column of the pawn which can be en passant
+	 * @return The column, -1 if there is no such pawn
+	 */
+	public int getEnPassantColumn() {
+		return (int) ((state >>> 5) & 0xF) - 1;
+	}
+
+	/**
+	 * Get if the current player is in check
+	 * @return <b>true</b>: One is in check<br>
+	 *         <b>false</b>: No one is in check
+	 */
+	public boolean getCheck() {
+		return (state & (1L << 9)) != 0;
+	}
+
+	/**
+	 * Get if one has been checkmated
+	 * @return <b>true</b>: One has been checkmated<br>
+	 *         <b>false</b>: No one has been checkmated
+	 */
+	public boolean getCheckmate() {
+		return (state & (1L << 10)) != 0;
+	}
+
+	/**
+	 * Get how many moves since the last capture or pawn move
+	 * @return The halfmove clock
+	 */
+	public int getHalfmoveClock() {
+		return (int) ((state >>> 11) & 0xFFFF);
+	}
+
+	/**
+	 * Get turn
+	 * @return Turn
+	 */
+	public int getTurn() {
+		return (int) (state >>> 27);
+	}
+
+}
@@ -0,0 +1,264 @@
+package com.github.knlao.chesslib.chess;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events of the library, in the category "chesslib".
+ * The events are defined at run time with jdk.jfr.EventFactory, so the library still builds for Java 8;
+ * on a runtime without that API (before 8u262) every event is disabled and its probes do nothing.
+ * A probe is used like this:
+ * <pre>
+ * Object event = FlightEvents.MOVE_GENERATION.begin();
+ * ...
+ * if (FlightEvents.MOVE_GENERATION.end(event)) {
+ *     FlightEvents.MOVE_GENERATION.commit(event, fen, color, moves);
+ * }
+ * </pre>
+ * begin returns null unless a recording has enabled the event, so the values are only built for a recording.
+ * Move generations and checkmate tests are frequent, by default only those taking 1 ms or longer are recorded.
+ * While nothing is recording a probe is a single read of a flag, kept up to date by a listener of the recorder
+ * @author kimilao
+ * @version 1.0
+ */
+public final class FlightEvents {
+
+	/**
+	 * <b>true</b>: A recording is running<br>
+	 * <b>false</b>: Nothing is recording, or flight recorder events are not supported
+	 */
+	private static volatile boolean recording;
+
+	/**
+	 * The legal moves of a player were generated
+	 */
+	public static final Type MOVE_GENERATION = new Type("MoveGeneration", "Move Generation",
+			"The legal moves of a player were generated", "1 ms",
+			new Object[] { String.class, "fen", "Position", String.class, "color", "Color", int.class, "moves", "Moves" });
+
+	/**
+	 * A player was tested for checkmate
+	 */
+	public static final Type CHECKMATE_TEST = new Type("CheckmateTest", "Checkmate Test",
+			"A player was tested for checkmate", "1 ms",
+			new Object[] { String.class, "fen", "Position", String.class, "color", "Color", boolean.class, "checkmate", "Checkmate" });
+
+	/**
+	 * An iteration of a search finished
+	 */
+	public static final Type SEARCH_ITERATION = new Type("SearchIteration", "Search Iteration",
+			"An iteration of a search finished", "0 ms",
+			new Object[] { String.class, "fen", "Position", int.class, "depth", "Depth", int.class, "score", "Score",
+					long.class, "nodes", "Nodes", long.class, "nps", "Nodes per Second", int.class, "hashfull", "Hash Full (per mille)",
+					String.class, "pv", "Principal Variation" });
+
+	/**
+	 * A transposition table was resized
+	 */
+	public static final Type TRANSPOSITION_TABLE_RESIZE = new Type("TranspositionTableResize", "Transposition Table Resize",
+			"A transposition table was resized and cleared", "0 ms",
+			new Object[] { int.class, "megabytes", "Megabytes", int.class, "entries", "Entries" });
+
+	static {
+		try {
+			Class<?> recorderClass = Class.forName("jdk.jfr.FlightRecorder");
+			Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+			Object listener = Proxy.newProxyInstance(FlightEvents.class.getClassLoader(), new Class<?>[] { listenerClass },
+					(proxy, method, args) -> {
+						switch (method.getName()) {
+						case "recordingStateChanged": updateRecording(); return null;
+						case "equals": return proxy == args[0];
+						case "hashCode": return System.identityHashCode(proxy);
+						case "toString": return "FlightEvents";
+						default: return null;
+						}
+					});
+			recorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+			// the recorder isn't started just to ask, a recording started later is told to the listener
+			if ((Boolean) recorderClass.getMethod("isInitialized").invoke(null)) {
+				updateRecording();
+			}
+		}
+		catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			recording = false;
+		}
+	}
+
+	private FlightEvents() {
+	}
+
+	/**
+	 * Check if any recording is running
+	 */
+	private static void updateRecording() {
+		boolean running = false;
+		try {
+			Class<?> recorderClass = Class.forName("jdk.jfr.FlightRecorder");
+			Object recorder = recorderClass.getMethod("getFlightRecorder").invoke(null);
+			for (Object r : (List<?>) recorderClass.getMethod("getRecordings").invoke(recorder)) {
+				if (r.getClass().getMethod("getState").invoke(r).toString().equals("RUNNING")) {
+					running = true;
+				}
+			}
+		}
+		catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+			running = false;
+		}
+		recording = running;
+	}
+
+	/**
+	 * A type of event
+	 */
+	public static final class Type {
+
+		/**
+		 * The factory of the events, null if flight recorder events are not supported
+		 */
+		private final Object factory;
+
+		/**
+		 * The methods of the factory and the events
+		 */
+		private Method newEvent;
+		private Method isEnabled;
+		private Method begin;
+		private Method end;
+		private Method shouldCommit;
+		private Method set;
+		private Method commit;
+
+		/**
+		 * The type of the events
+		 */
+		private Object eventType;
+
+		/**
+		 * Define a type of event
+		 * @param name The name of the event, after "chesslib."
+		 * @param label The label of the event
+		 * @param description The description of the event
+		 * @param threshold The default threshold of the event, shorter events are not recorded
+		 * @param fields The fields: their class, name and label in turn
+		 */
+		private Type(String name, String label, String description, String threshold, Object[] fields) {
+			Object f = null;
+			try {
+				Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+				Class<?> valueClass = Class.forName("jdk.jfr.ValueDescriptor");
+				Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+				Class<?> eventClass = Class.forName("jdk.jfr.Event");
+				Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+				Constructor<?> value = valueClass.getConstructor(Class.class, String.class, List.class);
+
+				List<Object> annotations = new ArrayList<>();
+				annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Name"), "chesslib." + name));
+				annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Label"), label));
+				annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Description"), description));
+				annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Category"), new String[] { "chesslib" }));
+				annotations.add(annotation.newInstance(Class.forName("jdk.jfr.Threshold"), threshold));
+
+				List<Object> values = new ArrayList<>();
+				for (int i = 0; i < fields.length; i += 3) {
+					Object fieldLabel = annotation.newInstance(Class.forName("jdk.jfr.Label"), fields[i + 2]);
+					values.add(value.newInstance(fields[i], fields[i + 1], Arrays.asList(fieldLabel)));
+				}
+
+				f = factoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, values);
+				newEvent = factoryClass.getMethod("newEvent");
+				eventType = factoryClass.getMethod("getEventType").invoke(f);
+				isEnabled = eventType.getClass().getMethod("isEnabled");
+				begin = eventClass.getMethod("begin");
+				end = eventClass.getMethod("end");
+				shouldCommit = eventClass.getMethod("shouldCommit");
+				set = eventClass.getMethod("set", int.class, Object.class);
+				commit = eventClass.getMethod("commit");
+			}
+			catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+				f = null;
+			}
+			factory = f;
+		}
+
+		/**
+		 * Get if a recording has enabled the events
+		 * @return <b>true</b>: The events are recorded<br>
+		 *         <b>false</b>: The events are not recorded or not supported
+		 */
+		public boolean isEnabled() {
+			if (!recording || factory == null) {
+				return false;
+			}
+			try {
+				return (Boolean) isEnabled.invoke(eventType);
+			}
+			catch (ReflectiveOperationException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Begin an event
+		 * @return <b>Object</b>: The event<br>
+		 *         <b>null</b>: The events are not recorded
+		 */
+		public Object begin() {
+			if (!isEnabled()) {
+				return null;
+			}
+			try {
+				Object event = newEvent.invoke(factory);
+				begin.invoke(event);
+				return event;
+			}
+			catch (ReflectiveOperationException e) {
+				return null;
+			}
+		}
+
+		/**
+		 * End an event
+		 * @param event The event returned by begin
+		 * @return <b>true</b>: The event should be committed<br>
+		 *         <b>false</b>: The event is dropped, such as being shorter than the threshold
+		 */
+		public boolean end(Object event) {
+			if (event == null) {
+				return false;
+			}
+			try {
+				end.invoke(event);
+				return (Boolean) shouldCommit.invoke(event);
+			}
+			catch (ReflectiveOperationException e) {
+				return false;
+			}
+		}
+
+		/**
+		 * Commit an event
+		 * @param event The event returned by begin
+		 * @param values The values of the fields, in the order they are defined
+		 */
+		public void commit(Object event, Object... values) {
+			if (event == null) {
+				return;
+			}
+			try {
+				for (int i = 0; i < values.length; i++) {
+					set.invoke(event, i, values[i]);
+				}
+				commit.invoke(event);
+			}
+			catch (ReflectiveOperationException e) {
+				// an event which can't be committed is dropped
+			}
+		}
+
+	}
+
+}
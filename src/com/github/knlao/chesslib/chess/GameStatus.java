@@ -0,0 +1,54 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * The status of a match
+ * @author kimilao
+ * @version 1.0
+ */
+public enum GameStatus {
+	IN_PROGRESS("The match is in progress"),
+	CHECKMATE("Checkmate"),
+	STALEMATE("Stalemate"),
+	FIFTY_MOVE_RULE("Draw by the fifty-move rule"),
+	INSUFFICIENT_MATERIAL("Draw by insufficient material");
+
+	/**
+	 * The message of the status
+	 */
+	private final String message;
+
+	/**
+	 * Construct a status
+	 * @param message The message of the status
+	 */
+	GameStatus(String message) {
+		this.message = message;
+	}
+
+	/**
+	 * Get the message of the status
+	 * @return The message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Check if the match is over
+	 * @return <b>true</b>: The match is over<br>
+	 *         <b>false</b>: The match is in progress
+	 */
+	public boolean isOver() {
+		return this != IN_PROGRESS;
+	}
+
+	/**
+	 * Check if the match is drawn
+	 * @return <b>true</b>: The match is drawn<br>
+	 *         <b>false</b>: The match is in progress or won
+	 */
+	public boolean isDraw() {
+		return this != IN_PROGRESS && this != CHECKMATE;
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * A snapshot of a latency histogram in nanoseconds.
+ * The buckets are log-linear like HdrHistogram: every power of two is split into 16 linear buckets,
+ * so a value is reported within 1/16 (about 6%) of what was recorded, from 1 ns up to Long.MAX_VALUE
+ * @author kimilao
+ * @version 1.0
+ */
+public final class Histogram {
+
+	/**
+	 * How many linear buckets every power of two is split into
+	 */
+	private static final int SUB_BUCKETS = 16;
+
+	/**
+	 * The count of buckets
+	 */
+	static final int BUCKETS = 60 * SUB_BUCKETS;
+
+	/**
+	 * The counts of values by bucket
+	 */
+	private final long[] counts;
+
+	/**
+	 * The count of values
+	 */
+	private final long count;
+
+	/**
+	 * The sum of values
+	 */
+	private final long sum;
+
+	/**
+	 * The largest value
+	 */
+	private final long max;
+
+	/**
+	 * Construct a snapshot
+	 * @param counts The counts of values by bucket
+	 * @param sum The sum of values
+	 * @param max The largest value
+	 */
+	Histogram(long[] counts, long sum, long max) {
+		this.counts = counts;
+		long n = 0;
+		for (long c : counts) {
+			n += c;
+		}
+		this.count = n;
+		this.sum = sum;
+		this.max = max;
+	}
+
+	/**
+	 * Get the bucket of a value
+	 * @param value The value, a negative value counts as 0
+	 * @return The index of the bucket
+	 */
+	static int bucket(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) Math.max(value, 0);
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+		return shift * SUB_BUCKETS + (int) (value >>> shift);
+	}
+
+	/**
+	 * Get the largest value of a bucket
+	 * @param bucket The index of the bucket
+	 * @return The largest value
+	 */
+	static long highest(int bucket) {
+		if (bucket < 2 * SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long sub = bucket % SUB_BUCKETS + SUB_BUCKETS;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * Get the count of values
+	 * @return The count
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Get the mean of the values
+	 * @return The mean in nanoseconds, 0 if there is no value
+	 */
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Get the largest value
+	 * @return The largest value in nanoseconds, 0 if there is no value
+	 */
+	public long getMax() {
+		return max;
+	}
+
+	/**
+	 * Get a percentile of the values
+	 * @param percentile The percentile, such as 99 or 99.9
+	 * @return The value in nanoseconds which the percentile is not above, 0 if there is no value
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highest(i), max);
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("count %d mean %.1fus p50 %.1fus p90 %.1fus p99 %.1fus p99.9 %.1fus max %.1fus",
+				count, getMean() / 1000, getPercentile(50) / 1000.0, getPercentile(90) / 1000.0,
+				getPercentile(99) / 1000.0, getPercentile(99.9) / 1000.0, max / 1000.0);
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.github.knlao.chesslib.chess;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram which many threads record into without locks:
+ * the threads are spread over a fixed count of stripes by their id, each stripe has its own buckets,
+ * and the buckets of all stripes are merged on read. The stripes don't grow with the threads,
+ * so a pool which keeps making new threads doesn't make the recorder larger or the snapshots slower
+ * @author kimilao
+ * @version 1.0
+ */
+public final class HistogramRecorder {
+
+	/**
+	 * The slot of the sum of values after the buckets of a stripe
+	 */
+	private static final int SUM = Histogram.BUCKETS;
+
+	/**
+	 * The slot of the largest value after the buckets of a stripe
+	 */
+	private static final int MAX = Histogram.BUCKETS + 1;
+
+	/**
+	 * The count of stripes, a power of two with about two stripes a processor
+	 */
+	private static final int STRIPES = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors() * 2 - 1)) << 1;
+
+	/**
+	 * The buckets of every stripe
+	 */
+	private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+	/**
+	 * Construct an empty recorder
+	 */
+	public HistogramRecorder() {
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new AtomicLongArray(Histogram.BUCKETS + 2);
+		}
+	}
+
+	/**
+	 * Record a value
+	 * @param value The value in nanoseconds
+	 */
+	public void record(long value) {
+		// the ids of threads are mostly consecutive, so they spread evenly; threads sharing a stripe add atomically
+		AtomicLongArray buckets = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+		buckets.incrementAndGet(Histogram.bucket(value));
+		buckets.addAndGet(SUM, value);
+		long max = buckets.get(MAX);
+		while (value > max && !buckets.compareAndSet(MAX, max, value)) {
+			max = buckets.get(MAX);
+		}
+	}
+
+	/**
+	 * Merge the values of every thread
+	 * @return The snapshot of the values since the construction or the last reset
+	 */
+	public Histogram snapshot() {
+		long[] counts = new long[Histogram.BUCKETS];
+		long sum = 0;
+		long max = 0;
+		for (AtomicLongArray buckets : stripes) {
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += buckets.get(i);
+			}
+			sum += buckets.get(SUM);
+			max = Math.max(max, buckets.get(MAX));
+		}
+		return new Histogram(counts, sum, max);
+	}
+
+	/**
+	 * Clear the values, a value recorded at the same time may be lost
+	 */
+	public void reset() {
+		for (AtomicLongArray buckets : stripes) {
+			for (int i = 0; i < buckets.length(); i++) {
+				buckets.set(i, 0);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * Exception about an illegal chess move, it has no stack trace
+ * because illegal moves are common input and not a bug of the program
+ * @author kimilao
+ * @version 1.0
+ */
+public class IllegalMoveException extends ChessException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The reason the move is illegal
+	 */
+	private final MoveStatus status;
+
+	/**
+	 * Raise an illegal move exception
+	 * @param status The reason the move is illegal
+	 */
+	public IllegalMoveException(MoveStatus status) {
+		super(status.getMessage(), false);
+		this.status = status;
+	}
+
+	/**
+	 * Get the reason the move is illegal
+	 * @return The status
+	 */
+	public MoveStatus getStatus() {
+		return status;
+	}
+}
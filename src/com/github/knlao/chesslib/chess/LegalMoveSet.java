@@ -0,0 +1,126 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * The legal moves of a player in one position,
+ * for each source square a bitmask of the target squares (bit row * 8 + column)
+ * @author kimilao
+ * @version 1.0
+ */
+public class LegalMoveSet {
+
+	/**
+	 * The bitmasks of the target squares by source square
+	 */
+	private final long[] targets = new long[64];
+
+	/**
+	 * How many source and target pairs there are
+	 */
+	private int size;
+
+	/**
+	 * Add the targets of a piece
+	 * @param source The position of the piece
+	 * @param mat The possible moves of the piece in a 2d-array form
+	 */
+	void add(Position source, boolean[][] mat) {
+		long mask = mask(mat);
+		targets[source.getRow() * 8 + source.getColumn()] = mask;
+		size += Long.bitCount(mask);
+	}
+
+	/**
+	 * Convert the possible moves of a piece to a bitmask
+	 * @param mat The possible moves of the piece in a 2d-array form
+	 * @return The bitmask of the target squares
+	 */
+	static long mask(boolean[][] mat) {
+		long mask = 0;
+		for (int i = 0; i < mat.length; i++) {
+			for (int j = 0; j < mat[i].length; j++) {
+				if (mat[i][j]) {
+					mask |= 1L << (i * 8 + j);
+				}
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Check if a move is legal
+	 * @param source The source square (row * 8 + column)
+	 * @param target The target square (row * 8 + column)
+	 * @return <b>true</b>: The move is legal<br>
+	 *         <b>false</b>: The move is illegal
+	 */
+	public boolean contains(int source, int target) {
+		return source >= 0 && source < 64 && target >= 0 && target < 64 && (targets[source] & (1L << target)) != 0;
+	}
+
+	/**
+	 * Check if a move is legal, positions off the board are illegal
+	 * @param source The source position
+	 * @param target The target position
+	 * @return <b>true</b>: The move is legal<br>
+	 *         <b>false</b>: The move is illegal
+	 */
+	public boolean contains(Position source, Position target) {
+		if (!onBoard(source) || !onBoard(target)) {
+			return false;
+		}
+		return contains(source.getRow() * 8 + source.getColumn(), target.getRow() * 8 + target.getColumn());
+	}
+
+	/**
+	 * Get the bitmask of the target squares of a source square
+	 * @param source The source square (row * 8 + column)
+	 * @return The bitmask, 0 if the square has no legal moves
+	 */
+	public long targets(int source) {
+		return targets[source];
+	}
+
+	/**
+	 * Get the targets of a source position in a 2d-array form
+	 * @param source The source position
+	 * @return The possible moves from the position
+	 */
+	public boolean[][] targets(Position source) {
+		boolean[][] mat = new boolean[8][8];
+		long mask = targets[source.getRow() * 8 + source.getColumn()];
+		while (mask != 0) {
+			int square = Long.numberOfTrailingZeros(mask);
+			mat[square / 8][square % 8] = true;
+			mask &= mask - 1;
+		}
+		return mat;
+	}
+
+	/**
+	 * Get how many source and target pairs there are, a promotion counts once
+	 * @return The count of pairs
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Check if there are no legal moves
+	 * @return <b>true</b>: There are no legal moves<br>
+	 *         <b>false</b>: There is at least 1 legal move
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Check if the position is on the board
+	 * @param position The position
+	 * @return <b>true</b>: The position is on the board<br>
+	 *         <b>false</b>: The position is not on the board
+	 */
+	private static boolean onBoard(Position position) {
+		return position.getRow() >= 0 && position.getRow() < 8 && position.getColumn() >= 0 && position.getColumn() < 8;
+	}
+
+}
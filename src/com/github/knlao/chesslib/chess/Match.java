@@ -1,6 +1,8 @@
 package com.github.knlao.chesslib.chess;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -53,6 +55,43 @@ public class Match {
 	 * The pawn which will be promoted
 	 */
 	private Piece promoted;
+	
+	/**
+	 * How many moves since the last capture or pawn move,
+	 * used by the fifty-move rule
+	 */
+	private int halfmoveClock;
+	
+	/**
+	 * The legal moves of the current player, built on the first query of the turn
+	 * and shared by every query until the position changes
+	 */
+	private LegalMoveSet legalMoveSet;
+	
+	/**
+	 * The own pieces which the search for a legal move tries, kept between searches so it doesn't allocate
+	 */
+	private Piece[] candidates = new Piece[16];
+	
+	/**
+	 * The target of a trial move of the search for a legal move, a trial move doesn't keep it
+	 */
+	private final Position trialTarget = new Position(0, 0);
+	
+	/**
+	 * If check and checkmate are only computed when they are asked for
+	 */
+	private boolean lazyStatus;
+	
+	/**
+	 * If check and checkmate are up to date
+	 */
+	private boolean statusKnown = true;
+	
+	/**
+	 * The status of the match, computed on the first query of the turn
+	 */
+	private GameStatus status;
 
 	/**
 	 * The list of pieces on the board
@@ -64,6 +103,26 @@ public class Match {
 	 */
 	private List<Piece> capturedPieces = new ArrayList<>();
 	
+	/**
+	 * The moves performed and undone, one packed record each:
+	 * bits 0-5 source square, bits 6-11 target square, bits 12-14 promotion type,
+	 * bits 15-17 captured type, bit 18 en passant capture, bits 19-22 prior en passant column plus 1,
+	 * bits 23-25 prior move count of the piece (a pawn moves at most 6 times), bit 26 prior check,
+	 * bit 27 prior check known, bits 28-43 prior halfmove clock. The types are the ordinal of the piece type plus 1, 0 for none.
+	 * The castling rights come back with the move count of the piece
+	 */
+	private long[] history = new long[64];
+	
+	/**
+	 * How many records of the history have been performed
+	 */
+	private int historySize;
+	
+	/**
+	 * How many records of the history can be performed again by redo
+	 */
+	private int historyEnd;
+	
 	/**
 	 * Construct a match
 	 */
@@ -74,6 +133,94 @@ public class Match {
 		initBoard();
 	}
 	
+	/**
+	 * Construct a match from a position in Forsyth-Edwards Notation
+	 * @param fen The position in FEN
+	 */
+	public Match(String fen) {
+		board = new Board();
+		initBoard(fen);
+		check = testCheck(currentPlayer);
+		checkmate = testCheckmate(currentPlayer);
+	}
+	
+	/**
+	 * Set the match to a position in Forsyth-Edwards Notation, reusing the board and the lists of the match.
+	 * The history and the captured pieces are cleared, the lazy status is kept.
+	 * If the FEN is invalid the match must be set again before it is used
+	 * @param fen The position in FEN
+	 */
+	public void setPosition(String fen) {
+		for (Piece p : piecesOnBoard) {
+			board.removePiece(p.getPosition());
+		}
+		piecesOnBoard.clear();
+		capturedPieces.clear();
+		enPassantVulnerable = null;
+		promoted = null;
+		legalMoveSet = null;
+		status = null;
+		historySize = 0;
+		historyEnd = 0;
+		check = false;
+		checkmate = false;
+		initBoard(fen);
+		if (lazyStatus) {
+			statusKnown = false;
+			return;
+		}
+		statusKnown = true;
+		check = testCheck(currentPlayer);
+		checkmate = testCheckmate(currentPlayer);
+	}
+	
+	/**
+	 * Construct a match from a compact match, the captured pieces are not kept
+	 * @param compact The compact match
+	 */
+	Match(CompactMatch compact) {
+		board = new Board();
+		initBoard(compact);
+	}
+	
+	/**
+	 * Construct a copy of a match
+	 * @param other The match to be copied
+	 */
+	public Match(Match other) {
+		board = new Board();
+		turn = other.turn;
+		currentPlayer = other.currentPlayer;
+		check = other.check;
+		checkmate = other.checkmate;
+		lazyStatus = other.lazyStatus;
+		statusKnown = other.statusKnown;
+		status = other.status;
+		halfmoveClock = other.halfmoveClock;
+		// the set is never changed after it is built, so the copy can share it
+		legalMoveSet = other.legalMoveSet;
+		for (Piece p : other.piecesOnBoard) {
+			Piece copy = newPiece(p.toString(), p.getColor());
+			copy.setMoveCount(p.getMoveCount());
+			board.placePiece(copy, new Position(p.getPosition().getRow(), p.getPosition().getColumn()));
+			piecesOnBoard.add(copy);
+			if (p == other.enPassantVulnerable) {
+				enPassantVulnerable = copy;
+			}
+			if (p == other.promoted) {
+				promoted = copy;
+			}
+		}
+		for (Piece p : other.capturedPieces) {
+			Piece copy = newPiece(p.toString(), p.getColor());
+			copy.setMoveCount(p.getMoveCount());
+			capturedPieces.add(copy);
+		}
+		history = Arrays.copyOf(other.history, other.history.length);
+		historySize = other.historySize;
+		historyEnd = other.historyEnd;
+	}
+	
 	/**
 	 * Get turn
 	 * @return Turn
@@ -96,6 +243,7 @@ public class Match {
 	 *         <b>false</b>: No one is in check
 	 */
 	public boolean getCheck() {
+		resolveStatus();
 		return check;
 	}
 	
@@ -105,9 +253,64 @@ public class Match {
 	 *         <b>false</b>: No one has been checkmated
 	 */
 	public boolean getCheckmate() {
+		resolveStatus();
 		return checkmate;
 	}
 	
+	/**
+	 * Get the status of the match, the draws are checked after checkmate and stalemate
+	 * @return The status of the match
+	 */
+	public GameStatus getStatus() {
+		if (status == null) {
+			resolveStatus();
+			if (checkmate) {
+				status = GameStatus.CHECKMATE;
+			}
+			else if (!hasAnyLegalMove()) {
+				status = GameStatus.STALEMATE;
+			}
+			else if (insufficientMaterial()) {
+				status = GameStatus.INSUFFICIENT_MATERIAL;
+			}
+			else if (halfmoveClock >= 100) {
+				status = GameStatus.FIFTY_MOVE_RULE;
+			}
+			else {
+				status = GameStatus.IN_PROGRESS;
+			}
+		}
+		return status;
+	}
+	
+	/**
+	 * Get if check and checkmate are only computed when they are asked for
+	 * @return <b>true</b>: The status is lazy<br>
+	 *         <b>false</b>: The status is computed after every move
+	 */
+	public boolean isLazyStatus() {
+		return lazyStatus;
+	}
+	
+	/**
+	 * Set if check and checkmate are only computed when they are asked for,
+	 * which saves the checkmate test of every move when replaying many moves.
+	 * In the lazy mode the turn always passes to the opponent,
+	 * so after checkmate the current player is the checkmated player
+	 * @param lazyStatus If the status is lazy
+	 */
+	public void setLazyStatus(boolean lazyStatus) {
+		this.lazyStatus = lazyStatus;
+	}
+	
+	/**
+	 * Get how many moves since the last capture or pawn move
+	 * @return The halfmove clock
+	 */
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+	
 	/**
 	 * Get the piece which can be en passant
 	 * @return The piece which can be en passent
@@ -144,8 +347,14 @@ public class Match {
 	 * @return A list of possible moves
 	 */
 	public boolean[][] possibleMoves(Position position) {
-		validateSourcePosition(position);
-		return board.piece(position).possibleMoves();
+		long start = Metrics.start();
+		try {
+			validateSourcePosition(position);
+			return legalMoveSet().targets(position);
+		}
+		finally {
+			Metrics.stop(Metrics.Timer.POSSIBLE_MOVES, start);
+		}
 	}
 	
 	/**
@@ -156,47 +365,123 @@ public class Match {
 	 *         <b>null</b>: No piece is captured
 	 */
 	public Piece performChessMove(Position from, Position to) {
-
-		validateSourcePosition(from);
-		validateTargetPosition(from, to);
+		long start = Metrics.start();
+		try {
+			MoveStatus status = validateMove(from, to);
+			if (status != MoveStatus.OK) {
+				throw new IllegalMoveException(status);
+			}
+			return executeMove(from, to);
+		}
+		finally {
+			Metrics.stop(Metrics.Timer.PERFORM_CHESS_MOVE, start);
+		}
+	}
+	
+	/**
+	 * Try to perform a chess move, an illegal move is reported by the status instead of an exception
+	 * @param from The source position
+	 * @param to The target position
+	 * @return <b>OK</b>: The move is performed<br>
+	 *         <b>Other status</b>: The reason the move is illegal, nothing is changed
+	 */
+	public MoveStatus tryMove(Position from, Position to) {
+		MoveStatus status = validateMove(from, to);
+		if (status == MoveStatus.OK) {
+			executeMove(from, to);
+		}
+		return status;
+	}
+	
+	/**
+	 * Try to perform a chess move, including the choice of piece for promotion,
+	 * an illegal move is reported by the status instead of an exception
+	 * @param move The move
+	 * @return <b>OK</b>: The move is performed<br>
+	 *         <b>Other status</b>: The reason the move is illegal, nothing is changed
+	 */
+	public MoveStatus tryMove(Move move) {
+		MoveStatus status = tryMove(move.getSource(), move.getTarget());
+		if (status == MoveStatus.OK && promoted != null && move.getPromotion() != null && !move.getPromotion().equals("Q")) {
+			replacePromotedPiece(move.getPromotion());
+		}
+		return status;
+	}
+	
+	/**
+	 * Perform a validated chess move
+	 * @param from The source position
+	 * @param to The target position
+	 * @return <b>Piece</b>: The captured Piece<br>
+	 *         <b>null</b>: No piece is captured
+	 */
+	private Piece executeMove(Position from, Position to) {
+		long record = from.getRow() * 8 + from.getColumn()
+				| (to.getRow() * 8 + to.getColumn()) << 6
+				| (long) Math.min(board.piece(from).getMoveCount(), 7) << 23
+				| (check ? 1L << 26 : 0)
+				| (statusKnown ? 1L << 27 : 0)
+				| (long) Math.min(halfmoveClock, 0xFFFF) << 28;
+		if (enPassantVulnerable != null) {
+			record |= (long) (enPassantVulnerable.getPosition().getColumn() + 1) << 19;
+		}
+		
+		// the possible moves only contain moves which don't leave the king in check
 		Piece capturedPiece = makeMove(from, to);
 		
-		if (testCheck(currentPlayer)) {
-			undoMove(from, to, capturedPiece);
-			throw new ChessException("You can't put yourself in check");
+		Piece movedPiece = board.piece(to);
+		if (capturedPiece != null) {
+			record |= (long) (PieceType.of(capturedPiece).ordinal() + 1) << 15;
+			if (capturedPiece == enPassantVulnerable) {
+				record |= 1L << 18;
+			}
 		}
 		
-		Piece movedPiece = board.piece(to);
+		// special move en passant, recorded before the opponent's moves are tested
+		if (movedPiece instanceof Pawn && (to.getRow() == from.getRow() - 2 || to.getRow() == from.getRow() + 2)) {
+			enPassantVulnerable = movedPiece;
+		}
+		else {
+			enPassantVulnerable = null;
+		}
+		
+		halfmoveClock = (movedPiece instanceof Pawn || capturedPiece != null) ? 0 : halfmoveClock + 1;
 		
 		// special move pawn promotion
 		promoted = null;
 		if (movedPiece instanceof Pawn) {
 			if ((movedPiece.getColor() == Color.WHITE && to.getRow() == 0) || (movedPiece.getColor() == Color.BLACK && to.getRow() == 7)) {
-				promoted = board.piece(to);
-				promoted = replacePromotedPiece("Q");
+				promoted = movedPiece;
+				promoted = promote("Q");
+				record |= (long) (PieceType.QUEEN.ordinal() + 1) << 12;
 			}
 		}
 		
-		check = (testCheck(opponent(currentPlayer))) ? true : false;
-
-		if (testCheckmate(opponent(currentPlayer))) {
-			checkmate = true;
-		}
-		else {
-			nextTurn();
+		if (historySize == history.length) {
+			history = Arrays.copyOf(history, history.length * 2);
 		}
+		history[historySize++] = record;
+		historyEnd = historySize;
 		
-		// special move en passant
-		if (movedPiece instanceof Pawn && (to.getRow() == from.getRow() - 2 || to.getRow() == from.getRow() + 2)) {
-			enPassantVulnerable = movedPiece;
-		}
-		else {
-			enPassantVulnerable = null;
-		}
+		finishTurn(currentPlayer);
 		
 		return capturedPiece;
 	}
 	
+	/**
+	 * Perform a chess move, including the choice of piece for promotion
+	 * @param move The move
+	 * @return <b>Piece</b>: The captured Piece<br>
+	 *         <b>null</b>: No piece is captured
+	 */
+	public Piece performChessMove(Move move) {
+		Piece capturedPiece = performChessMove(move.getSource(), move.getTarget());
+		if (promoted != null && move.getPromotion() != null && !move.getPromotion().equals("Q")) {
+			replacePromotedPiece(move.getPromotion());
+		}
+		return capturedPiece;
+	}
+	
 	/**
 	 * Replace a promoted piece
 	 * @param type The new type of the piece
@@ -210,6 +495,143 @@ public class Match {
 			return promoted;
 		}
 		
+		Color mover = promoted.getColor();
+		Piece newPiece = promote(type);
+		promoted = newPiece;
+		if (historySize > 0) {
+			history[historySize - 1] = (history[historySize - 1] & ~(7L << 12))
+					| (long) (PieceType.of(newPiece).ordinal() + 1) << 12;
+		}
+		
+		// the new piece may change the opponent's check and checkmate
+		if (lazyStatus || !checkmate) {
+			turn--;
+		}
+		currentPlayer = mover;
+		finishTurn(mover);
+		
+		return newPiece;
+	}
+	
+	/**
+	 * Check if there is a move to undo
+	 * @return <b>true</b>: There is a move to undo<br>
+	 *         <b>false</b>: No move has been performed
+	 */
+	public boolean canUndo() {
+		return historySize > 0;
+	}
+	
+	/**
+	 * Check if there is an undone move to redo
+	 * @return <b>true</b>: There is a move to redo<br>
+	 *         <b>false</b>: No move has been undone since the last move
+	 */
+	public boolean canRedo() {
+		return historySize < historyEnd;
+	}
+	
+	/**
+	 * Undo the last move, the match is the same as before the move
+	 * @return The undone move
+	 */
+	public Move undo() {
+		if (historySize == 0) {
+			throw new ChessException("There is no move to undo");
+		}
+		long record = history[--historySize];
+		Move move = toMove(record);
+		Position from = move.getSource();
+		Position to = move.getTarget();
+		Piece p = board.piece(to);
+		Color mover = p.getColor();
+		
+		if (currentPlayer != mover) {
+			turn--;
+			currentPlayer = mover;
+		}
+		
+		// special move pawn promotion, the pawn comes back before it moves back
+		if (move.getPromotion() != null) {
+			board.removePiece(to);
+			piecesOnBoard.remove(p);
+			Piece pawn = new Pawn(board, mover, this);
+			pawn.setMoveCount((int) ((record >>> 23) & 7) + 1);
+			board.placePiece(pawn, to);
+			piecesOnBoard.add(pawn);
+		}
+		
+		Piece capturedPiece = null;
+		if (((record >>> 15) & 7) != 0) {
+			capturedPiece = capturedPieces.get(capturedPieces.size() - 1);
+		}
+		enPassantVulnerable = ((record >>> 18) & 1) != 0 ? capturedPiece : null;
+		undoMove(from, to, capturedPiece);
+		
+		int enPassantColumn = (int) ((record >>> 19) & 0xF) - 1;
+		enPassantVulnerable = (enPassantColumn < 0) ? null : board.piece((mover == Color.WHITE) ? 3 : 4, enPassantColumn);
+		halfmoveClock = (int) ((record >>> 28) & 0xFFFF);
+		check = ((record >>> 26) & 1) != 0;
+		checkmate = false;
+		statusKnown = ((record >>> 27) & 1) != 0;
+		status = null;
+		legalMoveSet = null;
+		promoted = null;
+		if (historySize > 0 && ((history[historySize - 1] >>> 12) & 7) != 0) {
+			promoted = board.piece(toMove(history[historySize - 1]).getTarget());
+		}
+		return move;
+	}
+	
+	/**
+	 * Perform the last undone move again
+	 * @return The performed move
+	 */
+	public Move redo() {
+		if (historySize == historyEnd) {
+			throw new ChessException("There is no move to redo");
+		}
+		int end = historyEnd;
+		Move move = toMove(history[historySize]);
+		executeMove(move.getSource(), move.getTarget());
+		if (move.getPromotion() != null && !move.getPromotion().equals("Q")) {
+			replacePromotedPiece(move.getPromotion());
+		}
+		historyEnd = end;
+		return move;
+	}
+	
+	/**
+	 * Get the moves performed since the match was constructed
+	 * @return The list of moves, the first move first
+	 */
+	public List<Move> getMoveHistory() {
+		List<Move> moves = new ArrayList<>(historySize);
+		for (int i = 0; i < historySize; i++) {
+			moves.add(toMove(history[i]));
+		}
+		return moves;
+	}
+	
+	/**
+	 * Convert a record of the history to a move
+	 * @param record The record
+	 * @return The move
+	 */
+	private static Move toMove(long record) {
+		int from = (int) (record & 63);
+		int to = (int) ((record >>> 6) & 63);
+		int promotion = (int) ((record >>> 12) & 7);
+		return new Move(new Position(from / 8, from % 8), new Position(to / 8, to % 8),
+				(promotion == 0) ? null : PieceType.values()[promotion - 1].getLetter());
+	}
+	
+	/**
+	 * Swap the promoted piece for a new piece
+	 * @param type The new type of the piece
+	 * @return The new piece
+	 */
+	private Piece promote(String type) {
 		Position pos = promoted.getPosition();
 		Piece p = board.removePiece(pos);
 		piecesOnBoard.remove(p);
@@ -222,7 +644,29 @@ public class Match {
 	}
 	
 	/**
-	 * Convert a string to a piece for promotion
+	 * Update check and checkmate after a move and pass the turn
+	 * to the opponent unless the opponent has been checkmated
+	 * @param mover The color of the player who moved
+	 */
+	private void finishTurn(Color mover) {
+		legalMoveSet = null;
+		status = null;
+		if (lazyStatus) {
+			statusKnown = false;
+			check = false;
+			checkmate = false;
+			nextTurn();
+			return;
+		}
+		check = testCheck(opponent(mover));
+		checkmate = testCheckmate(opponent(mover));
+		if (!checkmate) {
+			nextTurn();
+		}
+	}
+	
+	/**
+	 * Convert a string to a piece
 	 * @param type The type of the new piece
 	 * @param color The color of the new piece
 	 * @return The new piece
@@ -232,9 +676,536 @@ public class Match {
 		if (type.equals("N")) return new Knight(board, color, this);
 		if (type.equals("R")) return new Rook(board, color, this);
 		if (type.equals("Q")) return new Queen(board, color, this);
+		if (type.equals("K")) return new King(board, color, this);
+		if (type.equals("P")) return new Pawn(board, color, this);
 		return null;
 	}
 	
+	/**
+	 * Get all legal moves of the current player,
+	 * a pawn reaching the last row gives one move for each type of promotion
+	 * @return The list of legal moves
+	 */
+	public List<Move> legalMoves() {
+		List<Move> moves = new ArrayList<>();
+		LegalMoveSet set = legalMoveSet();
+		for (int from = 0; from < 64; from++) {
+			long mask = set.targets(from);
+			if (mask == 0) {
+				continue;
+			}
+			Position source = new Position(from / 8, from % 8);
+			boolean pawn = board.piece(source) instanceof Pawn;
+			while (mask != 0) {
+				int to = Long.numberOfTrailingZeros(mask);
+				mask &= mask - 1;
+				Position target = new Position(to / 8, to % 8);
+				if (pawn && (target.getRow() == 0 || target.getRow() == 7)) {
+					moves.add(new Move(source, target, "Q"));
+					moves.add(new Move(source, target, "R"));
+					moves.add(new Move(source, target, "B"));
+					moves.add(new Move(source, target, "N"));
+				}
+				else {
+					moves.add(new Move(source, target));
+				}
+			}
+		}
+		return moves;
+	}
+	
+	/**
+	 * Write a legal move in Standard Algebraic Notation, such as "Nbxd7+", "O-O" or "e8=Q#"
+	 * @param move The move
+	 * @return The move in SAN
+	 */
+	public String toSan(Move move) {
+		Position source = move.getSource();
+		Position target = move.getTarget();
+		LegalMoveSet set = legalMoveSet();
+		if (!set.contains(source, target)) {
+			throw new ChessException("Illegal move " + move);
+		}
+		Piece p = board.piece(source);
+		int to = target.getRow() * 8 + target.getColumn();
+		StringBuilder sb = new StringBuilder();
+		
+		if (p instanceof King && Math.abs(target.getColumn() - source.getColumn()) == 2) {
+			sb.append((target.getColumn() > source.getColumn()) ? "O-O" : "O-O-O");
+		}
+		else {
+			boolean capture = board.piece(target) != null || (p instanceof Pawn && source.getColumn() != target.getColumn());
+			if (p instanceof Pawn) {
+				if (capture) {
+					sb.append((char) ('a' + source.getColumn())).append('x');
+				}
+			}
+			else {
+				sb.append(p.toString());
+				// another piece of the type reaching the target needs the file or the rank of the source
+				boolean ambiguous = false;
+				boolean sameFile = false;
+				boolean sameRank = false;
+				for (int from = 0; from < 64; from++) {
+					if ((set.targets(from) & (1L << to)) == 0 || from == source.getRow() * 8 + source.getColumn()
+							|| board.piece(from / 8, from % 8).getClass() != p.getClass()) {
+						continue;
+					}
+					ambiguous = true;
+					sameFile |= from % 8 == source.getColumn();
+					sameRank |= from / 8 == source.getRow();
+				}
+				if (ambiguous && (!sameFile || sameRank)) {
+					sb.append((char) ('a' + source.getColumn()));
+				}
+				if (ambiguous && sameFile) {
+					sb.append(8 - source.getRow());
+				}
+				if (capture) {
+					sb.append('x');
+				}
+			}
+			sb.append((char) ('a' + target.getColumn())).append(8 - target.getRow());
+			if (p instanceof Pawn && (target.getRow() == 0 || target.getRow() == 7)) {
+				sb.append('=').append((move.getPromotion() == null) ? "Q" : move.getPromotion());
+			}
+		}
+		
+		Match after = new Match(this);
+		after.performChessMove(move);
+		if (after.getCheckmate()) {
+			sb.append('#');
+		}
+		else if (after.getCheck()) {
+			sb.append('+');
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Read a legal move in Standard Algebraic Notation, such as "Nbxd7+", "O-O" or "e8=Q#"
+	 * @param san The move in SAN
+	 * @return The move
+	 */
+	public Move parseSan(String san) {
+		String s = san.trim();
+		while (!s.isEmpty() && "+#!?".indexOf(s.charAt(s.length() - 1)) >= 0) {
+			s = s.substring(0, s.length() - 1);
+		}
+		// only the pieces which can reach the target have their legal moves generated
+		resolveStatus();
+		
+		if (s.equals("O-O") || s.equals("0-0") || s.equals("O-O-O") || s.equals("0-0-0")) {
+			Piece king = king(currentPlayer);
+			Position source = king.getPosition();
+			Position target = new Position(source.getRow(), source.getColumn() + ((s.length() == 3) ? 2 : -2));
+			if (!legalTarget(king, source.getRow() * 8 + source.getColumn(), target.getRow() * 8 + target.getColumn())) {
+				throw new ChessException("Illegal move " + san);
+			}
+			return new Move(new Position(source.getRow(), source.getColumn()), target);
+		}
+		
+		String promotion = null;
+		int equals = s.indexOf('=');
+		if (equals >= 0 && equals == s.length() - 2) {
+			promotion = s.substring(equals + 1);
+			s = s.substring(0, equals);
+		}
+		else if (s.length() > 2 && "NBRQ".indexOf(s.charAt(s.length() - 1)) >= 0 && Character.isDigit(s.charAt(s.length() - 2))) {
+			promotion = s.substring(s.length() - 1);
+			s = s.substring(0, s.length() - 1);
+		}
+		if (s.length() < 2) {
+			throw new ChessException("Invalid move " + san);
+		}
+		
+		PieceType type = PieceType.PAWN;
+		int start = 0;
+		if ("NBRQK".indexOf(s.charAt(0)) >= 0) {
+			type = PieceType.of(s.charAt(0));
+			start = 1;
+		}
+		char file = s.charAt(s.length() - 2);
+		char rank = s.charAt(s.length() - 1);
+		if (file < 'a' || file > 'h' || rank < '1' || rank > '8') {
+			throw new ChessException("Invalid move " + san);
+		}
+		int to = (8 - (rank - '0')) * 8 + (file - 'a');
+		int fromFile = -1;
+		int fromRank = -1;
+		for (char c : s.substring(start, s.length() - 2).toCharArray()) {
+			if (c >= 'a' && c <= 'h') {
+				fromFile = c - 'a';
+			}
+			else if (c >= '1' && c <= '8') {
+				fromRank = 8 - (c - '0');
+			}
+			else if (c != 'x' && c != '-') {
+				throw new ChessException("Invalid move " + san);
+			}
+		}
+		
+		Move found = null;
+		// the squares are read from a copy, generating the moves of a piece changes the board while it tests them
+		long own = board.getOccupied(currentPlayer);
+		while (own != 0) {
+			int from = Long.numberOfTrailingZeros(own);
+			own &= own - 1;
+			Piece p = board.piece(from / 8, from % 8);
+			if ((fromFile >= 0 && from % 8 != fromFile) || (fromRank >= 0 && from / 8 != fromRank) || PieceType.of(p) != type
+					|| (type == PieceType.PAWN ? Math.abs(from % 8 - to % 8) > 1 : (p.attacks() & (1L << to)) == 0)
+					|| !legalTarget(p, from, to)) {
+				continue;
+			}
+			if (found != null) {
+				throw new ChessException("Ambiguous move " + san);
+			}
+			boolean last = to / 8 == 0 || to / 8 == 7;
+			found = new Move(new Position(from / 8, from % 8), new Position(to / 8, to % 8),
+					(type == PieceType.PAWN && last) ? ((promotion == null) ? "Q" : promotion) : null);
+		}
+		if (found == null) {
+			throw new ChessException("Illegal move " + san);
+		}
+		return found;
+	}
+	
+	/**
+	 * Check if a piece of the current player can move to a square, from the legal moves of the turn if they are built
+	 * @param p The piece
+	 * @param from The square of the piece (row * 8 + column)
+	 * @param to The target square
+	 * @return <b>true</b>: The move is legal<br>
+	 *         <b>false</b>: The move is illegal
+	 */
+	private boolean legalTarget(Piece p, int from, int to) {
+		if (legalMoveSet != null) {
+			return (legalMoveSet.targets(from) & (1L << to)) != 0;
+		}
+		return !checkmate && p.possibleMoves()[to / 8][to % 8];
+	}
+	
+	/**
+	 * Check if the current player has any legal move, without generating all of them
+	 * @return <b>true</b>: The player has at least 1 legal move<br>
+	 *         <b>false</b>: The player has no legal moves
+	 */
+	public boolean hasAnyLegalMove() {
+		// a lazy status isn't resolved, the checkmate test would run the same search a second time
+		if (statusKnown && checkmate) {
+			return false;
+		}
+		if (legalMoveSet != null) {
+			return !legalMoveSet.isEmpty();
+		}
+		return hasAnyLegalMove(currentPlayer);
+	}
+	
+	/**
+	 * Check if the color's player has any legal move, stopping at the first one found.
+	 * The king's moves are tried first, then the captures of the checking piece
+	 * @param color The color of the player
+	 * @return <b>true</b>: The player has at least 1 legal move<br>
+	 *         <b>false</b>: The player has no legal moves
+	 */
+	private boolean hasAnyLegalMove(Color color) {
+		Piece king = king(color);
+		if (anyLegalTarget(king, king.attacks())) {
+			return true;
+		}
+		
+		// the own pieces are copied, a trial move takes a captured piece off the list and puts it back at the end
+		Position kingPosition = king.getPosition();
+		long kingSquare = 1L << (kingPosition.getRow() * 8 + kingPosition.getColumn());
+		Piece checker = null;
+		int checkers = 0;
+		int count = 0;
+		for (Piece p : piecesOnBoard) {
+			if (p.getColor() != color) {
+				if ((p.attacks() & kingSquare) != 0) {
+					checker = p;
+					checkers++;
+				}
+			}
+			else if (p != king) {
+				if (count == candidates.length) {
+					candidates = Arrays.copyOf(candidates, count * 2);
+				}
+				candidates[count++] = p;
+			}
+		}
+		try {
+			// only the king can escape a double check
+			if (checkers > 1) {
+				return false;
+			}
+			if (checker != null) {
+				Position target = checker.getPosition();
+				long checkerSquare = 1L << (target.getRow() * 8 + target.getColumn());
+				for (int i = 0; i < count; i++) {
+					Piece p = candidates[i];
+					if ((targets(p) & checkerSquare) != 0 && testMove(p.getPosition(), target, color)) {
+						return true;
+					}
+				}
+			}
+			
+			// castling is not tried, the king can't castle unless it can also move one square
+			for (int i = 0; i < count; i++) {
+				if (anyLegalTarget(candidates[i], targets(candidates[i]))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		finally {
+			Arrays.fill(candidates, 0, count, null);
+		}
+	}
+	
+	/**
+	 * Check if any of the targets of a piece is a legal move
+	 * @param p The piece
+	 * @param targets The bitboard of the targets (bit row * 8 + column), the own pieces are not included
+	 * @return <b>true</b>: A move to one of the targets is legal<br>
+	 *         <b>false</b>: No move to the targets is legal
+	 */
+	private boolean anyLegalTarget(Piece p, long targets) {
+		for (long left = targets; left != 0; left &= left - 1) {
+			int square = Long.numberOfTrailingZeros(left);
+			trialTarget.setRow(square / 8);
+			trialTarget.setColumn(square % 8);
+			if (testMove(p.getPosition(), trialTarget, p.getColor())) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Get the targets of a piece without testing if its king is in check afterwards
+	 * @param p The piece, not the king
+	 * @return The bitboard of the targets (bit row * 8 + column)
+	 */
+	private long targets(Piece p) {
+		if (!(p instanceof Pawn)) {
+			return p.attacks();
+		}
+		Position source = p.getPosition();
+		int row = source.getRow();
+		int column = source.getColumn();
+		int direction = (p.getColor() == Color.WHITE) ? -1 : 1;
+		long empty = ~board.getOccupied();
+		long targets = p.attacks() & board.getOccupied(opponent(p.getColor()));
+		int one = row + direction;
+		if (one >= 0 && one < 8 && (empty & (1L << (one * 8 + column))) != 0) {
+			targets |= 1L << (one * 8 + column);
+			int two = one + direction;
+			if (p.getMoveCount() == 0 && two >= 0 && two < 8 && (empty & (1L << (two * 8 + column))) != 0) {
+				targets |= 1L << (two * 8 + column);
+			}
+		}
+		if (enPassantVulnerable != null && enPassantVulnerable.getColor() != p.getColor() && one >= 0 && one < 8) {
+			Position beside = enPassantVulnerable.getPosition();
+			if (beside.getRow() == row && Math.abs(beside.getColumn() - column) == 1) {
+				targets |= 1L << (one * 8 + beside.getColumn());
+			}
+		}
+		return targets;
+	}
+	
+	/**
+	 * Get the legal moves of the current player as a set of source and target squares,
+	 * the set is built once a turn and shared by every query of the turn
+	 * @return The set of legal moves
+	 */
+	public LegalMoveSet legalMoveSet() {
+		resolveStatus();
+		if (legalMoveSet == null) {
+			legalMoveSet = checkmate ? new LegalMoveSet() : generateLegalMoveSet(currentPlayer);
+		}
+		return legalMoveSet;
+	}
+	
+	/**
+	 * Generate the legal moves of the color's player
+	 * @param color The color of the player
+	 * @return The set of legal moves
+	 */
+	private LegalMoveSet generateLegalMoveSet(Color color) {
+		Object event = FlightEvents.MOVE_GENERATION.begin();
+		LegalMoveSet set = new LegalMoveSet();
+		List<Piece> list = piecesOnBoard.stream().filter(x -> x.getColor() == color).collect(Collectors.toList());
+		for (Piece p : list) {
+			set.add(p.getPosition(), p.possibleMoves());
+		}
+		Metrics.count(Metrics.Counter.GENERATED_MOVES, set.size());
+		if (FlightEvents.MOVE_GENERATION.end(event)) {
+			FlightEvents.MOVE_GENERATION.commit(event, toFen(), color.toString(), set.size());
+		}
+		return set;
+	}
+	
+	/**
+	 * Validate many moves against the current position, the legal moves are generated once for all of them
+	 * @param sources The source positions
+	 * @param targets The target positions, one for each source position
+	 * @return The set of the indexes of the legal moves
+	 */
+	public BitSet validateMoves(Position[] sources, Position[] targets) {
+		if (sources.length != targets.length) {
+			throw new ChessException("Every source position needs a target position");
+		}
+		LegalMoveSet set = legalMoveSet();
+		BitSet result = new BitSet(sources.length);
+		for (int i = 0; i < sources.length; i++) {
+			if (set.contains(sources[i], targets[i])) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Validate many moves against the current position, the legal moves are generated once for all of them
+	 * @param moves The moves
+	 * @return The set of the indexes of the legal moves
+	 */
+	public BitSet validateMoves(Move[] moves) {
+		LegalMoveSet set = legalMoveSet();
+		BitSet result = new BitSet(moves.length);
+		for (int i = 0; i < moves.length; i++) {
+			if (set.contains(moves[i].getSource(), moves[i].getTarget())) {
+				result.set(i);
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the hash key of the pieces only, positions with the same pieces on the same squares have the same key
+	 * whoever is to move and whatever the castling rights and en passant are
+	 * @return The hash key of the placement
+	 */
+	public long getPlacementKey() {
+		long key = 0;
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getColumns(); j++) {
+				Piece p = board.piece(i, j);
+				if (p != null) {
+					key ^= Zobrist.piece(p, i * 8 + j);
+				}
+			}
+		}
+		return key;
+	}
+	
+	/**
+	 * Get the hash key of the position, positions with the same pieces, player,
+	 * castling rights and en passant have the same key
+	 * @return The hash key
+	 */
+	public long getHashKey() {
+		long key = getPlacementKey();
+		boolean[] rights = castlingRights();
+		for (int i = 0; i < rights.length; i++) {
+			if (rights[i]) {
+				key ^= Zobrist.CASTLING[i];
+			}
+		}
+		if (enPassantVulnerable != null) {
+			key ^= Zobrist.EN_PASSANT[enPassantVulnerable.getPosition().getColumn()];
+		}
+		if (currentPlayer == Color.BLACK) {
+			key ^= Zobrist.BLACK_TO_MOVE;
+		}
+		return key;
+	}
+	
+	/**
+	 * Get the position in Forsyth-Edwards Notation
+	 * @return The position in FEN
+	 */
+	public String toFen() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < board.getRows(); i++) {
+			int empty = 0;
+			for (int j = 0; j < board.getColumns(); j++) {
+				Piece p = board.piece(i, j);
+				if (p == null) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					sb.append(empty);
+					empty = 0;
+				}
+				sb.append(p.getColor() == Color.WHITE ? p.toString() : p.toString().toLowerCase());
+			}
+			if (empty > 0) {
+				sb.append(empty);
+			}
+			if (i < board.getRows() - 1) {
+				sb.append('/');
+			}
+		}
+		
+		sb.append(currentPlayer == Color.WHITE ? " w " : " b ");
+		
+		boolean[] rights = castlingRights();
+		String castling = (rights[0] ? "K" : "") + (rights[1] ? "Q" : "") + (rights[2] ? "k" : "") + (rights[3] ? "q" : "");
+		sb.append(castling.isEmpty() ? "-" : castling);
+		
+		if (enPassantVulnerable != null) {
+			Position pos = enPassantVulnerable.getPosition();
+			int row = (enPassantVulnerable.getColor() == Color.WHITE) ? pos.getRow() + 1 : pos.getRow() - 1;
+			sb.append(' ').append((char)('a' + pos.getColumn())).append(8 - row);
+		}
+		else {
+			sb.append(" -");
+		}
+		
+		sb.append(' ').append(halfmoveClock).append(' ').append((turn + 1) / 2);
+		return sb.toString();
+	}
+	
+	/**
+	 * Get the piece on a square without copying the board
+	 * @param row The row
+	 * @param column The column
+	 * @return <b>Piece</b>: The piece<br>
+	 *         <b>null</b>: There is no piece on the square
+	 */
+	Piece piece(int row, int column) {
+		return board.piece(row, column);
+	}
+	
+	/**
+	 * Get the castling rights from the unmoved kings and rooks
+	 * @return White kingside, white queenside, black kingside and black queenside rights
+	 */
+	boolean[] castlingRights() {
+		return new boolean[] {
+			unmoved(7, 4, King.class) && unmoved(7, 7, Rook.class),
+			unmoved(7, 4, King.class) && unmoved(7, 0, Rook.class),
+			unmoved(0, 4, King.class) && unmoved(0, 7, Rook.class),
+			unmoved(0, 4, King.class) && unmoved(0, 0, Rook.class)
+		};
+	}
+	
+	/**
+	 * Check if a piece of the type has never moved from its initial position
+	 * @param row The row of the initial position
+	 * @param column The column of the initial position
+	 * @param type The type of the piece
+	 * @return <b>true</b>: The piece has never moved<br>
+	 *         <b>false</b>: There is no such piece or it has moved
+	 */
+	private boolean unmoved(int row, int column, Class<? extends Piece> type) {
+		Piece p = board.piece(row, column);
+		return type.isInstance(p) && p.getMoveCount() == 0 && p.getColor() == (row == 7 ? Color.WHITE : Color.BLACK);
+	}
+	
 	/**
 	 * Make a chess move
 	 * @param from The source position
@@ -243,6 +1214,7 @@ public class Match {
 	 *         <b>null</b>: No piece is captured
 	 */
 	private Piece makeMove(Position from, Position to) {
+		Metrics.count(Metrics.Counter.MAKE_MOVE);
 		Piece p = board.removePiece(from);
 		p.increaseMoveCount();
 		Piece capturedPiece = board.removePiece(to);
@@ -297,6 +1269,7 @@ public class Match {
 	 * @param capturedPiece The captured piece
 	 */
 	private void undoMove(Position from, Position to, Piece capturedPiece) {
+		Metrics.count(Metrics.Counter.UNDO_MOVE);
 		Piece p = board.removePiece(to);
 		p.decreaseMoveCount();
 		board.placePiece(p, from);
@@ -346,26 +1319,81 @@ public class Match {
 	 * @param position The source position
 	 */
 	private void validateSourcePosition(Position position) {
+		if (!board.positionExists(position)) {
+			throw new IllegalMoveException(MoveStatus.OFF_BOARD);
+		}
 		if (!board.thereIsAPiece(position)) {
-			throw new ChessException("There is no piece on source position");
+			throw new IllegalMoveException(MoveStatus.NO_PIECE);
 		}
 		if (currentPlayer != board.piece(position).getColor()) {
-			throw new ChessException("The chosen piece is not yours");
+			throw new IllegalMoveException(MoveStatus.NOT_YOUR_PIECE);
 		}
-		if (!board.piece(position).isThereAnyPossibleMove()) {
-			throw new ChessException("There is no possible moves for the chosen piece");
+		if (legalMoveSet().targets(position.getRow() * 8 + position.getColumn()) == 0) {
+			throw new IllegalMoveException(MoveStatus.NO_POSSIBLE_MOVES);
 		}
 	}
 	
 	/**
-	 * Validate the target position
+	 * Validate a chess move without changing the match
 	 * @param source The source position
 	 * @param target The target position
+	 * @return <b>OK</b>: The move is legal<br>
+	 *         <b>Other status</b>: The reason the move is illegal
+	 */
+	private MoveStatus validateMove(Position source, Position target) {
+		if (!board.positionExists(source) || !board.positionExists(target)) {
+			return MoveStatus.OFF_BOARD;
+		}
+		// with a lazy status the checkmate isn't tested for a move, a piece of a checkmated player has no legal target anyway
+		if (statusKnown && checkmate) {
+			return MoveStatus.GAME_OVER;
+		}
+		Piece p = board.piece(source);
+		if (p == null) {
+			return MoveStatus.NO_PIECE;
+		}
+		if (currentPlayer != p.getColor()) {
+			return MoveStatus.NOT_YOUR_PIECE;
+		}
+		
+		// a single move only needs the moves of its piece unless the set of the turn is built
+		long targets = (legalMoveSet != null) ? legalMoveSet.targets(source.getRow() * 8 + source.getColumn())
+				: LegalMoveSet.mask(p.possibleMoves());
+		if ((targets & (1L << (target.getRow() * 8 + target.getColumn()))) != 0) {
+			return MoveStatus.OK;
+		}
+		if (targets == 0) {
+			return MoveStatus.NO_POSSIBLE_MOVES;
+		}
+		return canReach(p, target) ? MoveStatus.SELF_CHECK : MoveStatus.ILLEGAL_TARGET;
+	}
+	
+	/**
+	 * Check if the piece could move to the target if its king was not in check afterwards
+	 * @param p The piece
+	 * @param target The target position
+	 * @return <b>true</b>: The move only fails because of check<br>
+	 *         <b>false</b>: The piece can't move to the target anyway
 	 */
-	private void validateTargetPosition(Position source, Position target) {
-		if (!board.piece(source).possibleMove(target)) {
-			throw new ChessException("The chosen piece can't move to target position");
+	private boolean canReach(Piece p, Position target) {
+		Piece targetPiece = board.piece(target);
+		if (targetPiece != null && targetPiece.getColor() == p.getColor()) {
+			return false;
 		}
+		Position source = p.getPosition();
+		if (p instanceof Pawn) {
+			int direction = (p.getColor() == Color.WHITE) ? -1 : 1;
+			if (target.getColumn() == source.getColumn()) {
+				if (targetPiece != null) {
+					return false;
+				}
+				return target.getRow() == source.getRow() + direction
+						|| (target.getRow() == source.getRow() + 2 * direction && p.getMoveCount() == 0
+						&& board.piece(source.getRow() + direction, source.getColumn()) == null);
+			}
+			return targetPiece != null && (p.attacks() & (1L << (target.getRow() * 8 + target.getColumn()))) != 0;
+		}
+		return (p.attacks() & (1L << (target.getRow() * 8 + target.getColumn()))) != 0;
 	}
 	
 	/**
@@ -391,9 +1419,8 @@ public class Match {
 	 * @return The king
 	 */
 	private Piece king(Color color) {
-		List<Piece> list = piecesOnBoard.stream().filter(x -> x.getColor() == color).collect(Collectors.toList());
-		for (Piece p : list) {
-			if (p instanceof King) {
+		for (Piece p : piecesOnBoard) {
+			if (p instanceof King && p.getColor() == color) {
 				return p;
 			}
 		}
@@ -408,17 +1435,59 @@ public class Match {
 	 *         <b>false</b>: The player is not in check
 	 */
 	private boolean testCheck(Color color) {
+		Metrics.count(Metrics.Counter.TEST_CHECK);
 		Position kingPosition = king(color).getPosition();
-		List<Piece> opponentPieces = piecesOnBoard.stream().filter(x -> x.getColor() == opponent(color)).collect(Collectors.toList());
-		for (Piece p : opponentPieces) {
-			boolean[][] mat = p.positionsAttacked();
-			if (mat[kingPosition.getRow()][kingPosition.getColumn()]) {
+		long kingSquare = 1L << (kingPosition.getRow() * 8 + kingPosition.getColumn());
+		for (Piece p : piecesOnBoard) {
+			if (p.getColor() != color && (p.attacks() & kingSquare) != 0) {
 				return true;
 			}
 		}
 		return false;
 	}
 	
+	/**
+	 * Compute check and checkmate of the current player if they are not up to date
+	 */
+	private void resolveStatus() {
+		if (statusKnown) {
+			return;
+		}
+		// marked first, the king asks for check while its moves are generated
+		statusKnown = true;
+		check = testCheck(currentPlayer);
+		checkmate = testCheckmate(currentPlayer);
+	}
+	
+	/**
+	 * Check if neither player has enough pieces to checkmate:
+	 * kings only, a single bishop or knight, or bishops on squares of one color
+	 * @return <b>true</b>: The material is insufficient<br>
+	 *         <b>false</b>: A checkmate is still possible
+	 */
+	private boolean insufficientMaterial() {
+		int minors = 0;
+		int bishopSquares = 0;
+		for (Piece p : piecesOnBoard) {
+			if (p instanceof King) {
+				continue;
+			}
+			if (p instanceof Knight) {
+				minors++;
+			}
+			else if (p instanceof Bishop) {
+				bishopSquares |= 1 << ((p.getPosition().getRow() + p.getPosition().getColumn()) % 2);
+			}
+			else {
+				return false;
+			}
+		}
+		if (minors == 0) {
+			return bishopSquares != 3;
+		}
+		return minors == 1 && bishopSquares == 0;
+	}
+	
 	/**
 	 * Check if the color's player is checkmated
 	 * @param color The color of the player
@@ -426,28 +1495,19 @@ public class Match {
 	 *         <b>false</b>: The player is not checkmated
 	 */
 	private boolean testCheckmate(Color color) {
-		if (!testCheck(color)) {
-			return false;
+		long start = Metrics.start();
+		Object event = FlightEvents.CHECKMATE_TEST.begin();
+		boolean checkmate = false;
+		try {
+			checkmate = testCheck(color) && !hasAnyLegalMove(color);
+			return checkmate;
 		}
-		List<Piece> list = piecesOnBoard.stream().filter(x -> x.getColor() == color).collect(Collectors.toList());
-		for (Piece p : list) {
-			boolean[][] mat = p.possibleMoves();
-			for (int i = 0; i < board.getRows(); i++) {
-				for (int j = 0; j < board.getColumns(); j++) {
-					if (mat[i][j]) {
-						Position source = p.getPosition();
-						Position target = new Position(i, j);
-						Piece capturedPiece = makeMove(source, target);
-						boolean testCheck = testCheck(color);
-						undoMove(source, target, capturedPiece);
-						if (!testCheck) {
-							return false;
-						}
-					}
-				}
+		finally {
+			Metrics.stop(Metrics.Timer.CHECKMATE, start);
+			if (FlightEvents.CHECKMATE_TEST.end(event)) {
+				FlightEvents.CHECKMATE_TEST.commit(event, toFen(), color.toString(), checkmate);
 			}
 		}
-		return true;
 	}
 	
 	/**
@@ -455,18 +1515,13 @@ public class Match {
 	 * @param color The color which is attacked
 	 */
 	public boolean[][] getAttackedPositions(Color color) {
-		boolean[][] ret = new boolean[board.getRows()][board.getColumns()];
-		List<Piece> opponentPieces = piecesOnBoard.stream().filter(x -> x.getColor() == opponent(color)).collect(Collectors.toList());
-		for (Piece p : opponentPieces) {
-			boolean[][] mat;
-			mat = p.positionsAttacked();
-			for (int i = 0; i < board.getRows(); i++) {
-				for (int j = 0; j < board.getColumns(); j++) {
-					ret[i][j] = ret[i][j] || mat[i][j];
-				}
+		long attacked = 0;
+		for (Piece p : piecesOnBoard) {
+			if (p.getColor() != color) {
+				attacked |= p.attacks();
 			}
 		}
-		return ret;
+		return Attacks.toMatrix(attacked);
 	}
 	
 	/**
@@ -479,6 +1534,8 @@ public class Match {
 	 * @TODO wip
 	 */
 	public boolean testMove(Position from, Position to, Color color) {
+		Metrics.count(Metrics.Counter.TEST_MOVE);
+		Metrics.count(Metrics.Counter.MAKE_MOVE);
 		Piece p = board.removePiece(from);
 		p.increaseMoveCount();
 		Piece capturedPiece = board.removePiece(to);
@@ -541,6 +1598,137 @@ public class Match {
 		piecesOnBoard.add(piece);
 	}
 	
+	/**
+	 * Initialize the board from a position in Forsyth-Edwards Notation
+	 * @param fen The position in FEN
+	 */
+	private void initBoard(String fen) {
+		String[] fields = fen.trim().split("\\s+");
+		if (fields.length < 2) {
+			throw new ChessException("Invalid FEN: " + fen);
+		}
+		
+		String[] rows = fields[0].split("/");
+		if (rows.length != board.getRows()) {
+			throw new ChessException("Invalid FEN: " + fen);
+		}
+		for (int i = 0; i < rows.length; i++) {
+			int j = 0;
+			for (char c : rows[i].toCharArray()) {
+				if (c >= '1' && c <= '8') {
+					j += c - '0';
+					continue;
+				}
+				Piece p = newPiece(String.valueOf(Character.toUpperCase(c)), Character.isUpperCase(c) ? Color.WHITE : Color.BLACK);
+				if (p == null || j >= board.getColumns()) {
+					throw new ChessException("Invalid FEN: " + fen);
+				}
+				board.placePiece(p, new Position(i, j));
+				piecesOnBoard.add(p);
+				j++;
+			}
+			if (j != board.getColumns()) {
+				throw new ChessException("Invalid FEN: " + fen);
+			}
+		}
+		
+		if (fields[1].equals("w")) {
+			currentPlayer = Color.WHITE;
+		}
+		else if (fields[1].equals("b")) {
+			currentPlayer = Color.BLACK;
+		}
+		else {
+			throw new ChessException("Invalid FEN: " + fen);
+		}
+		
+		initMoveCounts(fields.length > 2 ? fields[2] : "-");
+		
+		String enPassant = fields.length > 3 ? fields[3] : "-";
+		if (!enPassant.equals("-")) {
+			if (enPassant.length() != 2) {
+				throw new ChessException("Invalid FEN: " + fen);
+			}
+			Position target = new Position(enPassant.charAt(0), enPassant.charAt(1) - '0');
+			int row = (currentPlayer == Color.WHITE) ? target.getRow() + 1 : target.getRow() - 1;
+			if (row < 0 || row >= board.getRows() || target.getColumn() < 0 || target.getColumn() >= board.getColumns()) {
+				throw new ChessException("Invalid FEN: " + fen);
+			}
+			Piece p = board.piece(row, target.getColumn());
+			if (p instanceof Pawn && p.getColor() != currentPlayer) {
+				enPassantVulnerable = p;
+			}
+		}
+		
+		try {
+			halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+			int fullmove = fields.length > 5 ? Integer.parseInt(fields[5]) : 1;
+			turn = 2 * Math.max(fullmove, 1) - 1 + (currentPlayer == Color.BLACK ? 1 : 0);
+		}
+		catch (NumberFormatException e) {
+			throw new ChessException("Invalid FEN: " + fen);
+		}
+		
+		king(Color.WHITE);
+		king(Color.BLACK);
+	}
+	
+	/**
+	 * Initialize the board from a compact match
+	 * @param compact The compact match
+	 */
+	private void initBoard(CompactMatch compact) {
+		for (int i = 0; i < board.getRows(); i++) {
+			for (int j = 0; j < board.getColumns(); j++) {
+				PieceType type = compact.pieceType(i, j);
+				if (type != null) {
+					Piece p = newPiece(type.getLetter(), compact.pieceColor(i, j));
+					board.placePiece(p, new Position(i, j));
+					piecesOnBoard.add(p);
+				}
+			}
+		}
+		currentPlayer = compact.getCurrentPlayer();
+		turn = compact.getTurn();
+		halfmoveClock = compact.getHalfmoveClock();
+		check = compact.getCheck();
+		checkmate = compact.getCheckmate();
+		initMoveCounts(compact.getCastling());
+		if (compact.getEnPassantColumn() >= 0) {
+			int row = (currentPlayer == Color.WHITE) ? 3 : 4;
+			enPassantVulnerable = board.piece(row, compact.getEnPassantColumn());
+		}
+	}
+	
+	/**
+	 * Set the move counts of the pieces, pieces which can't castle any more
+	 * or pawns which left their initial row count as moved
+	 * @param castling The castling rights in FEN, such as "KQkq" or "-"
+	 */
+	private void initMoveCounts(String castling) {
+		for (Piece p : piecesOnBoard) {
+			int row = p.getPosition().getRow();
+			int column = p.getPosition().getColumn();
+			int homeRow = (p.getColor() == Color.WHITE) ? 7 : 0;
+			String kingside = (p.getColor() == Color.WHITE) ? "K" : "k";
+			String queenside = (p.getColor() == Color.WHITE) ? "Q" : "q";
+			boolean unmoved;
+			if (p instanceof King) {
+				unmoved = row == homeRow && column == 4 && (castling.contains(kingside) || castling.contains(queenside));
+			}
+			else if (p instanceof Rook) {
+				unmoved = row == homeRow && ((column == 7 && castling.contains(kingside)) || (column == 0 && castling.contains(queenside)));
+			}
+			else if (p instanceof Pawn) {
+				unmoved = row == ((p.getColor() == Color.WHITE) ? 6 : 1);
+			}
+			else {
+				unmoved = true;
+			}
+			p.setMoveCount(unmoved ? 0 : 1);
+		}
+	}
+	
 	/**
 	 * Initialize the board
 	 */
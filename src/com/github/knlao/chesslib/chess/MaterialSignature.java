@@ -0,0 +1,118 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * The material signature of a position: how many pawns, knights, bishops, rooks and queens each player has,
+ * packed in a long with 4 bits a count, the counts of white in bits 0-19 and of black in bits 20-39,
+ * each in the order of the piece types. It is written as "KRPvKR", white first
+ * @author kimilao
+ * @version 1.0
+ */
+public final class MaterialSignature {
+
+	/**
+	 * The letters of the counted types, in the order of the piece types
+	 */
+	private static final String LETTERS = "PNBRQ";
+
+	private MaterialSignature() {
+	}
+
+	/**
+	 * Get the signature of a position
+	 * @param match The position
+	 * @return The signature
+	 */
+	public static long of(Match match) {
+		long signature = 0;
+		for (int square = 0; square < 64; square++) {
+			Piece p = match.piece(square / 8, square % 8);
+			if (p == null) {
+				continue;
+			}
+			int type = PieceType.of(p).ordinal();
+			if (type < LETTERS.length()) {
+				int shift = ((p.getColor() == Color.WHITE) ? 0 : 20) + type * 4;
+				// more than 15 pieces of a type can't be reached, the count stops there
+				if (((signature >>> shift) & 0xF) < 0xF) {
+					signature += 1L << shift;
+				}
+			}
+		}
+		return signature;
+	}
+
+	/**
+	 * Read a signature such as "KRPvKR", "KRP vs KR" or "R+P vs R", white first; the kings can be left out
+	 * @param s The signature
+	 * @return The signature
+	 */
+	public static long parse(String s) {
+		String text = s.trim().toUpperCase();
+		int split = text.indexOf('V');
+		if (split < 0) {
+			throw new ChessException("Invalid material signature: " + s);
+		}
+		String black = text.substring(split + 1);
+		if (black.startsWith("S")) {
+			black = black.substring(1);
+		}
+		return side(text.substring(0, split), s) | side(black, s) << 20;
+	}
+
+	/**
+	 * Swap the material of white and black
+	 * @param signature The signature
+	 * @return The signature with the colors swapped
+	 */
+	public static long flip(long signature) {
+		return (signature >>> 20) | (signature & 0xFFFFF) << 20;
+	}
+
+	/**
+	 * Write a signature such as "KRPvKR", the pieces of a player from the queen to the pawns
+	 * @param signature The signature
+	 * @return The signature in text
+	 */
+	public static String toString(long signature) {
+		return side(signature & 0xFFFFF) + "v" + side(signature >>> 20);
+	}
+
+	/**
+	 * Read the material of a player
+	 * @param side The pieces, such as "KRP" or "R+P"
+	 * @param s The whole signature, for the error message
+	 * @return The counts of the player
+	 */
+	private static long side(String side, String s) {
+		long counts = 0;
+		for (char c : side.toCharArray()) {
+			int type = LETTERS.indexOf(c);
+			if (type >= 0) {
+				if (((counts >>> (type * 4)) & 0xF) == 0xF) {
+					throw new ChessException("Invalid material signature: " + s);
+				}
+				counts += 1L << (type * 4);
+			}
+			else if (c != 'K' && c != '+' && c != ' ' && c != '-') {
+				throw new ChessException("Invalid material signature: " + s);
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Write the material of a player
+	 * @param counts The counts of the player
+	 * @return The pieces, such as "KRP"
+	 */
+	private static String side(long counts) {
+		StringBuilder sb = new StringBuilder("K");
+		for (int type = LETTERS.length() - 1; type >= 0; type--) {
+			for (long n = (counts >>> (type * 4)) & 0xF; n > 0; n--) {
+				sb.append(LETTERS.charAt(type));
+			}
+		}
+		return sb.toString();
+	}
+
+}
@@ -0,0 +1,161 @@
+package com.github.knlao.chesslib.chess;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms of the rules engine, disabled by default.
+ * When disabled every probe is a single read of a flag; enable them with setEnabled
+ * or the system property chesslib.metrics=true.
+ * Latencies are recorded without locks into a {@link HistogramRecorder} a timer, whose fixed stripes are merged on read
+ * @author kimilao
+ * @version 1.0
+ */
+public final class Metrics {
+
+	/**
+	 * The counted operations
+	 */
+	public enum Counter {
+		TEST_MOVE, MAKE_MOVE, UNDO_MOVE, TEST_CHECK, GENERATED_MOVES
+	}
+
+	/**
+	 * The timed operations
+	 */
+	public enum Timer {
+		PERFORM_CHESS_MOVE, POSSIBLE_MOVES, CHECKMATE
+	}
+
+	/**
+	 * <b>true</b>: The probes record<br>
+	 * <b>false</b>: The probes do nothing
+	 */
+	private static volatile boolean enabled = Boolean.getBoolean("chesslib.metrics");
+
+	/**
+	 * The counters, indexed by the ordinal of the counter
+	 */
+	private static final LongAdder[] COUNTERS = new LongAdder[Counter.values().length];
+
+	/**
+	 * The histograms, indexed by the ordinal of the timer
+	 */
+	private static final HistogramRecorder[] TIMERS = new HistogramRecorder[Timer.values().length];
+
+	static {
+		for (int i = 0; i < COUNTERS.length; i++) {
+			COUNTERS[i] = new LongAdder();
+		}
+		for (int i = 0; i < TIMERS.length; i++) {
+			TIMERS[i] = new HistogramRecorder();
+		}
+	}
+
+	private Metrics() {
+	}
+
+	/**
+	 * Get if the probes record
+	 * @return <b>true</b>: The probes record<br>
+	 *         <b>false</b>: The probes do nothing
+	 */
+	public static boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enable or disable the probes
+	 * @param enabled <b>true</b>: The probes record<br>
+	 *                <b>false</b>: The probes do nothing
+	 */
+	public static void setEnabled(boolean enabled) {
+		Metrics.enabled = enabled;
+	}
+
+	/**
+	 * Count an operation
+	 * @param counter The counter
+	 */
+	static void count(Counter counter) {
+		if (enabled) {
+			COUNTERS[counter.ordinal()].increment();
+		}
+	}
+
+	/**
+	 * Count many operations
+	 * @param counter The counter
+	 * @param n How many
+	 */
+	static void count(Counter counter, long n) {
+		if (enabled) {
+			COUNTERS[counter.ordinal()].add(n);
+		}
+	}
+
+	/**
+	 * Start timing an operation
+	 * @return The start in nanoseconds, 0 if the probes are disabled
+	 */
+	static long start() {
+		return enabled ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Stop timing an operation and record its latency
+	 * @param timer The timer
+	 * @param start The start returned by start
+	 */
+	static void stop(Timer timer, long start) {
+		if (start == 0) {
+			return;
+		}
+		TIMERS[timer.ordinal()].record(System.nanoTime() - start);
+	}
+
+	/**
+	 * Get the count of an operation
+	 * @param counter The counter
+	 * @return The count since the start or the last reset
+	 */
+	public static long getCount(Counter counter) {
+		return COUNTERS[counter.ordinal()].sum();
+	}
+
+	/**
+	 * Get the latencies of an operation, the histograms of every thread merged
+	 * @param timer The timer
+	 * @return The snapshot of the latencies since the start or the last reset
+	 */
+	public static Histogram getHistogram(Timer timer) {
+		return TIMERS[timer.ordinal()].snapshot();
+	}
+
+	/**
+	 * Clear the counters and the histograms, a value recorded at the same time may be lost
+	 */
+	public static void reset() {
+		for (LongAdder counter : COUNTERS) {
+			counter.reset();
+		}
+		for (HistogramRecorder timer : TIMERS) {
+			timer.reset();
+		}
+	}
+
+	/**
+	 * Describe every counter and histogram, one a line
+	 * @return The report
+	 */
+	public static String report() {
+		StringBuilder sb = new StringBuilder();
+		for (Counter counter : Counter.values()) {
+			sb.append(String.format("%-18s %d%n", counter, getCount(counter)));
+		}
+		for (Timer timer : Timer.values()) {
+			sb.append(String.format("%-18s %s%n", timer, getHistogram(timer)));
+		}
+		return sb.toString();
+	}
+
+}
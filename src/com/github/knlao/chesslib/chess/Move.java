@@ -0,0 +1,156 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * A chess move from a source position to a target position
+ * @author kimilao
+ * @version 1.0
+ */
+public class Move {
+
+	/**
+	 * The source position
+	 */
+	private final Position source;
+
+	/**
+	 * The target position
+	 */
+	private final Position target;
+
+	/**
+	 * The type of the piece for promotion (B/N/R/Q), null if it is not a promotion
+	 */
+	private final String promotion;
+
+	/**
+	 * Construct a move
+	 * @param source The source position
+	 * @param target The target position
+	 */
+	public Move(Position source, Position target) {
+		this(source, target, null);
+	}
+
+	/**
+	 * Construct a move with promotion
+	 * @param source The source position
+	 * @param target The target position
+	 * @param promotion The type of the piece for promotion (B/N/R/Q), null if it is not a promotion
+	 */
+	public Move(Position source, Position target, String promotion) {
+		this.source = source;
+		this.target = target;
+		this.promotion = promotion;
+	}
+
+	/**
+	 * Read a move in long algebraic notation, such as "e2e4" or "e7e8q"
+	 * @param s The move in long algebraic notation
+	 * @return The move
+	 */
+	public static Move fromNotation(String s) {
+		if (s == null || (s.length() != 4 && s.length() != 5)) {
+			throw new ChessException("Invalid move notation: " + s);
+		}
+		Position source = new Position(s.charAt(0), s.charAt(1) - '0');
+		Position target = new Position(s.charAt(2), s.charAt(3) - '0');
+		if (!validPosition(source) || !validPosition(target)) {
+			throw new ChessException("Invalid move notation: " + s);
+		}
+		String promotion = null;
+		if (s.length() == 5) {
+			promotion = String.valueOf(s.charAt(4)).toUpperCase();
+			if (!promotion.equals("B") && !promotion.equals("N") && !promotion.equals("R") && !promotion.equals("Q")) {
+				throw new ChessException("Invalid move notation: " + s);
+			}
+		}
+		return new Move(source, target, promotion);
+	}
+
+	/**
+	 * Check if the position is on the board
+	 * @param position The position
+	 * @return <b>true</b>: The position is on the board<br>
+	 *         <b>false</b>: The position is not on the board
+	 */
+	private static boolean validPosition(Position position) {
+		return position.getRow() >= 0 && position.getRow() < 8 && position.getColumn() >= 0 && position.getColumn() < 8;
+	}
+
+	/**
+	 * Get the source position
+	 * @return The source position
+	 */
+	public Position getSource() {
+		return source;
+	}
+
+	/**
+	 * Get the target position
+	 * @return The target position
+	 */
+	public Position getTarget() {
+		return target;
+	}
+
+	/**
+	 * Get the type of the piece for promotion
+	 * @return <b>String</b>: The type of the piece (B/N/R/Q)<br>
+	 *         <b>null</b>: It is not a promotion
+	 */
+	public String getPromotion() {
+		return promotion;
+	}
+
+	/**
+	 * Pack the move into 15 bits: bits 0-5 the source square, bits 6-11 the target square (row * 8 + column,
+	 * row 0 is rank 8) and bits 12-14 the ordinal of the promotion type plus 1, 0 for none.
+	 * The journals, indexes and records which keep moves use this form
+	 * @return The packed move, not 0 since the source and the target differ
+	 */
+	public int pack() {
+		int promotion = (this.promotion == null) ? 0 : PieceType.of(this.promotion.charAt(0)).ordinal() + 1;
+		return (source.getRow() * 8 + source.getColumn()) | (target.getRow() * 8 + target.getColumn()) << 6 | promotion << 12;
+	}
+
+	/**
+	 * Unpack a move packed by {@link #pack()}
+	 * @param packed The packed move
+	 * @return The move
+	 */
+	public static Move unpack(int packed) {
+		int source = packed & 63;
+		int target = (packed >>> 6) & 63;
+		int promotion = (packed >>> 12) & 7;
+		return new Move(new Position(source / 8, source % 8), new Position(target / 8, target % 8),
+				(promotion == 0) ? null : PieceType.values()[promotion - 1].getLetter());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Move)) {
+			return false;
+		}
+		Move other = (Move) obj;
+		return source.getRow() == other.source.getRow() && source.getColumn() == other.source.getColumn()
+				&& target.getRow() == other.target.getRow() && target.getColumn() == other.target.getColumn()
+				&& (promotion == null ? other.promotion == null : promotion.equals(other.promotion));
+	}
+
+	@Override
+	public int hashCode() {
+		int h = ((source.getRow() * 8 + source.getColumn()) << 6) | (target.getRow() * 8 + target.getColumn());
+		return promotion == null ? h : h * 31 + promotion.hashCode();
+	}
+
+	/**
+	 * Get the move in long algebraic notation, such as "e2e4" or "e7e8q"
+	 */
+	@Override
+	public String toString() {
+		String s = "" + (char)('a' + source.getColumn()) + (8 - source.getRow())
+				+ (char)('a' + target.getColumn()) + (8 - target.getRow());
+		return promotion == null ? s : s + promotion.toLowerCase();
+	}
+
+}
@@ -0,0 +1,17 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * The listener of the moves of a game as it is parsed
+ * @author kimilao
+ * @version 1.0
+ */
+public interface MoveListener {
+
+	/**
+	 * Called for each move before it is performed
+	 * @param match The match at the position the move is played from, not to be changed
+	 * @param move The move
+	 */
+	void movePlayed(Match match, Move move);
+
+}
@@ -0,0 +1,39 @@
+package com.github.knlao.chesslib.chess;
+
+/**
+ * The result of an attempt to perform a chess move
+ * @author kimilao
+ * @version 1.0
+ */
+public enum MoveStatus {
+	OK("OK"),
+	OFF_BOARD("Position is not on the board"),
+	GAME_OVER("The match is over"),
+	NO_PIECE("There is no piece on source position"),
+	NOT_YOUR_PIECE("The chosen piece is not yours"),
+	NO_POSSIBLE_MOVES("There is no possible moves for the chosen piece"),
+	ILLEGAL_TARGET("The chosen piece can't move to target position"),
+	SELF_CHECK("You can't put yourself in check");
+
+	/**
+	 * The message of the status
+	 */
+	private final String message;
+
+	/**
+	 * Construct a status
+	 * @param message The message of the status
+	 */
+	MoveStatus(String message) {
+		this.message = message;
+	}
+
+	/**
+	 * Get the message of the status
+	 * @return The message
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+}
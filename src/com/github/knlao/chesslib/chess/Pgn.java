@@ -0,0 +1,412 @@
+package com.github.knlao.chesslib.chess;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A game in Portable Game Notation: the tags, the start position, the moves and the result
+ * @author kimilao
+ * @version 1.0
+ */
+public class Pgn {
+
+	/**
+	 * The start position of a match in FEN
+	 */
+	private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	/**
+	 * The tags of the Seven Tag Roster, written first and in this order
+	 */
+	private static final String[] ROSTER = { "Event", "Site", "Date", "Round", "White", "Black", "Result" };
+
+	/**
+	 * The tags by name, in the order they are set
+	 */
+	private final Map<String, String> tags = new LinkedHashMap<>();
+
+	/**
+	 * The start position in FEN, null for the start of a match
+	 */
+	private final String fen;
+
+	/**
+	 * The moves
+	 */
+	private final List<Move> moves = new ArrayList<>();
+
+	/**
+	 * Construct a game from the start of a match
+	 */
+	public Pgn() {
+		this(null);
+	}
+
+	/**
+	 * Construct a game from a position
+	 * @param fen The start position in FEN, null for the start of a match
+	 */
+	public Pgn(String fen) {
+		this.fen = fen;
+		setResult("*");
+	}
+
+	/**
+	 * Get the start position
+	 * @return The start position in FEN, null for the start of a match
+	 */
+	public String getFen() {
+		return fen;
+	}
+
+	/**
+	 * Get a tag
+	 * @param name The name of the tag
+	 * @return <b>String</b>: The value of the tag<br>
+	 *         <b>null</b>: The tag is not set
+	 */
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+
+	/**
+	 * Set a tag
+	 * @param name The name of the tag
+	 * @param value The value of the tag
+	 */
+	public void setTag(String name, String value) {
+		tags.put(name, value);
+	}
+
+	/**
+	 * Get the result
+	 * @return The result: "1-0", "0-1", "1/2-1/2" or "*"
+	 */
+	public String getResult() {
+		return tags.get("Result");
+	}
+
+	/**
+	 * Set the result
+	 * @param result The result: "1-0", "0-1", "1/2-1/2" or "*"
+	 */
+	public void setResult(String result) {
+		tags.put("Result", result);
+	}
+
+	/**
+	 * Add a move
+	 * @param move The move
+	 */
+	public void addMove(Move move) {
+		moves.add(move);
+	}
+
+	/**
+	 * Get the moves
+	 * @return The moves, the first move first
+	 */
+	public List<Move> getMoves() {
+		return Collections.unmodifiableList(moves);
+	}
+
+	/**
+	 * Read the next game of an archive in PGN
+	 * @param reader The archive
+	 * @return <b>Pgn</b>: The game<br>
+	 *         <b>null</b>: There is no game left
+	 * @throws IOException If the archive can't be read
+	 */
+	public static Pgn read(BufferedReader reader) throws IOException {
+		String text = readGame(reader);
+		return (text == null) ? null : parse(text);
+	}
+
+	/**
+	 * Read the text of the next game of an archive in PGN without parsing it,
+	 * so the games can be parsed on other threads
+	 * @param reader The archive
+	 * @return <b>String</b>: The text of the game<br>
+	 *         <b>null</b>: There is no game left
+	 * @throws IOException If the archive can't be read
+	 */
+	public static String readGame(BufferedReader reader) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		boolean movetext = false;
+		boolean comment = false;
+		while (true) {
+			// a tag after the movetext starts the next game, so the line is read again
+			reader.mark(1 << 16);
+			String line = reader.readLine();
+			if (line == null) {
+				break;
+			}
+			String trimmed = line.trim();
+			if (trimmed.startsWith("%")) {
+				continue;
+			}
+			if (trimmed.startsWith("[") && !comment) {
+				if (movetext) {
+					reader.reset();
+					break;
+				}
+			}
+			else if (!trimmed.isEmpty()) {
+				movetext = true;
+				for (int i = 0; i < trimmed.length(); i++) {
+					char c = trimmed.charAt(i);
+					if (c == '{') {
+						comment = true;
+					}
+					else if (c == '}') {
+						comment = false;
+					}
+					else if (c == ';' && !comment) {
+						break;
+					}
+				}
+			}
+			if (!trimmed.isEmpty() || sb.length() > 0) {
+				sb.append(line).append('\n');
+			}
+		}
+		return (sb.length() == 0) ? null : sb.toString();
+	}
+
+	/**
+	 * Parse a game in PGN: the tags, then the moves in Standard Algebraic Notation.
+	 * Comments, variations, numeric annotations and move numbers are skipped
+	 * @param text The game
+	 * @return The game
+	 */
+	public static Pgn parse(String text) {
+		Match match = new Match();
+		match.setLazyStatus(true);
+		return parse(text, match, Integer.MAX_VALUE, null);
+	}
+
+	/**
+	 * Parse a game in PGN on a match, which is set to the start of the game and performs the moves,
+	 * so a caller which needs the positions of the game doesn't replay it again
+	 * @param text The game
+	 * @param match The match, left at the position after the last move parsed
+	 * @param maxPlies How many moves are parsed at most, the movetext after them isn't read
+	 *                 and the result is only that of the tags
+	 * @param listener Called with each position before its move is performed, can be null
+	 * @return The game with the moves parsed
+	 */
+	public static Pgn parse(String text, Match match, int maxPlies, MoveListener listener) {
+		int i = 0;
+		int length = text.length();
+		Map<String, String> tags = new LinkedHashMap<>();
+		while (true) {
+			while (i < length && Character.isWhitespace(text.charAt(i))) {
+				i++;
+			}
+			if (i >= length || text.charAt(i) != '[') {
+				break;
+			}
+			int end = text.indexOf('\n', i);
+			if (end < 0) {
+				end = length;
+			}
+			parseTag(text.substring(i, end), tags);
+			i = end;
+		}
+
+		Pgn pgn = new Pgn("1".equals(tags.get("SetUp")) || tags.containsKey("FEN") ? tags.get("FEN") : null);
+		pgn.tags.putAll(tags);
+		match.setPosition((pgn.fen == null) ? START_FEN : pgn.fen);
+		int variations = 0;
+		String termination = null;
+		while (i < length && pgn.moves.size() < maxPlies) {
+			char c = text.charAt(i);
+			if (Character.isWhitespace(c)) {
+				i++;
+			}
+			else if (c == '{') {
+				int end = text.indexOf('}', i);
+				i = (end < 0) ? length : end + 1;
+			}
+			else if (c == ';') {
+				int end = text.indexOf('\n', i);
+				i = (end < 0) ? length : end + 1;
+			}
+			else if (c == '(') {
+				variations++;
+				i++;
+			}
+			else if (c == ')') {
+				variations--;
+				i++;
+			}
+			else {
+				int start = i;
+				while (i < length && !Character.isWhitespace(text.charAt(i)) && "{;()".indexOf(text.charAt(i)) < 0) {
+					i++;
+				}
+				String token = text.substring(start, i);
+				if (variations > 0 || token.startsWith("$")) {
+					continue;
+				}
+				if (token.equals("1-0") || token.equals("0-1") || token.equals("1/2-1/2") || token.equals("*")) {
+					termination = token;
+					break;
+				}
+				// a move number such as "12." or "12...", or one stuck to its move such as "12...Nf6"
+				int digits = 0;
+				while (digits < token.length() && Character.isDigit(token.charAt(digits))) {
+					digits++;
+				}
+				int dots = digits;
+				while (dots < token.length() && token.charAt(dots) == '.') {
+					dots++;
+				}
+				if (digits > 0 && dots > digits) {
+					token = token.substring(dots);
+				}
+				if (token.isEmpty()) {
+					continue;
+				}
+				Move move = match.parseSan(token);
+				if (listener != null) {
+					listener.movePlayed(match, move);
+				}
+				match.performChessMove(move);
+				pgn.moves.add(move);
+			}
+		}
+		if (!tags.containsKey("Result") && termination != null) {
+			pgn.setResult(termination);
+		}
+		return pgn;
+	}
+
+	/**
+	 * Build the match at the start of the game
+	 * @return The match
+	 */
+	public Match startMatch() {
+		return (fen == null) ? new Match() : new Match(fen);
+	}
+
+	/**
+	 * Build the match at the end of the game
+	 * @return The match
+	 */
+	public Match toMatch() {
+		Match match = startMatch();
+		for (Move move : moves) {
+			match.performChessMove(move);
+		}
+		return match;
+	}
+
+	/**
+	 * Write the game in PGN, the moves in Standard Algebraic Notation
+	 * and the lines of the movetext no longer than 80 characters
+	 * @return The game in PGN
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (String name : ROSTER) {
+			appendTag(sb, name, tags.containsKey(name) ? tags.get(name) : "?");
+		}
+		if (fen != null) {
+			appendTag(sb, "SetUp", "1");
+			appendTag(sb, "FEN", fen);
+		}
+		for (Map.Entry<String, String> tag : tags.entrySet()) {
+			if (!isRoster(tag.getKey()) && !tag.getKey().equals("SetUp") && !tag.getKey().equals("FEN")) {
+				appendTag(sb, tag.getKey(), tag.getValue());
+			}
+		}
+		sb.append('\n');
+
+		Match match = startMatch();
+		List<String> tokens = new ArrayList<>();
+		for (int i = 0; i < moves.size(); i++) {
+			int number = (match.getTurn() + 1) / 2;
+			if (match.getCurrentPlayer() == Color.WHITE) {
+				tokens.add(number + ".");
+			}
+			else if (i == 0) {
+				tokens.add(number + "...");
+			}
+			tokens.add(match.toSan(moves.get(i)));
+			match.performChessMove(moves.get(i));
+		}
+		tokens.add(getResult());
+
+		int lineLength = 0;
+		for (String token : tokens) {
+			if (lineLength > 0 && lineLength + 1 + token.length() > 80) {
+				sb.append('\n');
+				lineLength = 0;
+			}
+			if (lineLength > 0) {
+				sb.append(' ');
+				lineLength++;
+			}
+			sb.append(token);
+			lineLength += token.length();
+		}
+		return sb.append('\n').toString();
+	}
+
+	/**
+	 * Write a tag pair
+	 * @param sb The output
+	 * @param name The name of the tag
+	 * @param value The value of the tag
+	 */
+	private static void appendTag(StringBuilder sb, String name, String value) {
+		sb.append('[').append(name).append(" \"")
+			.append(value.replace("\\", "\\\\").replace("\"", "\\\"")).append("\"]\n");
+	}
+
+	/**
+	 * Parse a tag pair such as [Event "Casual game"]
+	 * @param line The tag pair
+	 * @param tags The tags, the pair is added to them
+	 */
+	private static void parseTag(String line, Map<String, String> tags) {
+		int quote = line.indexOf('"');
+		int close = line.lastIndexOf('"');
+		if (quote < 0 || close <= quote) {
+			throw new ChessException("Invalid PGN tag: " + line);
+		}
+		String name = line.substring(1, quote).trim();
+		StringBuilder value = new StringBuilder();
+		for (int i = quote + 1; i < close; i++) {
+			char c = line.charAt(i);
+			if (c == '\\' && i + 1 < close) {
+				c = line.charAt(++i);
+			}
+			value.append(c);
+		}
+		tags.put(name, value.toString());
+	}
+
+	/**
+	 * Check if a tag is in the Seven Tag Roster
+	 * @param name The name of the tag
+	 * @return <b>true</b>: The tag is in the roster<br>
+	 *         <b>false</b>: The tag is not in the roster
+	 */
+	private static boolean isRoster(String name) {
+		for (String s : ROSTER) {
+			if (s.equals(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
@@ -77,6 +77,14 @@ public abstract class Piece {
 		moveCount--;
 	}
 	
+	/**
+	 * Set how many times it has moved
+	 * @param moveCount The new move count
+	 */
+	protected void setMoveCount(int moveCount) {
+		this.moveCount = moveCount;
+	}
+	
 	/**
 	 * Get the current position of the piece
 	 * @return The position of the piece
@@ -104,6 +112,33 @@ public abstract class Piece {
 		return p != null && p.getColor() != color;
 	}
 	
+	/**
+	 * Get the square of the piece
+	 * @return The square (row * 8 + column)
+	 */
+	protected int square() {
+		return position.getRow() * 8 + position.getColumn();
+	}
+	
+	/**
+	 * Keep the targets which don't leave the king in check
+	 * @param targets The bitboard of the targets (bit row * 8 + column)
+	 * @param match The match of chess
+	 * @return The possible moves in a 2d-array form
+	 */
+	protected boolean[][] possibleMoves(long targets, Match match) {
+		boolean[][] mat = new boolean[board.getRows()][board.getColumns()];
+		while (targets != 0) {
+			int square = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			Position target = new Position(square / 8, square % 8);
+			if (match.testMove(getPosition(), target, color)) {
+				mat[target.getRow()][target.getColumn()] = true;
+			}
+		}
+		return mat;
+	}
+	
 	/**
 	 * Get a list of positions guarded by the piece in a 2d-array form,
 	 * the 2d-array is like a board and each row and column has a corresponding position,
@@ -112,6 +147,14 @@ public abstract class Piece {
 	 */
 	public abstract boolean[][] positionsAttacked();
 	
+	/**
+	 * Get the positions guarded by the piece as a bitboard
+	 * @return The bitboard of the guarded positions (bit row * 8 + column)
+	 */
+	public long attacks() {
+		return LegalMoveSet.mask(positionsAttacked());
+	}
+	
 	/**
 	 * Get a list of possible moves from the piece in a 2d-array form,
 	 * the 2d-array is like a board and each row and column has a corresponding position,
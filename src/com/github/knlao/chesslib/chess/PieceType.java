@@ -0,0 +1,74 @@
+package com.github.knlao.chesslib.chess;
+
+import com.github.knlao.chesslib.chess.pieces.Bishop;
+import com.github.knlao.chesslib.chess.pieces.King;
+import com.github.knlao.chesslib.chess.pieces.Knight;
+import com.github.knlao.chesslib.chess.pieces.Pawn;
+import com.github.knlao.chesslib.chess.pieces.Queen;
+import com.github.knlao.chesslib.chess.pieces.Rook;
+
+/**
+ * The types of pieces, shared by every match instead of a piece object per square
+ * @author kimilao
+ * @version 1.0
+ */
+public enum PieceType {
+	PAWN("P"),
+	KNIGHT("N"),
+	BISHOP("B"),
+	ROOK("R"),
+	QUEEN("Q"),
+	KING("K");
+
+	/**
+	 * The letter of the type
+	 */
+	private final String letter;
+
+	/**
+	 * Construct a type of piece
+	 * @param letter The letter of the type
+	 */
+	PieceType(String letter) {
+		this.letter = letter;
+	}
+
+	/**
+	 * Get the letter of the type, as printed by the pieces
+	 * @return The letter
+	 */
+	public String getLetter() {
+		return letter;
+	}
+
+	/**
+	 * Get the type of a piece
+	 * @param piece The piece
+	 * @return The type of the piece
+	 */
+	public static PieceType of(Piece piece) {
+		if (piece instanceof Pawn) return PAWN;
+		if (piece instanceof Knight) return KNIGHT;
+		if (piece instanceof Bishop) return BISHOP;
+		if (piece instanceof Queen) return QUEEN;
+		if (piece instanceof King) return KING;
+		if (piece instanceof Rook) return ROOK;
+		throw new ChessException("Unknown type of piece " + piece);
+	}
+
+	/**
+	 * Get the type of a letter
+	 * @param letter The letter of the type, upper or lower case
+	 * @return <b>PieceType</b>: The type<br>
+	 *         <b>null</b>: There is no type with the letter
+	 */
+	public static PieceType of(char letter) {
+		for (PieceType type : values()) {
+			if (type.letter.charAt(0) == Character.toUpperCase(letter)) {
+				return type;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,330 @@
+package com.github.knlao.chesslib.chess;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A set of the hash keys of positions with the count of each key, off the heap so it can hold hundreds of millions of keys.
+ * The slots are open-addressed with linear probing, each a key and its count in 16 bytes,
+ * in segments of direct memory or of a memory-mapped file; a mapped set is saved by {@link #close()} and opened again by
+ * {@link #open(File, long)}. The capacity is fixed when the set is built, so the expected count of keys must be known.
+ * The set isn't safe for several threads, like a match
+ * @author kimilao
+ * @version 1.0
+ */
+public class PositionSet implements Closeable {
+
+	/**
+	 * The visitor of the keys of a set
+	 */
+	public interface Visitor {
+
+		/**
+		 * Visit a key
+		 * @param key The hash key of the position
+		 * @param count How many times the key was added
+		 */
+		void visit(long key, long count);
+
+	}
+
+	/**
+	 * The first bytes of a file of a set
+	 */
+	private static final long MAGIC = 0x315445534E4F5043L;
+
+	/**
+	 * The size of the header of a file: magic, slots, size, total and the count of key 0
+	 */
+	private static final int HEADER = 64;
+
+	/**
+	 * The size of a slot in bytes
+	 */
+	private static final int SLOT_SIZE = 16;
+
+	/**
+	 * The most slots of a segment, a buffer can't be larger than 2 GB
+	 */
+	private static final int SEGMENT_SLOTS = 1 << 26;
+
+	/**
+	 * The share of the slots which can be used
+	 */
+	private static final double MAX_LOAD = 0.75;
+
+	/**
+	 * The segments of the slots
+	 */
+	private final ByteBuffer[] segments;
+
+	/**
+	 * How many bits of the hash choose a slot
+	 */
+	private final int bits;
+
+	/**
+	 * How many slots there are
+	 */
+	private final long slots;
+
+	/**
+	 * How many keys there are
+	 */
+	private long size;
+
+	/**
+	 * How many times keys were added
+	 */
+	private long total;
+
+	/**
+	 * How many times key 0 was added, an empty slot holds key 0
+	 */
+	private long zeroCount;
+
+	/**
+	 * The file of a mapped set, null for a set in direct memory
+	 */
+	private final RandomAccessFile file;
+
+	/**
+	 * The header of the file of a mapped set
+	 */
+	private final MappedByteBuffer header;
+
+	/**
+	 * Construct a set in direct memory
+	 * @param expected How many keys the set will hold
+	 */
+	public PositionSet(long expected) {
+		bits = bits(expected);
+		slots = 1L << bits;
+		segments = new ByteBuffer[(int) ((slots + SEGMENT_SLOTS - 1) / SEGMENT_SLOTS)];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = ByteBuffer.allocateDirect((int) Math.min(slots, SEGMENT_SLOTS) * SLOT_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		file = null;
+		header = null;
+	}
+
+	/**
+	 * Construct a set mapped from a file
+	 * @param file The file
+	 * @param header The header of the file
+	 * @param slots How many slots there are
+	 * @throws IOException If the file can't be mapped
+	 */
+	private PositionSet(RandomAccessFile file, MappedByteBuffer header, long slots) throws IOException {
+		this.file = file;
+		this.header = header;
+		this.slots = slots;
+		bits = Long.numberOfTrailingZeros(slots);
+		segments = new ByteBuffer[(int) ((slots + SEGMENT_SLOTS - 1) / SEGMENT_SLOTS)];
+		long bytes = Math.min(slots, SEGMENT_SLOTS) * SLOT_SIZE;
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = file.getChannel().map(FileChannel.MapMode.READ_WRITE, HEADER + i * bytes, bytes).order(ByteOrder.LITTLE_ENDIAN);
+		}
+		size = header.getLong(16);
+		total = header.getLong(24);
+		zeroCount = header.getLong(32);
+	}
+
+	/**
+	 * Open the set of a file, or build it in a new file
+	 * @param file The file
+	 * @param expected How many keys a new set will hold, a set which is opened keeps its capacity
+	 * @return The set
+	 * @throws IOException If the file can't be mapped or isn't a set
+	 */
+	public static PositionSet open(File file, long expected) throws IOException {
+		boolean exists = file.exists() && file.length() > 0;
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			long slots;
+			if (exists) {
+				if (raf.length() < HEADER) {
+					throw new IOException("Not a position set: " + file);
+				}
+				MappedByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+				header.order(ByteOrder.LITTLE_ENDIAN);
+				slots = header.getLong(8);
+				if (header.getLong(0) != MAGIC || Long.bitCount(slots) != 1 || raf.length() != HEADER + slots * SLOT_SIZE) {
+					throw new IOException("Not a position set: " + file);
+				}
+				return new PositionSet(raf, header, slots);
+			}
+			slots = 1L << bits(expected);
+			// the file is sparse, the slots read as zeros until they are written
+			raf.setLength(HEADER + slots * SLOT_SIZE);
+			MappedByteBuffer header = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+			header.order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(0, MAGIC);
+			header.putLong(8, slots);
+			return new PositionSet(raf, header, slots);
+		}
+		catch (IOException | RuntimeException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Add a key, or count it again
+	 * @param key The hash key of the position
+	 * @return <b>true</b>: The key is new<br>
+	 *         <b>false</b>: The key was already in the set
+	 */
+	public boolean add(long key) {
+		total++;
+		if (key == 0) {
+			if (zeroCount++ > 0) {
+				return false;
+			}
+			size++;
+			return true;
+		}
+		long slot = key * 0x9E3779B97F4A7C15L >>> (64 - bits);
+		while (true) {
+			ByteBuffer segment = segments[(int) (slot / SEGMENT_SLOTS)];
+			int offset = (int) (slot % SEGMENT_SLOTS) * SLOT_SIZE;
+			long k = segment.getLong(offset);
+			if (k == key) {
+				segment.putLong(offset + 8, segment.getLong(offset + 8) + 1);
+				return false;
+			}
+			if (k == 0) {
+				if (size + 1 > slots * MAX_LOAD) {
+					total--;
+					throw new ChessException("The position set is full: " + size + " keys");
+				}
+				segment.putLong(offset, key);
+				segment.putLong(offset + 8, 1);
+				size++;
+				return true;
+			}
+			slot = (slot + 1) & (slots - 1);
+		}
+	}
+
+	/**
+	 * Get how many times a key was added
+	 * @param key The hash key of the position
+	 * @return The count, 0 if the key is not in the set
+	 */
+	public long count(long key) {
+		if (key == 0) {
+			return zeroCount;
+		}
+		long slot = key * 0x9E3779B97F4A7C15L >>> (64 - bits);
+		while (true) {
+			ByteBuffer segment = segments[(int) (slot / SEGMENT_SLOTS)];
+			int offset = (int) (slot % SEGMENT_SLOTS) * SLOT_SIZE;
+			long k = segment.getLong(offset);
+			if (k == key) {
+				return segment.getLong(offset + 8);
+			}
+			if (k == 0) {
+				return 0;
+			}
+			slot = (slot + 1) & (slots - 1);
+		}
+	}
+
+	/**
+	 * Check if a key is in the set
+	 * @param key The hash key of the position
+	 * @return <b>true</b>: The key is in the set<br>
+	 *         <b>false</b>: The key is not in the set
+	 */
+	public boolean contains(long key) {
+		return count(key) > 0;
+	}
+
+	/**
+	 * Get how many keys there are
+	 * @return The count of unique positions
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * Get how many times keys were added
+	 * @return The count of positions, the repeated ones included
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Get how many keys the set can hold
+	 * @return The capacity
+	 */
+	public long getCapacity() {
+		return (long) (slots * MAX_LOAD);
+	}
+
+	/**
+	 * Visit every key in the order of the slots
+	 * @param visitor The visitor
+	 */
+	public void forEach(Visitor visitor) {
+		if (zeroCount > 0) {
+			visitor.visit(0, zeroCount);
+		}
+		for (ByteBuffer segment : segments) {
+			for (int offset = 0; offset < segment.capacity(); offset += SLOT_SIZE) {
+				long k = segment.getLong(offset);
+				if (k != 0) {
+					visitor.visit(k, segment.getLong(offset + 8));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the counts of a mapped set to its file
+	 */
+	public void force() {
+		if (header == null) {
+			return;
+		}
+		header.putLong(16, size);
+		header.putLong(24, total);
+		header.putLong(32, zeroCount);
+		for (ByteBuffer segment : segments) {
+			((MappedByteBuffer) segment).force();
+		}
+		header.force();
+	}
+
+	/**
+	 * Save a mapped set to its file and close the file, a set in direct memory is left to the garbage collector
+	 * @throws IOException If the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		if (file != null) {
+			force();
+			file.close();
+		}
+	}
+
+	/**
+	 * Get how many bits choose a slot for the expected count of keys
+	 * @param expected How many keys the set will hold
+	 * @return The bits, at least 4
+	 */
+	private static int bits(long expected) {
+		long needed = (long) Math.ceil(Math.max(expected, 1) / MAX_LOAD);
+		return Math.max(4, 64 - Long.numberOfLeadingZeros(needed - 1));
+	}
+
+}
@@ -0,0 +1,267 @@
+package com.github.knlao.chesslib.chess;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * An index from 64-bit keys, such as material signatures or placement keys, to sorted lists of game ids, read from a memory-mapped file.
+ * The index is built by a {@link PostingIndexBuilder}. It has a header with the id the next games are numbered from, the lists of ids compressed as variable-length deltas
+ * (7 bits a byte, the first id as it is) and a directory sorted by key, each entry the key, the offset of its list,
+ * the count of ids and the last id. The index is safe for several threads
+ * @author kimilao
+ * @version 1.0
+ */
+public class PostingIndex implements Closeable {
+
+	/**
+	 * The first bytes of an index
+	 */
+	static final long MAGIC = 0x504F5354494E4732L;
+
+	/**
+	 * The size of the header: magic, keys, the offset of the directory and the next id
+	 */
+	static final int HEADER = 32;
+
+	/**
+	 * The size of an entry of the directory: key, offset, count and last id, big-endian
+	 */
+	static final int ENTRY_SIZE = 24;
+
+	/**
+	 * How many bytes a segment of the lists has, a buffer can't be larger than 2 GB
+	 */
+	private static final int SEGMENT_BYTES = 1 << 30;
+
+	/**
+	 * How many entries a segment of the directory has
+	 */
+	private static final int SEGMENT_ENTRIES = 1 << 26;
+
+	/**
+	 * The file of the index
+	 */
+	private final RandomAccessFile file;
+
+	/**
+	 * The segments of the lists
+	 */
+	private final ByteBuffer[] lists;
+
+	/**
+	 * The segments of the directory
+	 */
+	private final ByteBuffer[] directory;
+
+	/**
+	 * How many keys there are
+	 */
+	private final long keys;
+
+	/**
+	 * The id the next games are numbered from
+	 */
+	private final long nextId;
+
+	/**
+	 * Open an index
+	 * @param index The file of the index
+	 * @throws IOException If the file can't be mapped or isn't an index
+	 */
+	public PostingIndex(File index) throws IOException {
+		file = new RandomAccessFile(index, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+			keys = header.getLong(8);
+			long directoryOffset = header.getLong(16);
+			nextId = header.getLong(24);
+			if (header.getLong(0) != MAGIC || directoryOffset < HEADER || file.length() != directoryOffset + keys * ENTRY_SIZE) {
+				throw new IOException("Not a posting index: " + index);
+			}
+
+			long bytes = directoryOffset - HEADER;
+			lists = new ByteBuffer[(int) ((bytes + SEGMENT_BYTES - 1) / SEGMENT_BYTES)];
+			for (int i = 0; i < lists.length; i++) {
+				long first = (long) i * SEGMENT_BYTES;
+				lists[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first, Math.min(SEGMENT_BYTES, bytes - first));
+			}
+			directory = new ByteBuffer[(int) ((keys + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES)];
+			for (int i = 0; i < directory.length; i++) {
+				long first = (long) i * SEGMENT_ENTRIES;
+				directory[i] = channel.map(FileChannel.MapMode.READ_ONLY, directoryOffset + first * ENTRY_SIZE,
+						Math.min(SEGMENT_ENTRIES, keys - first) * ENTRY_SIZE);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get how many keys there are
+	 * @return The count of keys
+	 */
+	public long size() {
+		return keys;
+	}
+
+	/**
+	 * Get the id the next games are numbered from, above every id of the index
+	 * @return The next id
+	 */
+	public long getNextId() {
+		return nextId;
+	}
+
+	/**
+	 * Get how many ids a key has
+	 * @param key The key
+	 * @return The count of ids, 0 if the key is not in the index
+	 */
+	public int count(long key) {
+		long entry = find(key);
+		return (entry < 0) ? 0 : entryBuffer(entry).getInt(entryOffset(entry) + 16);
+	}
+
+	/**
+	 * Get the ids of a key
+	 * @param key The key
+	 * @return The ids in ascending order, empty if the key is not in the index
+	 */
+	public int[] get(long key) {
+		long entry = find(key);
+		if (entry < 0) {
+			return new int[0];
+		}
+		ByteBuffer buffer = entryBuffer(entry);
+		int offset = entryOffset(entry);
+		long position = buffer.getLong(offset + 8);
+		int[] ids = new int[buffer.getInt(offset + 16)];
+		int id = 0;
+		for (int i = 0; i < ids.length; i++) {
+			int delta = 0;
+			for (int shift = 0;; shift += 7) {
+				int b = lists[(int) (position / SEGMENT_BYTES)].get((int) (position % SEGMENT_BYTES));
+				position++;
+				delta |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0) {
+					break;
+				}
+			}
+			id += delta;
+			ids[i] = id;
+		}
+		return ids;
+	}
+
+	/**
+	 * Get the ids in both of two sorted lists
+	 * @param a The first list
+	 * @param b The second list
+	 * @return The ids in both lists, in ascending order
+	 */
+	public static int[] intersect(int[] a, int[] b) {
+		int[] result = new int[Math.min(a.length, b.length)];
+		int n = 0;
+		for (int i = 0, j = 0; i < a.length && j < b.length;) {
+			if (a[i] < b[j]) {
+				i++;
+			}
+			else if (a[i] > b[j]) {
+				j++;
+			}
+			else {
+				result[n++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Get the ids in either of two sorted lists
+	 * @param a The first list
+	 * @param b The second list
+	 * @return The ids in either list, in ascending order
+	 */
+	public static int[] union(int[] a, int[] b) {
+		int[] result = new int[a.length + b.length];
+		int n = 0;
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			if (j == b.length || (i < a.length && a[i] < b[j])) {
+				result[n++] = a[i++];
+			}
+			else if (i == a.length || b[j] < a[i]) {
+				result[n++] = b[j++];
+			}
+			else {
+				result[n++] = a[i++];
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	/**
+	 * Close the file, the mapping stays until it is collected
+	 * @throws IOException If the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Find the entry of a key in the directory
+	 * @param key The key
+	 * @return <b>long</b>: The index of the entry<br>
+	 *         <b>-1</b>: The key is not in the index
+	 */
+	private long find(long key) {
+		long low = 0;
+		long high = keys - 1;
+		while (low <= high) {
+			long middle = (low + high) >>> 1;
+			long k = entryBuffer(middle).getLong(entryOffset(middle));
+			if (k < key) {
+				low = middle + 1;
+			}
+			else if (k > key) {
+				high = middle - 1;
+			}
+			else {
+				return middle;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the segment of the directory holding an entry
+	 * @param entry The index of the entry
+	 * @return The segment
+	 */
+	private ByteBuffer entryBuffer(long entry) {
+		return directory[(int) (entry / SEGMENT_ENTRIES)];
+	}
+
+	/**
+	 * Get the offset of an entry in its segment
+	 * @param entry The index of the entry
+	 * @return The offset in bytes
+	 */
+	private static int entryOffset(long entry) {
+		return (int) (entry % SEGMENT_ENTRIES) * ENTRY_SIZE;
+	}
+
+}
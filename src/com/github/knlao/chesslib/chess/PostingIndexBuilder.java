@@ -0,0 +1,448 @@
+package com.github.knlao.chesslib.chess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A builder of a {@link PostingIndex}. The ids of each key are compressed in the memory as they are added;
+ * when the lists take too much memory they are sorted by key and written to a run file. {@link #build()} merges
+ * the runs with the index which is already there into a new index and replaces it. The ids must be added in
+ * ascending order and from the next id of the index, so the lists of a key in the index and the runs are joined
+ * one after another and only the first delta of each part is written again
+ * @author kimilao
+ * @version 1.0
+ */
+public class PostingIndexBuilder {
+
+	/**
+	 * About how many bytes the map and a list take besides the ids
+	 */
+	private static final int OVERHEAD = 96;
+
+	/**
+	 * The ids of a key
+	 */
+	private static class Postings {
+
+		/**
+		 * The ids as variable-length deltas
+		 */
+		byte[] bytes = new byte[8];
+
+		/**
+		 * How many of the bytes are used
+		 */
+		int length;
+
+		/**
+		 * How many ids there are
+		 */
+		int count;
+
+		/**
+		 * The last id
+		 */
+		int last;
+
+	}
+
+	/**
+	 * A sorted file of lists being merged, the index or a run
+	 */
+	private static class Source {
+
+		/**
+		 * The keys, counts and last ids, each followed by the bytes of the list in a run
+		 */
+		final DataInputStream in;
+
+		/**
+		 * The bytes of the lists of the index, the same stream as {@link #in} for a run
+		 */
+		final DataInputStream lists;
+
+		/**
+		 * The rank of the source, the lower holds the lower ids
+		 */
+		final int rank;
+
+		/**
+		 * How many lists are left to read
+		 */
+		long left;
+
+		/**
+		 * The key of the list read last
+		 */
+		long key;
+
+		/**
+		 * How many ids the list read last has
+		 */
+		int count;
+
+		/**
+		 * The last id of the list read last
+		 */
+		int last;
+
+		/**
+		 * Construct a source
+		 * @param in The keys, counts and last ids
+		 * @param lists The bytes of the lists
+		 * @param count How many lists there are
+		 * @param rank The rank of the source, the lower holds the lower ids
+		 */
+		Source(DataInputStream in, DataInputStream lists, long count, int rank) {
+			this.in = in;
+			this.lists = lists;
+			this.left = count;
+			this.rank = rank;
+		}
+
+		/**
+		 * Read the next list but its bytes
+		 * @return <b>true</b>: A list was read<br>
+		 *         <b>false</b>: There is no list left
+		 * @throws IOException If the list can't be read
+		 */
+		boolean next() throws IOException {
+			if (left == 0) {
+				return false;
+			}
+			left--;
+			try {
+				key = in.readLong();
+				if (in != lists) {
+					// an entry of the directory holds the offset, the lists are read in order so it is not needed
+					in.readLong();
+				}
+				count = in.readInt();
+				last = in.readInt();
+			}
+			catch (EOFException e) {
+				throw new IOException("The index or a run is cut short", e);
+			}
+			return true;
+		}
+
+		/**
+		 * Copy the bytes of the list read last after the ids written before
+		 * @param out The output
+		 * @param previous The last id written before of the same key, -1 for none
+		 * @return How many bytes were written
+		 * @throws IOException If the list can't be read or written
+		 * @throws ChessException If the first id isn't above the id written before
+		 */
+		long copyTo(DataOutputStream out, int previous) throws IOException {
+			try {
+				int first = 0;
+				for (int shift = 0;; shift += 7) {
+					int b = lists.readUnsignedByte();
+					first |= (b & 0x7F) << shift;
+					if ((b & 0x80) == 0) {
+						break;
+					}
+				}
+				if (first <= previous) {
+					throw new ChessException("The ids of a key must be added in ascending order and above the ids of the index");
+				}
+				long written = writeVarInt(out, (previous < 0) ? first : first - previous);
+				// the other deltas stay as they are, the last byte of each has the high bit clear
+				for (int deltas = count - 1; deltas > 0; written++) {
+					int b = lists.readUnsignedByte();
+					out.write(b);
+					if ((b & 0x80) == 0) {
+						deltas--;
+					}
+				}
+				return written;
+			}
+			catch (EOFException e) {
+				throw new IOException("The index or a run is cut short", e);
+			}
+		}
+
+	}
+
+	/**
+	 * The file of the index
+	 */
+	private final File index;
+
+	/**
+	 * About how many bytes the lists in the memory take before they are written to a run
+	 */
+	private final long maxBytes;
+
+	/**
+	 * The lists in the memory
+	 */
+	private final Map<Long, Postings> postings = new HashMap<>();
+
+	/**
+	 * About how many bytes the lists in the memory take
+	 */
+	private long bytes;
+
+	/**
+	 * The run files
+	 */
+	private final List<File> runs = new ArrayList<>();
+
+	/**
+	 * The lowest id added, {@link Integer#MAX_VALUE} for none
+	 */
+	private int lowest = Integer.MAX_VALUE;
+
+	/**
+	 * The highest id added, -1 for none
+	 */
+	private int highest = -1;
+
+	/**
+	 * Construct a builder
+	 * @param index The file of the index, the ids are added to it if it is there
+	 * @param maxBytes About how many bytes the lists in the memory take before they are written to a run
+	 */
+	public PostingIndexBuilder(File index, long maxBytes) {
+		this.index = index;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Add an id to the list of a key
+	 * @param key The key
+	 * @param id The id, not less than the ids added before to the key and not less than the next id of the index
+	 * @throws IOException If a run can't be written
+	 */
+	public void add(long key, int id) throws IOException {
+		Postings p = postings.get(key);
+		if (p == null) {
+			p = new Postings();
+			postings.put(key, p);
+			bytes += OVERHEAD + p.bytes.length;
+		}
+		else if (id == p.last) {
+			return;
+		}
+		else if (id < p.last) {
+			throw new ChessException("The ids of a key must be added in ascending order");
+		}
+		if (p.length + 5 > p.bytes.length) {
+			bytes += p.bytes.length;
+			p.bytes = Arrays.copyOf(p.bytes, p.bytes.length * 2);
+		}
+		int delta = (p.count == 0) ? id : id - p.last;
+		while ((delta & ~0x7F) != 0) {
+			p.bytes[p.length++] = (byte) ((delta & 0x7F) | 0x80);
+			delta >>>= 7;
+		}
+		p.bytes[p.length++] = (byte) delta;
+		p.count++;
+		p.last = id;
+		lowest = Math.min(lowest, id);
+		highest = Math.max(highest, id);
+		if (bytes >= maxBytes) {
+			spill();
+		}
+	}
+
+	/**
+	 * Merge the runs and the lists in the memory with the index into a new index, which replaces the index
+	 * @param nextId The id the next games are numbered from, above every id added; the ids of games without keys
+	 *               are counted too, so the next build doesn't number games with them again
+	 * @return How many keys the new index has
+	 * @throws IOException If the index can't be read or written
+	 * @throws ChessException If the ids aren't in ascending order or the next id is below an id
+	 */
+	public long build(long nextId) throws IOException {
+		if (nextId <= highest) {
+			throw new ChessException("The next id must be above the ids added");
+		}
+		spill();
+		List<Source> sources = new ArrayList<>();
+		File temporary = new File(index.getPath() + ".tmp");
+		File directory = new File(index.getPath() + ".dir");
+		long keys = 0;
+		long offset = 0;
+		boolean built = false;
+		try {
+			if (index.exists()) {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index), 1 << 16));
+				long count;
+				long directoryOffset;
+				try {
+					if (in.readLong() != PostingIndex.MAGIC) {
+						throw new IOException("Not a posting index: " + index);
+					}
+					count = in.readLong();
+					directoryOffset = in.readLong();
+					long oldNextId = in.readLong();
+					if (lowest < oldNextId || nextId < oldNextId) {
+						throw new ChessException("The ids must not be below the next id of the index");
+					}
+					skipFully(in, directoryOffset - PostingIndex.HEADER);
+				}
+				catch (IOException | RuntimeException e) {
+					in.close();
+					throw e;
+				}
+				DataInputStream lists = new DataInputStream(new BufferedInputStream(new FileInputStream(index), 1 << 16));
+				sources.add(new Source(in, lists, count, 0));
+				skipFully(lists, PostingIndex.HEADER);
+			}
+			for (File run : runs) {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+				sources.add(new Source(in, in, in.readLong(), sources.size() + 1));
+			}
+
+			// the index and the runs are in the order of their ids, which joins the lists of a key in order
+			PriorityQueue<Source> queue = new PriorityQueue<>((a, b) -> (a.key != b.key)
+					? Long.compare(a.key, b.key) : Integer.compare(a.rank, b.rank));
+			for (Source source : sources) {
+				if (source.next()) {
+					queue.add(source);
+				}
+			}
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16));
+					DataOutputStream dir = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(directory), 1 << 16))) {
+				// the header is written again when the counts are known
+				out.write(new byte[PostingIndex.HEADER]);
+				while (!queue.isEmpty()) {
+					Source source = queue.poll();
+					long key = source.key;
+					long start = offset;
+					int count = 0;
+					int last = -1;
+					while (true) {
+						offset += source.copyTo(out, last);
+						count += source.count;
+						last = source.last;
+						if (source.next()) {
+							queue.add(source);
+						}
+						if (queue.isEmpty() || queue.peek().key != key) {
+							break;
+						}
+						source = queue.poll();
+					}
+					dir.writeLong(key);
+					dir.writeLong(start);
+					dir.writeInt(count);
+					dir.writeInt(last);
+					keys++;
+				}
+			}
+			try (RandomAccessFile out = new RandomAccessFile(temporary, "rw");
+					FileInputStream in = new FileInputStream(directory)) {
+				out.writeLong(PostingIndex.MAGIC);
+				out.writeLong(keys);
+				out.writeLong(PostingIndex.HEADER + offset);
+				out.writeLong(nextId);
+				out.getChannel().transferFrom(in.getChannel(), PostingIndex.HEADER + offset, keys * PostingIndex.ENTRY_SIZE);
+			}
+			built = true;
+		}
+		finally {
+			for (Source source : sources) {
+				source.in.close();
+				source.lists.close();
+			}
+			directory.delete();
+			if (!built) {
+				// a failed build leaves the index as it was
+				temporary.delete();
+			}
+		}
+		Files.move(temporary.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		for (File run : runs) {
+			run.delete();
+		}
+		runs.clear();
+		lowest = Integer.MAX_VALUE;
+		highest = -1;
+		return keys;
+	}
+
+	/**
+	 * Write the lists in the memory to a run sorted by key
+	 * @throws IOException If the run can't be written
+	 */
+	private void spill() throws IOException {
+		if (postings.isEmpty()) {
+			return;
+		}
+		long[] keys = new long[postings.size()];
+		int n = 0;
+		for (long key : postings.keySet()) {
+			keys[n++] = key;
+		}
+		Arrays.sort(keys);
+		File run = new File(index.getPath() + ".run" + runs.size());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+			out.writeLong(keys.length);
+			for (long key : keys) {
+				Postings p = postings.get(key);
+				out.writeLong(key);
+				out.writeInt(p.count);
+				out.writeInt(p.last);
+				out.write(p.bytes, 0, p.length);
+			}
+		}
+		runs.add(run);
+		postings.clear();
+		bytes = 0;
+	}
+
+	/**
+	 * Skip bytes of an input
+	 * @param in The input
+	 * @param n How many bytes
+	 * @throws IOException If there are fewer bytes
+	 */
+	private static void skipFully(DataInputStream in, long n) throws IOException {
+		while (n > 0) {
+			long skipped = in.skip(n);
+			if (skipped <= 0) {
+				throw new IOException("The index is cut short");
+			}
+			n -= skipped;
+		}
+	}
+
+	/**
+	 * Write an id or a delta in 7 bits a byte, the lowest first
+	 * @param out The output
+	 * @param value The value, not negative
+	 * @return How many bytes were written
+	 * @throws IOException If the value can't be written
+	 */
+	private static int writeVarInt(DataOutputStream out, int value) throws IOException {
+		int n = 1;
+		while ((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+			n++;
+		}
+		out.write(value);
+		return n;
+	}
+
+}
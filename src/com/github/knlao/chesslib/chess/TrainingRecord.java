@@ -0,0 +1,198 @@
+package com.github.knlao.chesslib.chess;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A training sample in a fixed-size binary record: a position, the player to move, the result of the game
+ * and the move played from the position. A record has {@link #SIZE} bytes, the numbers in little-endian:
+ * <ul>
+ * <li>bytes 0-31: the squares (row * 8 + column, row 0 is rank 8), two per byte with the even square in the low 4 bits;
+ * 0 for an empty square, the ordinal of the piece type plus 1 for white, plus 9 for black</li>
+ * <li>byte 32: bit 0 black to move, bits 1-4 castling rights (KQkq)</li>
+ * <li>byte 33: the column of the pawn which can be taken en passant plus 1, 0 for none</li>
+ * <li>byte 34: the result, {@link #BLACK_WINS}, {@link #DRAW} or {@link #WHITE_WINS}</li>
+ * <li>byte 35: the halfmove clock, at most 255</li>
+ * <li>bytes 36-37: the move as {@link Move#pack()} packs it: bits 0-5 source square, bits 6-11 target square,
+ * bits 12-14 the ordinal of the promotion type plus 1, 0 for none</li>
+ * <li>bytes 38-39: the fullmove number, at most 65535</li>
+ * </ul>
+ * @author kimilao
+ * @version 1.0
+ */
+public final class TrainingRecord {
+
+	/**
+	 * The size of a record in bytes
+	 */
+	public static final int SIZE = 40;
+
+	/**
+	 * The result of a game black won
+	 */
+	public static final int BLACK_WINS = 0;
+
+	/**
+	 * The result of a drawn game
+	 */
+	public static final int DRAW = 1;
+
+	/**
+	 * The result of a game white won
+	 */
+	public static final int WHITE_WINS = 2;
+
+	private TrainingRecord() {
+	}
+
+	/**
+	 * Get the result of a game from its result in PGN
+	 * @param result The result: "1-0", "0-1", "1/2-1/2" or "*"
+	 * @return <b>int</b>: The result of the record<br>
+	 *         <b>-1</b>: The game has no result
+	 */
+	public static int result(String result) {
+		if ("1-0".equals(result)) return WHITE_WINS;
+		if ("0-1".equals(result)) return BLACK_WINS;
+		if ("1/2-1/2".equals(result)) return DRAW;
+		return -1;
+	}
+
+	/**
+	 * Write a record at the position of a buffer, which is moved past the record
+	 * @param match The position, before the move
+	 * @param move The move played from the position
+	 * @param result The result of the game
+	 * @param buffer The buffer
+	 */
+	public static void write(Match match, Move move, int result, ByteBuffer buffer) {
+		for (int square = 0; square < 64; square += 2) {
+			buffer.put((byte) (code(match.piece(square / 8, square % 8)) | code(match.piece(square / 8, square % 8 + 1)) << 4));
+		}
+
+		int flags = (match.getCurrentPlayer() == Color.BLACK) ? 1 : 0;
+		boolean[] rights = match.castlingRights();
+		for (int i = 0; i < rights.length; i++) {
+			if (rights[i]) {
+				flags |= 1 << (1 + i);
+			}
+		}
+		buffer.put((byte) flags);
+		Piece enPassant = match.getEnPassantVulnerable();
+		buffer.put((byte) ((enPassant == null) ? 0 : enPassant.getPosition().getColumn() + 1));
+		buffer.put((byte) result);
+		buffer.put((byte) Math.min(match.getHalfmoveClock(), 255));
+
+		int packed = move.pack();
+		buffer.put((byte) packed);
+		buffer.put((byte) (packed >>> 8));
+		int fullmove = Math.min((match.getTurn() + 1) / 2, 0xFFFF);
+		buffer.put((byte) fullmove);
+		buffer.put((byte) (fullmove >>> 8));
+	}
+
+	/**
+	 * Read the position of a record in Forsyth-Edwards Notation
+	 * @param buffer The buffer
+	 * @param offset The offset of the record
+	 * @return The position in FEN
+	 */
+	public static String toFen(ByteBuffer buffer, int offset) {
+		StringBuilder sb = new StringBuilder();
+		for (int row = 0; row < 8; row++) {
+			int empty = 0;
+			for (int column = 0; column < 8; column++) {
+				int square = row * 8 + column;
+				int code = (buffer.get(offset + square / 2) >>> ((square % 2) * 4)) & 0xF;
+				if (code == 0) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					sb.append(empty);
+					empty = 0;
+				}
+				String letter = PieceType.values()[(code & 7) - 1].getLetter();
+				sb.append((code & 8) != 0 ? letter.toLowerCase() : letter);
+			}
+			if (empty > 0) {
+				sb.append(empty);
+			}
+			if (row < 7) {
+				sb.append('/');
+			}
+		}
+
+		int flags = buffer.get(offset + 32);
+		sb.append(((flags & 1) != 0) ? " b " : " w ");
+		String castling = "";
+		for (int i = 0; i < 4; i++) {
+			if ((flags & (1 << (1 + i))) != 0) {
+				castling += "KQkq".charAt(i);
+			}
+		}
+		sb.append(castling.isEmpty() ? "-" : castling);
+		int enPassant = buffer.get(offset + 33);
+		if (enPassant == 0) {
+			sb.append(" -");
+		}
+		else {
+			sb.append(' ').append((char) ('a' + enPassant - 1)).append(((flags & 1) != 0) ? '3' : '6');
+		}
+		sb.append(' ').append(buffer.get(offset + 35) & 0xFF);
+		sb.append(' ').append(unsignedShort(buffer, offset + 38));
+		return sb.toString();
+	}
+
+	/**
+	 * Read the result of a record
+	 * @param buffer The buffer
+	 * @param offset The offset of the record
+	 * @return The result, {@link #BLACK_WINS}, {@link #DRAW} or {@link #WHITE_WINS}
+	 */
+	public static int getResult(ByteBuffer buffer, int offset) {
+		return buffer.get(offset + 34);
+	}
+
+	/**
+	 * Change the result of a record
+	 * @param buffer The buffer
+	 * @param offset The offset of the record
+	 * @param result The result, {@link #BLACK_WINS}, {@link #DRAW} or {@link #WHITE_WINS}
+	 */
+	public static void setResult(ByteBuffer buffer, int offset, int result) {
+		buffer.put(offset + 34, (byte) result);
+	}
+
+	/**
+	 * Read the move of a record
+	 * @param buffer The buffer
+	 * @param offset The offset of the record
+	 * @return The move
+	 */
+	public static Move getMove(ByteBuffer buffer, int offset) {
+		return Move.unpack(unsignedShort(buffer, offset + 36));
+	}
+
+	/**
+	 * Get the code of a piece in a record
+	 * @param piece The piece, can be null
+	 * @return The code, 0 for no piece
+	 */
+	private static int code(Piece piece) {
+		if (piece == null) {
+			return 0;
+		}
+		return (PieceType.of(piece).ordinal() + 1) | (piece.getColor() == Color.BLACK ? 8 : 0);
+	}
+
+	/**
+	 * Read an unsigned little-endian short
+	 * @param buffer The buffer
+	 * @param offset The offset of the short
+	 * @return The value
+	 */
+	private static int unsignedShort(ByteBuffer buffer, int offset) {
+		return (buffer.get(offset) & 0xFF) | (buffer.get(offset + 1) & 0xFF) << 8;
+	}
+
+}
@@ -0,0 +1,64 @@
+package com.github.knlao.chesslib.chess;
+
+import java.util.Random;
+
+/**
+ * The random keys used to hash a position
+ * @author kimilao
+ * @version 1.0
+ */
+final class Zobrist {
+
+	/**
+	 * The keys of each piece on each square, indexed by [color][type][square]
+	 */
+	static final long[][][] PIECES = new long[2][6][64];
+
+	/**
+	 * The keys of the castling rights, indexed by white kingside, white queenside, black kingside, black queenside
+	 */
+	static final long[] CASTLING = new long[4];
+
+	/**
+	 * The keys of the en passant columns
+	 */
+	static final long[] EN_PASSANT = new long[8];
+
+	/**
+	 * The key of black to move
+	 */
+	static final long BLACK_TO_MOVE;
+
+	static {
+		// a fixed seed keeps the keys stable between runs
+		Random random = new Random(0x5EED_C4E5_5L);
+		for (int c = 0; c < 2; c++) {
+			for (int t = 0; t < 6; t++) {
+				for (int sq = 0; sq < 64; sq++) {
+					PIECES[c][t][sq] = random.nextLong();
+				}
+			}
+		}
+		for (int i = 0; i < CASTLING.length; i++) {
+			CASTLING[i] = random.nextLong();
+		}
+		for (int i = 0; i < EN_PASSANT.length; i++) {
+			EN_PASSANT[i] = random.nextLong();
+		}
+		BLACK_TO_MOVE = random.nextLong();
+	}
+
+	private Zobrist() {
+	}
+
+	/**
+	 * Get the key of a piece on a square
+	 * @param piece The piece
+	 * @param square The square index (row * 8 + column)
+	 * @return The key
+	 */
+	static long piece(Piece piece, int square) {
+		return PIECES[piece.getColor().ordinal()][PieceType.of(piece).ordinal()][square];
+	}
+
+}
@@ -1,5 +1,6 @@
 package com.github.knlao.chesslib.chess.pieces;
 
+import com.github.knlao.chesslib.chess.Attacks;
 import com.github.knlao.chesslib.chess.Board;
 import com.github.knlao.chesslib.chess.Color;
 import com.github.knlao.chesslib.chess.Match;
@@ -29,17 +30,6 @@ public class King extends Piece {
 		this.match = match;
 	}
 	
-	/**
-	 * Check if the king can be in the position
-	 * @param position The position to be checked
-	 * @return <b>true</b>: The king can be in the position<br>
-	 *         <b>false</b>: The king cannot be in the position
-	 */
-	private boolean canMove(Position position) {
-		Piece p = getBoard().piece(position);
-		return p == null || p.getColor() != getColor();
-	}
-	
 	/**
 	 * Check if the rook can join the castling
 	 * @param position The position of the rook
@@ -51,115 +41,19 @@ public class King extends Piece {
 		return p != null && p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() == 0;
 	}
 	
+	@Override
+	public long attacks() {
+		return Attacks.king(square()) & ~getBoard().getOccupied(getColor());
+	}
+	
+	@Override
 	public boolean[][] positionsAttacked() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-
-		Position p = new Position(0, 0);
-		
-		p.setValues(position.getRow() - 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() + 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow(), position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow(), position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() - 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() - 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() + 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		p.setValues(position.getRow() + 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		return mat;
+		return Attacks.toMatrix(attacks());
 	}
-
+	
 	@Override
 	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		
-		Position p = new Position(0, 0);
-		
-		p.setValues(position.getRow() - 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() + 1, position.getColumn());
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow(), position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow(), position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() - 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() - 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() + 1, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		p.setValues(position.getRow() + 1, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
+		boolean[][] mat = possibleMoves(attacks(), match);
 		
 		boolean[][] attackedPositions = match.getAttackedPositions(getColor());
 
@@ -1,10 +1,10 @@
 package com.github.knlao.chesslib.chess.pieces;
 
+import com.github.knlao.chesslib.chess.Attacks;
 import com.github.knlao.chesslib.chess.Board;
 import com.github.knlao.chesslib.chess.Color;
 import com.github.knlao.chesslib.chess.Match;
 import com.github.knlao.chesslib.chess.Piece;
-import com.github.knlao.chesslib.chess.Position;
 
 /**
  * The knight
@@ -28,131 +28,19 @@ public class Knight extends Piece {
 		this.match = match;
 	}
 	
-	/**
-	 * Check if the knight can be in the position
-	 * @param position The position to be checked
-	 * @return <b>true</b>: The knight can be in the position<br>
-	 *         <b>false</b>: The knight cannot be in the position
-	 */
-	private boolean canMove(Position position) {
-		Piece p = getBoard().piece(position);
-		return p == null || p.getColor() != getColor();
+	@Override
+	public long attacks() {
+		return Attacks.knight(square()) & ~getBoard().getOccupied(getColor());
 	}
 	
 	@Override
 	public boolean[][] positionsAttacked() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-
-		Position p = new Position(0, 0);
-		
-		p.setValues(position.getRow() - 1, position.getColumn() - 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() - 2, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() - 2, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() - 1, position.getColumn() + 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() + 1, position.getColumn() + 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() + 2, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-
-		p.setValues(position.getRow() + 2, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		p.setValues(position.getRow() + 1, position.getColumn() - 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		return mat;
+		return Attacks.toMatrix(attacks());
 	}
-
+	
 	@Override
 	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		
-		Position p = new Position(0, 0);
-		
-		p.setValues(position.getRow() - 1, position.getColumn() - 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() - 2, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() - 2, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() - 1, position.getColumn() + 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() + 1, position.getColumn() + 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() + 2, position.getColumn() + 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-
-		p.setValues(position.getRow() + 2, position.getColumn() - 1);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		p.setValues(position.getRow() + 1, position.getColumn() - 2);
-		if (getBoard().positionExists(p) && canMove(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		return mat;
+		return possibleMoves(attacks(), match);
 	}
 	
 	@Override
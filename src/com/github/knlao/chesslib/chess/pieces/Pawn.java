@@ -1,5 +1,6 @@
 package com.github.knlao.chesslib.chess.pieces;
 
+import com.github.knlao.chesslib.chess.Attacks;
 import com.github.knlao.chesslib.chess.Board;
 import com.github.knlao.chesslib.chess.Color;
 import com.github.knlao.chesslib.chess.Match;
@@ -29,33 +30,14 @@ public class Pawn extends Piece {
 		this.match = match;
 	}
 	
+	@Override
+	public long attacks() {
+		return Attacks.pawn(getColor(), square());
+	}
+	
+	@Override
 	public boolean[][] positionsAttacked() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-
-		Position p = new Position(0, 0);
-		
-		if (getColor() == Color.WHITE) {
-			p.setValues(position.getRow() - 1, position.getColumn() - 1);
-			if (getBoard().positionExists(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}			
-			p.setValues(position.getRow() - 1, position.getColumn() + 1);
-			if (getBoard().positionExists(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		else {
-			p.setValues(position.getRow() + 1, position.getColumn() - 1);
-			if (getBoard().positionExists(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}			
-			p.setValues(position.getRow() + 1, position.getColumn() + 1);
-			if (getBoard().positionExists(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}		
-		}
-		
-		return mat;
+		return Attacks.toMatrix(attacks());
 	}
 
 	@Override
@@ -1,10 +1,10 @@
 package com.github.knlao.chesslib.chess.pieces;
 
+import com.github.knlao.chesslib.chess.Attacks;
 import com.github.knlao.chesslib.chess.Board;
 import com.github.knlao.chesslib.chess.Color;
 import com.github.knlao.chesslib.chess.Match;
 import com.github.knlao.chesslib.chess.Piece;
-import com.github.knlao.chesslib.chess.Position;
 
 /**
  * The rook
@@ -28,110 +28,19 @@ public class Rook extends Piece {
 		this.match = match;
 	}
 	
+	@Override
+	public long attacks() {
+		return Attacks.rook(square(), getBoard().getOccupied()) & ~getBoard().getOccupied(getColor());
+	}
+	
 	@Override
 	public boolean[][] positionsAttacked() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-
-		Position p = new Position(0, 0);
-		
-		p.setValues(position.getRow() - 1, position.getColumn());
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setRow(p.getRow() - 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		p.setValues(position.getRow(), position.getColumn() - 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setColumn(p.getColumn() - 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		p.setValues(position.getRow(), position.getColumn() + 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setColumn(p.getColumn() + 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		p.setValues(position.getRow() + 1, position.getColumn());
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setRow(p.getRow() + 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		return mat;
+		return Attacks.toMatrix(attacks());
 	}
 	
 	@Override
 	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		
-		Position p = new Position(0, 0);
-		
-		p.setValues(position.getRow() - 1, position.getColumn());
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setRow(p.getRow() - 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		p.setValues(position.getRow(), position.getColumn() - 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setColumn(p.getColumn() - 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		p.setValues(position.getRow(), position.getColumn() + 1);
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setColumn(p.getColumn() + 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		p.setValues(position.getRow() + 1, position.getColumn());
-		while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setRow(p.getRow() + 1);
-		}
-		if (getBoard().positionExists(p) && thereIsOpponentPiece(p)) {
-			if (match.testMove(getPosition(), p, getColor())) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-		}
-		
-		return mat;
+		return possibleMoves(attacks(), match);
 	}
 	
 	@Override
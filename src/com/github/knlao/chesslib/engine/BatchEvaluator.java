@@ -0,0 +1,216 @@
+package com.github.knlao.chesslib.engine;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+
+/**
+ * The scores of many positions, computed in parallel for data pipelines.
+ * Every thread keeps one match, set to each of its positions in turn, and one search with its transposition table,
+ * so a position costs no new match. The table is cleared before each search, so a score doesn't depend on the
+ * positions scored before it on the same thread. The scores come back in the order of the positions,
+ * from the view of the player to move in centipawns, the same as the static evaluation and the search
+ * @author kimilao
+ * @version 1.0
+ */
+public class BatchEvaluator {
+
+	/**
+	 * The score of a position whose FEN is invalid
+	 */
+	public static final int INVALID = Integer.MIN_VALUE;
+
+	/**
+	 * How many positions of a stream are read before they are scored
+	 */
+	private static final int BLOCK = 65536;
+
+	/**
+	 * How many tasks a batch is split into for each thread, so a slow task doesn't leave the other threads idle
+	 */
+	private static final int TASKS_PER_THREAD = 8;
+
+	/**
+	 * The most positions of a task, a task of static evaluations is much faster than a task of searches
+	 */
+	private static final int MAX_TASK = 4096;
+
+	/**
+	 * The threads
+	 */
+	private final ExecutorService executor;
+
+	/**
+	 * How many threads there are
+	 */
+	private final int threads;
+
+	/**
+	 * The match of each thread
+	 */
+	private final ThreadLocal<Match> matches;
+
+	/**
+	 * The search of each thread, built on its first search
+	 */
+	private final ThreadLocal<Search> searches;
+
+	/**
+	 * Construct a batch evaluator
+	 * @param threads How many positions are scored at the same time
+	 * @param hash The size of the transposition table of each thread in megabytes, a small table is cleared faster
+	 */
+	public BatchEvaluator(int threads, int hash) {
+		if (threads < 1) {
+			throw new ChessException("A batch evaluator needs at least 1 thread");
+		}
+		this.threads = threads;
+		executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "batch-evaluation");
+			t.setDaemon(true);
+			return t;
+		});
+		matches = ThreadLocal.withInitial(Match::new);
+		searches = ThreadLocal.withInitial(() -> new Search(new TranspositionTable(hash)));
+	}
+
+	/**
+	 * Get how many positions are scored at the same time
+	 * @return The count of threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Score positions with the static evaluation
+	 * @param fens The positions in FEN
+	 * @return The scores in the order of the positions, {@link #INVALID} for an invalid FEN
+	 */
+	public int[] evaluate(String[] fens) {
+		return evaluate(fens, null);
+	}
+
+	/**
+	 * Score positions with the static evaluation or a search
+	 * @param fens The positions in FEN
+	 * @param limits The limits of each search, a depth or a count of nodes rather than a time,
+	 *               which would make the scores depend on the load; null for the static evaluation
+	 * @return The scores in the order of the positions, {@link #INVALID} for an invalid FEN
+	 */
+	public int[] evaluate(String[] fens, SearchLimits limits) {
+		int[] scores = new int[fens.length];
+		score(fens, fens.length, limits, scores);
+		return scores;
+	}
+
+	/**
+	 * Score a stream of positions with the static evaluation or a search, a block at a time,
+	 * so the stream can be larger than the memory
+	 * @param fens The positions in FEN
+	 * @param limits The limits of each search, null for the static evaluation
+	 * @param consumer Takes the scores in the order of the positions, {@link #INVALID} for an invalid FEN
+	 * @return How many positions were scored
+	 */
+	public long evaluate(Stream<String> fens, SearchLimits limits, IntConsumer consumer) {
+		String[] block = new String[BLOCK];
+		int[] scores = new int[BLOCK];
+		long count = 0;
+		Iterator<String> it = fens.iterator();
+		while (it.hasNext()) {
+			int size = 0;
+			while (size < BLOCK && it.hasNext()) {
+				block[size++] = it.next();
+			}
+			score(block, size, limits, scores);
+			for (int i = 0; i < size; i++) {
+				consumer.accept(scores[i]);
+			}
+			count += size;
+		}
+		return count;
+	}
+
+	/**
+	 * Stop the threads
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * Score the first positions of an array, split into tasks of consecutive positions
+	 * @param fens The positions in FEN
+	 * @param size How many positions are scored
+	 * @param limits The limits of each search, null for the static evaluation
+	 * @param scores The scores, written at the index of each position
+	 */
+	private void score(String[] fens, int size, SearchLimits limits, int[] scores) {
+		if (size == 0) {
+			return;
+		}
+		int task = Math.max(1, Math.min(MAX_TASK, size / (threads * TASKS_PER_THREAD)));
+		List<Future<?>> futures = new ArrayList<>();
+		for (int start = 0; start < size; start += task) {
+			int from = start;
+			int to = Math.min(size, start + task);
+			futures.add(executor.submit(() -> score(fens, from, to, limits, scores)));
+		}
+		try {
+			for (Future<?> f : futures) {
+				f.get();
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			for (Future<?> f : futures) {
+				f.cancel(true);
+			}
+			throw new ChessException("The batch evaluation was interrupted");
+		}
+		catch (ExecutionException e) {
+			throw new ChessException("The batch evaluation failed: " + e.getCause());
+		}
+	}
+
+	/**
+	 * Score a range of positions on a pool thread
+	 * @param fens The positions in FEN
+	 * @param from The index of the first position
+	 * @param to The index after the last position
+	 * @param limits The limits of each search, null for the static evaluation
+	 * @param scores The scores, written at the index of each position
+	 */
+	private void score(String[] fens, int from, int to, SearchLimits limits, int[] scores) {
+		Match match = matches.get();
+		// the static evaluation needs no checkmate test, the search needs the status of its root
+		match.setLazyStatus(limits == null);
+		Search search = (limits == null) ? null : searches.get();
+		for (int i = from; i < to; i++) {
+			try {
+				match.setPosition(fens[i]);
+			}
+			catch (ChessException e) {
+				scores[i] = INVALID;
+				continue;
+			}
+			if (limits == null) {
+				scores[i] = Evaluation.evaluate(match);
+				continue;
+			}
+			// the entries of the positions before would make the score depend on which thread got the position
+			search.getTranspositionTable().clear();
+			scores[i] = search.think(match, limits, null).getScore();
+		}
+	}
+
+}
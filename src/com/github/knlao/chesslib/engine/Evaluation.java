@@ -0,0 +1,125 @@
+package com.github.knlao.chesslib.engine;
+
+import com.github.knlao.chesslib.chess.Color;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Piece;
+import com.github.knlao.chesslib.chess.PieceType;
+
+/**
+ * The static evaluation of a position
+ * @author kimilao
+ * @version 1.0
+ */
+public final class Evaluation {
+
+	/**
+	 * The value of each piece type in centipawns, indexed by the ordinal of the type
+	 */
+	static final int[] VALUES = { 100, 320, 330, 500, 900, 0 };
+
+	/**
+	 * The bonus of each piece type on each square for white, indexed by [type][row * 8 + column],
+	 * the rows of black are mirrored
+	 */
+	private static final int[][] SQUARES = {
+		{
+			 0,  0,  0,  0,  0,  0,  0,  0,
+			50, 50, 50, 50, 50, 50, 50, 50,
+			10, 10, 20, 30, 30, 20, 10, 10,
+			 5,  5, 10, 25, 25, 10,  5,  5,
+			 0,  0,  0, 20, 20,  0,  0,  0,
+			 5, -5,-10,  0,  0,-10, -5,  5,
+			 5, 10, 10,-20,-20, 10, 10,  5,
+			 0,  0,  0,  0,  0,  0,  0,  0
+		},
+		{
+			-50,-40,-30,-30,-30,-30,-40,-50,
+			-40,-20,  0,  0,  0,  0,-20,-40,
+			-30,  0, 10, 15, 15, 10,  0,-30,
+			-30,  5, 15, 20, 20, 15,  5,-30,
+			-30,  0, 15, 20, 20, 15,  0,-30,
+			-30,  5, 10, 15, 15, 10,  5,-30,
+			-40,-20,  0,  5,  5,  0,-20,-40,
+			-50,-40,-30,-30,-30,-30,-40,-50
+		},
+		{
+			-20,-10,-10,-10,-10,-10,-10,-20,
+			-10,  0,  0,  0,  0,  0,  0,-10,
+			-10,  0,  5, 10, 10,  5,  0,-10,
+			-10,  5,  5, 10, 10,  5,  5,-10,
+			-10,  0, 10, 10, 10, 10,  0,-10,
+			-10, 10, 10, 10, 10, 10, 10,-10,
+			-10,  5,  0,  0,  0,  0,  5,-10,
+			-20,-10,-10,-10,-10,-10,-10,-20
+		},
+		{
+			 0,  0,  0,  0,  0,  0,  0,  0,
+			 5, 10, 10, 10, 10, 10, 10,  5,
+			-5,  0,  0,  0,  0,  0,  0, -5,
+			-5,  0,  0,  0,  0,  0,  0, -5,
+			-5,  0,  0,  0,  0,  0,  0, -5,
+			-5,  0,  0,  0,  0,  0,  0, -5,
+			-5,  0,  0,  0,  0,  0,  0, -5,
+			 0,  0,  0,  5,  5,  0,  0,  0
+		},
+		{
+			-20,-10,-10, -5, -5,-10,-10,-20,
+			-10,  0,  0,  0,  0,  0,  0,-10,
+			-10,  0,  5,  5,  5,  5,  0,-10,
+			 -5,  0,  5,  5,  5,  5,  0, -5,
+			  0,  0,  5,  5,  5,  5,  0, -5,
+			-10,  5,  5,  5,  5,  5,  0,-10,
+			-10,  0,  5,  0,  0,  0,  0,-10,
+			-20,-10,-10, -5, -5,-10,-10,-20
+		},
+		{
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-30,-40,-40,-50,-50,-40,-40,-30,
+			-20,-30,-30,-40,-40,-30,-30,-20,
+			-10,-20,-20,-20,-20,-20,-20,-10,
+			 20, 20,  0,  0,  0,  0, 20, 20,
+			 20, 30, 10,  0,  0, 10, 30, 20
+		}
+	};
+
+	private Evaluation() {
+	}
+
+	/**
+	 * Evaluate the position from the view of the current player
+	 * @param match The match
+	 * @return The score in centipawns, positive if the current player is better
+	 */
+	public static int evaluate(Match match) {
+		int score = 0;
+		Piece[][] pieces = match.getPieces();
+		for (int i = 0; i < pieces.length; i++) {
+			for (int j = 0; j < pieces[i].length; j++) {
+				Piece p = pieces[i][j];
+				if (p == null) {
+					continue;
+				}
+				int type = PieceType.of(p).ordinal();
+				if (p.getColor() == Color.WHITE) {
+					score += VALUES[type] + SQUARES[type][i * 8 + j];
+				}
+				else {
+					score -= VALUES[type] + SQUARES[type][(7 - i) * 8 + j];
+				}
+			}
+		}
+		return (match.getCurrentPlayer() == Color.WHITE) ? score : -score;
+	}
+
+	/**
+	 * Get the value of a piece
+	 * @param piece The piece
+	 * @return The value in centipawns, 0 for no piece or the king
+	 */
+	public static int value(Piece piece) {
+		return piece == null ? 0 : VALUES[PieceType.of(piece).ordinal()];
+	}
+
+}
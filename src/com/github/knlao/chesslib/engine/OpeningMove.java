@@ -0,0 +1,113 @@
+package com.github.knlao.chesslib.engine;
+
+import com.github.knlao.chesslib.chess.Move;
+
+/**
+ * The statistics of a move played from a position of an opening tree
+ * @author kimilao
+ * @version 1.0
+ */
+public class OpeningMove {
+
+	/**
+	 * The move
+	 */
+	private final Move move;
+
+	/**
+	 * How many games played the move
+	 */
+	private final long games;
+
+	/**
+	 * How many of the games white won
+	 */
+	private final long whiteWins;
+
+	/**
+	 * How many of the games were drawn
+	 */
+	private final long draws;
+
+	/**
+	 * How many of the games black won
+	 */
+	private final long blackWins;
+
+	/**
+	 * The average rating of the rated games, 0 if no game is rated
+	 */
+	private final double averageRating;
+
+	/**
+	 * Construct the statistics of a move
+	 * @param move The move
+	 * @param games How many games played the move
+	 * @param whiteWins How many of the games white won
+	 * @param draws How many of the games were drawn
+	 * @param blackWins How many of the games black won
+	 * @param averageRating The average rating of the rated games, 0 if no game is rated
+	 */
+	public OpeningMove(Move move, long games, long whiteWins, long draws, long blackWins, double averageRating) {
+		this.move = move;
+		this.games = games;
+		this.whiteWins = whiteWins;
+		this.draws = draws;
+		this.blackWins = blackWins;
+		this.averageRating = averageRating;
+	}
+
+	/**
+	 * Get the move
+	 * @return The move
+	 */
+	public Move getMove() {
+		return move;
+	}
+
+	/**
+	 * Get how many games played the move
+	 * @return The count of games, the games without a result included
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Get how many of the games white won
+	 * @return The count of games
+	 */
+	public long getWhiteWins() {
+		return whiteWins;
+	}
+
+	/**
+	 * Get how many of the games were drawn
+	 * @return The count of games
+	 */
+	public long getDraws() {
+		return draws;
+	}
+
+	/**
+	 * Get how many of the games black won
+	 * @return The count of games
+	 */
+	public long getBlackWins() {
+		return blackWins;
+	}
+
+	/**
+	 * Get the average rating of the players of the games
+	 * @return The average rating, 0 if no game is rated
+	 */
+	public double getAverageRating() {
+		return averageRating;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s %d games +%d =%d -%d rating %.0f", move, games, whiteWins, draws, blackWins, averageRating);
+	}
+
+}
@@ -0,0 +1,214 @@
+package com.github.knlao.chesslib.engine;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.github.knlao.chesslib.chess.Match;
+
+/**
+ * An opening tree: the statistics of the moves played from the positions of many games, read from a memory-mapped index.
+ * The index is built by an {@link OpeningTreeBuilder}. It has a header, the entries sorted by the hash key of the position
+ * and then by the move, and the first key of every block of {@link #BLOCK} entries; the keys of the blocks are read into the heap,
+ * so a query searches the heap and then one block of the mapping. The tree is safe for several threads
+ * @author kimilao
+ * @version 1.0
+ */
+public class OpeningTree implements Closeable {
+
+	/**
+	 * The first bytes of an index
+	 */
+	static final long MAGIC = 0x4F50454E494E4732L;
+
+	/**
+	 * The size of the header: magic, entries, games, the deepest ply and the size of a block
+	 */
+	static final int HEADER = 32;
+
+	/**
+	 * The size of an entry: the key (long), the move packed by Move.pack, the games, white wins, draws,
+	 * black wins and rated games (unsigned ints) and the sum of the ratings (long), big-endian
+	 */
+	static final int ENTRY_SIZE = 40;
+
+	/**
+	 * How many entries a block has
+	 */
+	static final int BLOCK = 256;
+
+	/**
+	 * How many entries a segment of the mapping has, a buffer can't be larger than 2 GB
+	 */
+	private static final int SEGMENT_ENTRIES = 1 << 25;
+
+	/**
+	 * The file of the index
+	 */
+	private final RandomAccessFile file;
+
+	/**
+	 * The segments of the entries
+	 */
+	private final ByteBuffer[] segments;
+
+	/**
+	 * The first key of every block
+	 */
+	private final long[] blocks;
+
+	/**
+	 * How many entries there are
+	 */
+	private final long entries;
+
+	/**
+	 * How many games were added
+	 */
+	private final long games;
+
+	/**
+	 * The deepest ply of the games which was added
+	 */
+	private final int maxPly;
+
+	/**
+	 * Open the tree of an index
+	 * @param index The file of the index
+	 * @throws IOException If the file can't be mapped or isn't an index
+	 */
+	public OpeningTree(File index) throws IOException {
+		file = new RandomAccessFile(index, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+			entries = header.getLong(8);
+			games = header.getLong(16);
+			maxPly = header.getInt(24);
+			long blockCount = (entries + BLOCK - 1) / BLOCK;
+			if (header.getLong(0) != MAGIC || header.getInt(28) != BLOCK
+					|| file.length() != HEADER + entries * ENTRY_SIZE + blockCount * 8) {
+				throw new IOException("Not an opening tree: " + index);
+			}
+
+			segments = new ByteBuffer[(int) ((entries + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES)];
+			for (int i = 0; i < segments.length; i++) {
+				long first = (long) i * SEGMENT_ENTRIES;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + first * ENTRY_SIZE,
+						Math.min(SEGMENT_ENTRIES, entries - first) * ENTRY_SIZE);
+			}
+			blocks = new long[(int) blockCount];
+			LongBuffer keys = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + entries * ENTRY_SIZE, blockCount * 8).asLongBuffer();
+			keys.get(blocks);
+		}
+		catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Get how many entries there are, an entry is a move played from a position
+	 * @return The count of entries
+	 */
+	public long size() {
+		return entries;
+	}
+
+	/**
+	 * Get how many games were added
+	 * @return The count of games
+	 */
+	public long getGames() {
+		return games;
+	}
+
+	/**
+	 * Get the deepest ply of the games which was added
+	 * @return The ply
+	 */
+	public int getMaxPly() {
+		return maxPly;
+	}
+
+	/**
+	 * Get the statistics of the moves played from a position
+	 * @param match The position
+	 * @return The moves, the most played first
+	 */
+	public List<OpeningMove> moves(Match match) {
+		return moves(match.getHashKey());
+	}
+
+	/**
+	 * Get the statistics of the moves played from a position
+	 * @param key The hash key of the position
+	 * @return The moves, the most played first
+	 */
+	public List<OpeningMove> moves(long key) {
+		List<OpeningMove> moves = new ArrayList<>();
+		if (entries == 0) {
+			return moves;
+		}
+		// the last block starting before the key holds its first entry, or the entry is the first of the next block
+		int low = 0;
+		int high = blocks.length - 1;
+		while (low < high) {
+			int middle = (low + high + 1) >>> 1;
+			if (blocks[middle] < key) {
+				low = middle;
+			}
+			else {
+				high = middle - 1;
+			}
+		}
+		long first = (long) low * BLOCK;
+		long last = Math.min(entries, first + BLOCK);
+		while (first < last) {
+			long middle = (first + last) >>> 1;
+			if (key(middle) < key) {
+				first = middle + 1;
+			}
+			else {
+				last = middle;
+			}
+		}
+
+		for (long i = first; i < entries && key(i) == key; i++) {
+			ByteBuffer segment = segments[(int) (i / SEGMENT_ENTRIES)];
+			int offset = (int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE;
+			int rated = segment.getInt(offset + 28);
+			moves.add(new OpeningMove(TranspositionTable.unpackMove(segment.getInt(offset + 8)),
+					segment.getInt(offset + 12) & 0xFFFFFFFFL, segment.getInt(offset + 16) & 0xFFFFFFFFL,
+					segment.getInt(offset + 20) & 0xFFFFFFFFL, segment.getInt(offset + 24) & 0xFFFFFFFFL,
+					(rated == 0) ? 0 : (double) segment.getLong(offset + 32) / (rated & 0xFFFFFFFFL)));
+		}
+		moves.sort((a, b) -> Long.compare(b.getGames(), a.getGames()));
+		return moves;
+	}
+
+	/**
+	 * Close the file, the mapping stays until it is collected
+	 * @throws IOException If the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		file.close();
+	}
+
+	/**
+	 * Get the key of an entry
+	 * @param i The index of the entry
+	 * @return The hash key of the position
+	 */
+	private long key(long i) {
+		return segments[(int) (i / SEGMENT_ENTRIES)].getLong((int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE);
+	}
+
+}
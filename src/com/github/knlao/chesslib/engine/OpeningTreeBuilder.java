@@ -0,0 +1,473 @@
+package com.github.knlao.chesslib.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.Pgn;
+
+/**
+ * A builder of the index of an {@link OpeningTree}. The games are replayed up to a ply and every move played
+ * is counted for its position in the memory; when too many moves are counted they are sorted and written to a run file.
+ * {@link #build()} merges the runs with the index which is already there into a new index and replaces it,
+ * so new archives are added without replaying the old ones. Games can be added by several threads
+ * @author kimilao
+ * @version 1.0
+ */
+public class OpeningTreeBuilder {
+
+	/**
+	 * The start position in FEN
+	 */
+	private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+	/**
+	 * The counts of a move played from a position
+	 */
+	private static class Entry implements Comparable<Entry> {
+
+		/**
+		 * The hash key of the position
+		 */
+		final long key;
+
+		/**
+		 * The packed move
+		 */
+		final int move;
+
+		/**
+		 * How many games played the move
+		 */
+		long games;
+
+		/**
+		 * How many of the games white won
+		 */
+		long whiteWins;
+
+		/**
+		 * How many of the games were drawn
+		 */
+		long draws;
+
+		/**
+		 * How many of the games black won
+		 */
+		long blackWins;
+
+		/**
+		 * How many of the games are rated
+		 */
+		long rated;
+
+		/**
+		 * The sum of the ratings of the rated games
+		 */
+		long ratingSum;
+
+		/**
+		 * Construct the counts of a move
+		 * @param key The hash key of the position
+		 * @param move The packed move
+		 */
+		Entry(long key, int move) {
+			this.key = key;
+			this.move = move;
+		}
+
+		/**
+		 * Add the counts of the same move
+		 * @param other The counts
+		 */
+		void add(Entry other) {
+			games += other.games;
+			whiteWins += other.whiteWins;
+			draws += other.draws;
+			blackWins += other.blackWins;
+			rated += other.rated;
+			ratingSum += other.ratingSum;
+		}
+
+		@Override
+		public int compareTo(Entry other) {
+			int c = Long.compare(key, other.key);
+			return (c != 0) ? c : Integer.compare(move, other.move);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Entry && ((Entry) obj).key == key && ((Entry) obj).move == move;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(key) * 31 + move;
+		}
+
+	}
+
+	/**
+	 * A sorted file of entries being merged, the index or a run
+	 */
+	private static class Source {
+
+		/**
+		 * The entries
+		 */
+		final DataInputStream in;
+
+		/**
+		 * How many entries are left to read
+		 */
+		long left;
+
+		/**
+		 * The entry read last
+		 */
+		Entry head;
+
+		/**
+		 * Construct a source
+		 * @param in The entries
+		 * @param count How many entries there are
+		 */
+		Source(DataInputStream in, long count) {
+			this.in = in;
+			this.left = count;
+		}
+
+		/**
+		 * Read the next entry
+		 * @return <b>true</b>: An entry was read<br>
+		 *         <b>false</b>: There is no entry left
+		 * @throws IOException If the entry can't be read
+		 */
+		boolean next() throws IOException {
+			if (left == 0) {
+				head = null;
+				return false;
+			}
+			left--;
+			head = readEntry(in);
+			return true;
+		}
+
+	}
+
+	/**
+	 * The file of the index
+	 */
+	private final File index;
+
+	/**
+	 * The deepest ply which is counted
+	 */
+	private final int maxPly;
+
+	/**
+	 * How many entries are counted in the memory before they are written to a run
+	 */
+	private final int maxEntries;
+
+	/**
+	 * The entries counted in the memory
+	 */
+	private final Map<Entry, Entry> entries = new HashMap<>();
+
+	/**
+	 * The run files
+	 */
+	private final List<File> runs = new ArrayList<>();
+
+	/**
+	 * How many games were added
+	 */
+	private long games;
+
+	/**
+	 * The match of each thread, set to the start of each game
+	 */
+	private final ThreadLocal<Match> matches = ThreadLocal.withInitial(() -> {
+		Match match = new Match();
+		match.setLazyStatus(true);
+		return match;
+	});
+
+	/**
+	 * Construct a builder
+	 * @param index The file of the index, the games are added to it if it is there and counts up to the same ply
+	 * @param maxPly The deepest ply which is counted
+	 * @param maxEntries How many entries are counted in the memory before they are written to a run
+	 */
+	public OpeningTreeBuilder(File index, int maxPly, int maxEntries) {
+		this.index = index;
+		this.maxPly = maxPly;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Add a game: each move up to the deepest ply is counted for the position it was played from,
+	 * with the result of the game and the average of the ratings in the tags WhiteElo and BlackElo
+	 * @param game The game
+	 * @throws IOException If a run can't be written
+	 */
+	public void add(Pgn game) throws IOException {
+		List<Move> moves = game.getMoves();
+		int plies = Math.min(maxPly, moves.size());
+		long[] keys = new long[plies];
+		Match match = matches.get();
+		match.setPosition((game.getFen() == null) ? START_FEN : game.getFen());
+		for (int i = 0; i < plies; i++) {
+			keys[i] = match.getHashKey();
+			match.performChessMove(moves.get(i));
+		}
+		count(game, keys, plies);
+	}
+
+	/**
+	 * Add a game in PGN like {@link #add(Pgn)}, its movetext is parsed only up to the deepest ply
+	 * on a match of the caller, so the game isn't replayed again and the moves after the ply aren't read.
+	 * The result is that of the tag Result
+	 * @param text The game in PGN
+	 * @param match The match the game is parsed on, used by the calling thread only
+	 * @throws IOException If a run can't be written
+	 */
+	public void add(String text, Match match) throws IOException {
+		long[] keys = new long[maxPly];
+		int[] plies = new int[1];
+		Pgn game = Pgn.parse(text, match, maxPly, (position, move) -> keys[plies[0]++] = position.getHashKey());
+		count(game, keys, plies[0]);
+	}
+
+	/**
+	 * Count the moves of a game up to the deepest ply
+	 * @param game The game
+	 * @param keys The hash keys of the positions the moves were played from
+	 * @param plies How many moves are counted
+	 * @throws IOException If a run can't be written
+	 */
+	private void count(Pgn game, long[] keys, int plies) throws IOException {
+		List<Move> moves = game.getMoves();
+		String result = game.getResult();
+		int rating = rating(game);
+		synchronized (this) {
+			games++;
+			for (int i = 0; i < plies; i++) {
+				Entry probe = new Entry(keys[i], TranspositionTable.packMove(moves.get(i)));
+				Entry e = entries.get(probe);
+				if (e == null) {
+					e = probe;
+					entries.put(e, e);
+				}
+				e.games++;
+				if ("1-0".equals(result)) {
+					e.whiteWins++;
+				}
+				else if ("0-1".equals(result)) {
+					e.blackWins++;
+				}
+				else if ("1/2-1/2".equals(result)) {
+					e.draws++;
+				}
+				if (rating > 0) {
+					e.rated++;
+					e.ratingSum += rating;
+				}
+			}
+			if (entries.size() >= maxEntries) {
+				spill();
+			}
+		}
+	}
+
+	/**
+	 * Merge the runs and the entries in the memory with the index into a new index, which replaces the index
+	 * @return How many entries the new index has
+	 * @throws IOException If the index can't be read or written
+	 * @throws ChessException If the index counts up to another ply
+	 */
+	public synchronized long build() throws IOException {
+		spill();
+		List<Source> sources = new ArrayList<>();
+		long oldGames = 0;
+		if (index.exists()) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(index), 1 << 16));
+			if (in.readLong() != OpeningTree.MAGIC) {
+				in.close();
+				throw new IOException("Not an opening tree: " + index);
+			}
+			long count = in.readLong();
+			oldGames = in.readLong();
+			int oldPly = in.readInt();
+			in.readInt();
+			if (oldPly != maxPly) {
+				// the counts of the plies between the two would only come from some of the games
+				in.close();
+				throw new ChessException("The index counts up to ply " + oldPly + ", not " + maxPly + ": " + index);
+			}
+			sources.add(new Source(in, count));
+		}
+		for (File run : runs) {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+			sources.add(new Source(in, run.length() / OpeningTree.ENTRY_SIZE));
+		}
+
+		File temporary = new File(index.getPath() + ".tmp");
+		long count = 0;
+		List<Long> blocks = new ArrayList<>();
+		try {
+			PriorityQueue<Source> queue = new PriorityQueue<>((a, b) -> a.head.compareTo(b.head));
+			for (Source source : sources) {
+				if (source.next()) {
+					queue.add(source);
+				}
+			}
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16))) {
+				// the header is written again when the counts are known
+				out.write(new byte[OpeningTree.HEADER]);
+				while (!queue.isEmpty()) {
+					Source source = queue.poll();
+					Entry merged = source.head;
+					if (source.next()) {
+						queue.add(source);
+					}
+					while (!queue.isEmpty() && queue.peek().head.equals(merged)) {
+						Source same = queue.poll();
+						merged.add(same.head);
+						if (same.next()) {
+							queue.add(same);
+						}
+					}
+					if (count % OpeningTree.BLOCK == 0) {
+						blocks.add(merged.key);
+					}
+					writeEntry(out, merged);
+					count++;
+				}
+				for (long key : blocks) {
+					out.writeLong(key);
+				}
+			}
+			try (RandomAccessFile out = new RandomAccessFile(temporary, "rw")) {
+				out.writeLong(OpeningTree.MAGIC);
+				out.writeLong(count);
+				out.writeLong(oldGames + games);
+				out.writeInt(maxPly);
+				out.writeInt(OpeningTree.BLOCK);
+			}
+		}
+		finally {
+			for (Source source : sources) {
+				source.in.close();
+			}
+		}
+		Files.move(temporary.toPath(), index.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		for (File run : runs) {
+			run.delete();
+		}
+		runs.clear();
+		games = 0;
+		return count;
+	}
+
+	/**
+	 * Write the entries in the memory to a sorted run
+	 * @throws IOException If the run can't be written
+	 */
+	private void spill() throws IOException {
+		if (entries.isEmpty()) {
+			return;
+		}
+		List<Entry> sorted = new ArrayList<>(entries.keySet());
+		sorted.sort(null);
+		File run = new File(index.getPath() + ".run" + runs.size());
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+			for (Entry e : sorted) {
+				writeEntry(out, e);
+			}
+		}
+		runs.add(run);
+		entries.clear();
+	}
+
+	/**
+	 * Get the rating of a game
+	 * @param game The game
+	 * @return The average of the ratings of the players which have one, 0 for none
+	 */
+	private static int rating(Pgn game) {
+		int sum = 0;
+		int count = 0;
+		for (String tag : new String[] { "WhiteElo", "BlackElo" }) {
+			try {
+				int rating = Integer.parseInt(game.getTag(tag));
+				if (rating > 0) {
+					sum += rating;
+					count++;
+				}
+			}
+			catch (NumberFormatException e) {
+				// no rating, such as "-" or a missing tag
+			}
+		}
+		return (count == 0) ? 0 : sum / count;
+	}
+
+	/**
+	 * Write an entry of an index
+	 * @param out The output
+	 * @param e The entry
+	 * @throws IOException If the entry can't be written
+	 */
+	private static void writeEntry(DataOutputStream out, Entry e) throws IOException {
+		out.writeLong(e.key);
+		out.writeInt(e.move);
+		out.writeInt((int) Math.min(e.games, 0xFFFFFFFFL));
+		out.writeInt((int) Math.min(e.whiteWins, 0xFFFFFFFFL));
+		out.writeInt((int) Math.min(e.draws, 0xFFFFFFFFL));
+		out.writeInt((int) Math.min(e.blackWins, 0xFFFFFFFFL));
+		out.writeInt((int) Math.min(e.rated, 0xFFFFFFFFL));
+		out.writeLong(e.ratingSum);
+	}
+
+	/**
+	 * Read an entry of an index
+	 * @param in The input
+	 * @return The entry
+	 * @throws IOException If the entry can't be read
+	 */
+	private static Entry readEntry(DataInputStream in) throws IOException {
+		try {
+			Entry e = new Entry(in.readLong(), in.readInt());
+			e.games = in.readInt() & 0xFFFFFFFFL;
+			e.whiteWins = in.readInt() & 0xFFFFFFFFL;
+			e.draws = in.readInt() & 0xFFFFFFFFL;
+			e.blackWins = in.readInt() & 0xFFFFFFFFL;
+			e.rated = in.readInt() & 0xFFFFFFFFL;
+			e.ratingSum = in.readLong();
+			return e;
+		}
+		catch (EOFException e) {
+			throw new IOException("The index or a run is cut short", e);
+		}
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.github.knlao.chesslib.engine;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+
+/**
+ * An engine player which thinks on the opponent's time.
+ * After choosing a move it searches the position after the expected reply on the thread of the search,
+ * filling the transposition table while the opponent thinks.
+ * When its next turn comes from that position the ponder search becomes the real search and keeps its work (a ponder hit);
+ * from any other position the ponder search is stopped and a new search is started (a ponder miss)
+ * @author kimilao
+ * @version 1.0
+ */
+public class Player {
+
+	/**
+	 * The search
+	 */
+	private final Search search;
+
+	/**
+	 * If the player thinks on the opponent's time
+	 */
+	private boolean ponder = true;
+
+	/**
+	 * The hash key of the position being pondered, 0 if the player is not pondering
+	 */
+	private long ponderKey;
+
+	/**
+	 * The result of the ponder search
+	 */
+	private CompletableFuture<SearchResult> pending;
+
+	/**
+	 * How many turns started from the pondered position
+	 */
+	private long ponderHits;
+
+	/**
+	 * How many turns started from another position while pondering
+	 */
+	private long ponderMisses;
+
+	/**
+	 * Construct a player
+	 * @param search The search, used by this player only
+	 */
+	public Player(Search search) {
+		this.search = search;
+	}
+
+	/**
+	 * Get if the player thinks on the opponent's time
+	 * @return <b>true</b>: It ponders<br>
+	 *         <b>false</b>: It doesn't ponder
+	 */
+	public synchronized boolean isPonder() {
+		return ponder;
+	}
+
+	/**
+	 * Set if the player thinks on the opponent's time, used from the next move
+	 * @param ponder Ponder or not
+	 */
+	public synchronized void setPonder(boolean ponder) {
+		this.ponder = ponder;
+	}
+
+	/**
+	 * Check if the player is thinking on the opponent's time
+	 * @return <b>true</b>: It is pondering<br>
+	 *         <b>false</b>: It is not pondering
+	 */
+	public synchronized boolean isPondering() {
+		return ponderKey != 0;
+	}
+
+	/**
+	 * Get how many turns started from the pondered position
+	 * @return The count of ponder hits
+	 */
+	public synchronized long getPonderHits() {
+		return ponderHits;
+	}
+
+	/**
+	 * Get how many turns started from another position while pondering
+	 * @return The count of ponder misses
+	 */
+	public synchronized long getPonderMisses() {
+		return ponderMisses;
+	}
+
+	/**
+	 * Choose a move, then ponder on the expected reply until the next call.
+	 * The match isn't changed, the caller performs the move
+	 * @param match The match, the player is to move
+	 * @param limits The limits of the search, at least one limit is needed
+	 * @return The result of the search, its best move is the move to play
+	 */
+	public synchronized SearchResult move(Match match, SearchLimits limits) {
+		if (limits.isInfinite() || (limits.getDepth() == 0 && limits.getNodes() == 0 && limits.getMoveTime() == 0
+				&& limits.getWhiteTime() == 0 && limits.getBlackTime() == 0)) {
+			throw new ChessException("The search of a player needs a limit");
+		}
+
+		SearchResult result;
+		if (ponderKey != 0 && ponderKey == match.getHashKey()) {
+			ponderHits++;
+			ponderKey = 0;
+			// the ponder search was started with the clocks of the last move
+			search.ponderHit(limits);
+			result = pending.join();
+		}
+		else {
+			if (ponderKey != 0) {
+				ponderMisses++;
+				cancel();
+			}
+			result = start(match, limits).join();
+		}
+
+		if (ponder && result.getPonderMove() != null) {
+			Match expected = new Match(match);
+			expected.performChessMove(result.getBestMove());
+			expected.performChessMove(result.getPonderMove());
+			SearchLimits ponderLimits = new SearchLimits(limits);
+			ponderLimits.setPonder(true);
+			ponderKey = expected.getHashKey();
+			pending = start(expected, ponderLimits);
+		}
+		return result;
+	}
+
+	/**
+	 * Stop pondering, such as when the game is over
+	 */
+	public synchronized void stop() {
+		if (ponderKey != 0) {
+			cancel();
+		}
+	}
+
+	/**
+	 * Stop the ponder search and wait until its thread is finished
+	 */
+	private void cancel() {
+		ponderKey = 0;
+		search.stop();
+		search.waitFor();
+	}
+
+	/**
+	 * Start a search on the thread of the search
+	 * @param match The position
+	 * @param limits The limits of the search
+	 * @return The result of the search when it is finished
+	 */
+	private CompletableFuture<SearchResult> start(Match match, SearchLimits limits) {
+		CompletableFuture<SearchResult> future = new CompletableFuture<>();
+		search.start(match, limits, new SearchListener() {
+
+			@Override
+			public void iterationFinished(SearchResult result, int hashfull) {
+			}
+
+			@Override
+			public void searchFinished(SearchResult result) {
+				future.complete(result);
+			}
+
+		});
+		return future;
+	}
+
+}
@@ -0,0 +1,741 @@
+package com.github.knlao.chesslib.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import com.github.knlao.chesslib.chess.Color;
+import com.github.knlao.chesslib.chess.FlightEvents;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.MoveStatus;
+import com.github.knlao.chesslib.chess.Piece;
+
+/**
+ * The search for the best move of a match, an iterative deepening alpha-beta search
+ * which can run on several threads sharing one transposition table
+ * @author kimilao
+ * @version 1.0
+ */
+public class Search {
+
+	/**
+	 * The score of checkmate at the root
+	 */
+	public static final int MATE = 30000;
+
+	/**
+	 * The maximum count of moves from the root
+	 */
+	public static final int MAX_PLY = 128;
+
+	/**
+	 * A score bigger than every score
+	 */
+	private static final int INFINITY = 32000;
+
+	/**
+	 * The time kept in reserve for communication in milliseconds
+	 */
+	private static final long MOVE_OVERHEAD = 30;
+
+	/**
+	 * The shared transposition table
+	 */
+	private final TranspositionTable table;
+
+	/**
+	 * How many threads search
+	 */
+	private int threads = 1;
+
+	/**
+	 * How many best lines the search finds
+	 */
+	private int multiPv = 1;
+
+	/**
+	 * The lock to wait on while pondering or searching infinitely
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * The thread of a search started by start
+	 */
+	private Thread searchThread;
+
+	/**
+	 * If the search should stop
+	 */
+	private volatile boolean stopped;
+
+	/**
+	 * If the search is on the opponent's time
+	 */
+	private volatile boolean pondering;
+
+	/**
+	 * If the search waits for stop before finishing
+	 */
+	private volatile boolean infinite;
+
+	/**
+	 * The time when the search must stop
+	 */
+	private volatile long hardDeadline;
+
+	/**
+	 * The time after which no new iteration is started
+	 */
+	private volatile long softDeadline;
+
+	/**
+	 * The time when the search started
+	 */
+	private long startTime;
+
+	/**
+	 * The limits of the current search
+	 */
+	private volatile SearchLimits limits;
+
+	/**
+	 * The color of the player to move at the root
+	 */
+	private Color rootPlayer;
+
+	/**
+	 * How many nodes were searched by all threads
+	 */
+	private final AtomicLong nodes = new AtomicLong();
+
+	/**
+	 * Construct a search
+	 * @param table The transposition table
+	 */
+	public Search(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Get the transposition table
+	 * @return The transposition table
+	 */
+	public TranspositionTable getTranspositionTable() {
+		return table;
+	}
+
+	/**
+	 * Get how many threads search
+	 * @return The count of threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set how many threads search, used from the next search
+	 * @param threads The count of threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Get how many best lines the search finds
+	 * @return The count of lines
+	 */
+	public int getMultiPv() {
+		return multiPv;
+	}
+
+	/**
+	 * Set how many best lines the search finds, used from the next search.
+	 * Every iteration searches the root once per line, each time without the first moves of the lines found before,
+	 * so the lines share the transposition table and the iterations
+	 * @param multiPv The count of lines
+	 */
+	public void setMultiPv(int multiPv) {
+		this.multiPv = Math.max(1, multiPv);
+	}
+
+	/**
+	 * Start a search on a new thread, the listener is told the result when it finishes
+	 * @param match The match
+	 * @param limits The limits of the search
+	 * @param listener The listener
+	 */
+	public synchronized void start(Match match, SearchLimits limits, SearchListener listener) {
+		stop();
+		waitFor();
+		Match root = new Match(match);
+		prepare(root, limits);
+		searchThread = new Thread(() -> run(root, listener), "search");
+		searchThread.setDaemon(true);
+		searchThread.start();
+	}
+
+	/**
+	 * Search and wait for the result
+	 * @param match The match
+	 * @param limits The limits of the search
+	 * @param listener The listener, can be null
+	 * @return The result of the search
+	 */
+	public SearchResult think(Match match, SearchLimits limits, SearchListener listener) {
+		Match root = new Match(match);
+		prepare(root, limits);
+		return run(root, listener);
+	}
+
+	/**
+	 * Stop the search, a search started by start still tells its listener the result
+	 */
+	public void stop() {
+		synchronized (lock) {
+			stopped = true;
+			pondering = false;
+			infinite = false;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * The opponent played the expected move, the ponder search becomes a normal search
+	 * with the limits it was started with
+	 */
+	public void ponderHit() {
+		ponderHit(null);
+	}
+
+	/**
+	 * The opponent played the expected move, the ponder search becomes a normal search
+	 * @param limits The limits from now on, such as the clocks after the opponent's move, null to keep the limits
+	 */
+	public void ponderHit(SearchLimits limits) {
+		synchronized (lock) {
+			if (pondering) {
+				if (limits != null) {
+					SearchLimits current = new SearchLimits(limits);
+					current.setPonder(false);
+					this.limits = current;
+				}
+				pondering = false;
+				allocateTime(System.currentTimeMillis());
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Check if a search started by start is still running
+	 * @return <b>true</b>: It is searching<br>
+	 *         <b>false</b>: It is not searching
+	 */
+	public boolean isSearching() {
+		Thread t = searchThread;
+		return t != null && t.isAlive();
+	}
+
+	/**
+	 * Wait until a search started by start finishes
+	 */
+	public void waitFor() {
+		Thread t = searchThread;
+		if (t == null || t == Thread.currentThread()) {
+			return;
+		}
+		try {
+			t.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reset the state for a new search
+	 * @param root The root of the search
+	 * @param limits The limits of the search
+	 */
+	private void prepare(Match root, SearchLimits limits) {
+		this.limits = limits;
+		rootPlayer = root.getCurrentPlayer();
+		stopped = false;
+		pondering = limits.isPonder();
+		infinite = limits.isInfinite() || (limits.getDepth() == 0 && limits.getNodes() == 0 && limits.getMoveTime() == 0
+				&& limits.getWhiteTime() == 0 && limits.getBlackTime() == 0);
+		nodes.set(0);
+		startTime = System.currentTimeMillis();
+		allocateTime(startTime);
+	}
+
+	/**
+	 * Decide when the search stops
+	 * @param now The time when the clock of the search starts
+	 */
+	private void allocateTime(long now) {
+		hardDeadline = Long.MAX_VALUE;
+		softDeadline = Long.MAX_VALUE;
+		if (pondering || infinite) {
+			return;
+		}
+		if (limits.getMoveTime() > 0) {
+			hardDeadline = now + limits.getMoveTime();
+			softDeadline = hardDeadline;
+			return;
+		}
+		long time = (rootPlayer == Color.WHITE) ? limits.getWhiteTime() : limits.getBlackTime();
+		long increment = (rootPlayer == Color.WHITE) ? limits.getWhiteIncrement() : limits.getBlackIncrement();
+		if (time > 0) {
+			int movesToGo = (limits.getMovesToGo() > 0) ? limits.getMovesToGo() : 30;
+			long available = Math.max(1, time - MOVE_OVERHEAD);
+			long allocated = Math.min(time / movesToGo + increment * 3 / 4, available);
+			hardDeadline = now + Math.min(allocated * 3, available);
+			softDeadline = now + allocated / 2;
+		}
+	}
+
+	/**
+	 * Run the search on the current thread and the helper threads
+	 * @param root The root of the search
+	 * @param listener The listener, can be null
+	 * @return The result of the search
+	 */
+	private SearchResult run(Match root, SearchListener listener) {
+		List<Thread> helpers = new ArrayList<>();
+		for (int i = 1; i < threads; i++) {
+			Worker helper = new Worker(new Match(root), i);
+			Thread t = new Thread(() -> helper.iterate(null), "search-helper-" + i);
+			t.setDaemon(true);
+			helpers.add(t);
+			t.start();
+		}
+
+		SearchResult result = new Worker(root, 0).iterate(listener);
+
+		// a ponder or infinite search doesn't finish before it is told to
+		synchronized (lock) {
+			while ((pondering || infinite) && !stopped) {
+				try {
+					lock.wait();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+			}
+		}
+
+		stopped = true;
+		for (Thread t : helpers) {
+			try {
+				t.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (listener != null) {
+			listener.searchFinished(result);
+		}
+		return result;
+	}
+
+	/**
+	 * Get how long the search has taken
+	 * @return The time in milliseconds
+	 */
+	private long elapsed() {
+		return System.currentTimeMillis() - startTime;
+	}
+
+	/**
+	 * One thread of the search with its own copy of the match
+	 */
+	private class Worker {
+
+		/**
+		 * The root of the search
+		 */
+		private final Match root;
+
+		/**
+		 * The number of the thread, 0 is the main thread
+		 */
+		private final int id;
+
+		/**
+		 * The principal variations by ply
+		 */
+		private final Move[][] pv = new Move[MAX_PLY + 1][MAX_PLY + 1];
+
+		/**
+		 * The length of the principal variations by ply
+		 */
+		private final int[] pvLength = new int[MAX_PLY + 1];
+
+		/**
+		 * The hash keys of the positions from the root, for repetitions
+		 */
+		private final long[] keys = new long[MAX_PLY + 1];
+
+		/**
+		 * The root moves left out of the search, the first moves of the lines already found
+		 */
+		private final List<Move> excluded = new ArrayList<>();
+
+		/**
+		 * Construct a worker
+		 * @param root The root of the search
+		 * @param id The number of the thread
+		 */
+		Worker(Match root, int id) {
+			this.root = root;
+			this.id = id;
+		}
+
+		/**
+		 * Search the root with increasing depth until a limit is reached
+		 * @param listener The listener told the result of each iteration, can be null
+		 * @return The result of the deepest finished iteration
+		 */
+		SearchResult iterate(SearchListener listener) {
+			List<Move> moves = root.legalMoves();
+			if (moves.isEmpty()) {
+				return new SearchResult(0, root.getCheck() ? -MATE : 0, 0, elapsed(), Collections.<Move>emptyList());
+			}
+
+			int maxDepth = (limits.getDepth() > 0) ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+			SearchResult best = new SearchResult(0, 0, 0, 0, Collections.singletonList(moves.get(0)));
+			// the helper threads only fill the table, they search the best line
+			int lineCount = (id == 0) ? Math.min(multiPv, moves.size()) : 1;
+
+			// helper threads start at different depths so they fill the table with different entries
+			for (int depth = 1 + (id % 2); depth <= maxDepth; depth++) {
+				Object event = FlightEvents.SEARCH_ITERATION.begin();
+				List<SearchResult> lines = new ArrayList<>();
+				excluded.clear();
+				while (lines.size() < lineCount) {
+					int lineScore = negamax(root, depth, -INFINITY, INFINITY, 0);
+					if (stopped || pvLength[0] == 0) {
+						break;
+					}
+					List<Move> line = new ArrayList<>(Arrays.asList(pv[0]).subList(0, pvLength[0]));
+					lines.add(new SearchResult(depth, lineScore, nodes.get(), elapsed(), line));
+					excluded.add(line.get(0));
+				}
+				// an iteration stopped before all its lines are found is dropped, unless there is nothing else
+				if ((stopped && best.getDepth() > 0) || lines.isEmpty()) {
+					break;
+				}
+				lines.sort((a, b) -> Integer.compare(b.getScore(), a.getScore()));
+				int score = lines.get(0).getScore();
+				best = new SearchResult(depth, score, nodes.get(), elapsed(), lines.get(0).getPv(), (lineCount > 1) ? lines : null);
+				if (listener != null) {
+					listener.iterationFinished(best, table.hashfull());
+				}
+				if (FlightEvents.SEARCH_ITERATION.end(event)) {
+					FlightEvents.SEARCH_ITERATION.commit(event, root.toFen(), depth, score, best.getNodes(), best.getNps(),
+							table.hashfull(), best.getPv().stream().map(Move::toString).collect(Collectors.joining(" ")));
+				}
+				if (stopped || System.currentTimeMillis() >= softDeadline) {
+					break;
+				}
+				if (decided(lines, depth) && !pondering && !infinite) {
+					break;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Check if deeper iterations can't change the lines: every line ends in a mate found within the depth
+		 * @param lines The lines of the iteration
+		 * @param depth The depth of the iteration
+		 * @return <b>true</b>: Every line is a mate<br>
+		 *         <b>false</b>: A line can still change
+		 */
+		private boolean decided(List<SearchResult> lines, int depth) {
+			for (SearchResult line : lines) {
+				if (Math.abs(line.getScore()) < MATE - depth) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * Search a position
+		 * @param match The position
+		 * @param depth The remaining depth
+		 * @param alpha The lower bound
+		 * @param beta The upper bound
+		 * @param ply How many moves from the root
+		 * @return The score from the view of the player to move
+		 */
+		private int negamax(Match match, int depth, int alpha, int beta, int ply) {
+			pvLength[ply] = ply;
+
+			long key = match.getHashKey();
+			keys[ply] = key;
+			if (ply > 0) {
+				if (match.getHalfmoveClock() >= 100) {
+					return 0;
+				}
+				for (int i = ply - 2; i >= 0 && i >= ply - match.getHalfmoveClock(); i -= 2) {
+					if (keys[i] == key) {
+						return 0;
+					}
+				}
+			}
+
+			if (depth <= 0 || ply >= MAX_PLY) {
+				return quiesce(match, alpha, beta, ply);
+			}
+			if (countNode()) {
+				return 0;
+			}
+
+			Move hashMove = null;
+			long entry = table.probe(key);
+			if (entry != 0) {
+				hashMove = TranspositionTable.move(entry);
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (ply > 0 && TranspositionTable.depth(entry) >= depth
+						&& (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha))) {
+					if (bound == TranspositionTable.EXACT) {
+						// the line was not searched, so it is taken from the table or the parent gets a cut one
+						tablePv(match, depth, ply);
+					}
+					return score;
+				}
+			}
+
+			List<Move> moves = match.legalMoves();
+			if (moves.isEmpty()) {
+				return match.getCheck() ? -MATE + ply : 0;
+			}
+			order(match, moves, hashMove);
+
+			int alphaOrig = alpha;
+			int bestScore = -INFINITY;
+			Move bestMove = null;
+			for (Move move : moves) {
+				if (ply == 0 && excluded.contains(move)) {
+					continue;
+				}
+				Match child = new Match(match);
+				child.performChessMove(move);
+				int score = -negamax(child, depth - 1, -beta, -alpha, ply + 1);
+				if (stopped) {
+					return 0;
+				}
+				if (score > bestScore) {
+					bestScore = score;
+					bestMove = move;
+					if (score > alpha) {
+						alpha = score;
+						updatePv(ply, move);
+						if (alpha >= beta) {
+							break;
+						}
+					}
+				}
+			}
+
+			int bound = (bestScore >= beta) ? TranspositionTable.LOWER
+					: (bestScore > alphaOrig) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+			// a root searched without some moves has no true score
+			if (ply > 0 || excluded.isEmpty()) {
+				table.store(key, bestMove, toTable(bestScore, ply), depth, bound);
+			}
+			return bestScore;
+		}
+
+		/**
+		 * Search the captures of a position until it is quiet
+		 * @param match The position
+		 * @param alpha The lower bound
+		 * @param beta The upper bound
+		 * @param ply How many moves from the root
+		 * @return The score from the view of the player to move
+		 */
+		private int quiesce(Match match, int alpha, int beta, int ply) {
+			pvLength[ply] = ply;
+			if (countNode()) {
+				return 0;
+			}
+			if (match.getCheckmate()) {
+				return -MATE + ply;
+			}
+
+			int standPat = Evaluation.evaluate(match);
+			if (standPat >= beta || ply >= MAX_PLY) {
+				return standPat;
+			}
+			if (standPat > alpha) {
+				alpha = standPat;
+			}
+
+			List<Move> moves = new ArrayList<>();
+			Piece[][] pieces = match.getPieces();
+			for (Move move : match.legalMoves()) {
+				if (pieces[move.getTarget().getRow()][move.getTarget().getColumn()] != null || "Q".equals(move.getPromotion())) {
+					moves.add(move);
+				}
+			}
+			order(match, moves, null);
+
+			for (Move move : moves) {
+				Match child = new Match(match);
+				child.performChessMove(move);
+				int score = -quiesce(child, -beta, -alpha, ply + 1);
+				if (stopped) {
+					return 0;
+				}
+				if (score > alpha) {
+					alpha = score;
+					updatePv(ply, move);
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+			return alpha;
+		}
+
+		/**
+		 * Count a node and check the limits
+		 * @return <b>true</b>: The search should stop<br>
+		 *         <b>false</b>: The search goes on
+		 */
+		private boolean countNode() {
+			long n = nodes.incrementAndGet();
+			if (stopped) {
+				return true;
+			}
+			if (limits.getNodes() > 0 && n >= limits.getNodes() && !pondering) {
+				stopped = true;
+			}
+			else if ((n & 15) == 0 && System.currentTimeMillis() >= hardDeadline) {
+				stopped = true;
+			}
+			return stopped;
+		}
+
+		/**
+		 * Make the principal variation of the ply from the moves of the table,
+		 * the moves are made on the match and undone afterwards
+		 * @param match The position at the ply
+		 * @param depth How many moves the line may have at most
+		 * @param ply The ply
+		 */
+		private void tablePv(Match match, int depth, int ply) {
+			int made = 0;
+			for (int i = ply; i < ply + depth && i < MAX_PLY; i++) {
+				long entry = table.probe(match.getHashKey());
+				Move move = (entry == 0) ? null : TranspositionTable.move(entry);
+				// two keys can still meet in the table, so the move must be legal
+				if (move == null || match.tryMove(move) != MoveStatus.OK) {
+					break;
+				}
+				made++;
+				pv[ply][i] = move;
+				pvLength[ply] = i + 1;
+			}
+			for (; made > 0; made--) {
+				match.undo();
+			}
+		}
+
+		/**
+		 * Put the move first in the principal variation of the ply
+		 * @param ply The ply
+		 * @param move The move
+		 */
+		private void updatePv(int ply, Move move) {
+			pv[ply][ply] = move;
+			for (int i = ply + 1; i < pvLength[ply + 1]; i++) {
+				pv[ply][i] = pv[ply + 1][i];
+			}
+			pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+		}
+
+		/**
+		 * Sort the moves, the move from the table first, then captures of valuable pieces
+		 * by cheap pieces, then promotions and the other moves
+		 * @param match The position
+		 * @param moves The moves
+		 * @param hashMove The move from the table, can be null
+		 */
+		private void order(Match match, List<Move> moves, Move hashMove) {
+			Piece[][] pieces = match.getPieces();
+			moves.sort((a, b) -> Integer.compare(priority(pieces, b, hashMove), priority(pieces, a, hashMove)));
+		}
+
+		/**
+		 * Get the priority of a move for the ordering
+		 * @param pieces The pieces on the board
+		 * @param move The move
+		 * @param hashMove The move from the table, can be null
+		 * @return The priority, higher first
+		 */
+		private int priority(Piece[][] pieces, Move move, Move hashMove) {
+			if (move.equals(hashMove)) {
+				return Integer.MAX_VALUE;
+			}
+			Piece victim = pieces[move.getTarget().getRow()][move.getTarget().getColumn()];
+			Piece attacker = pieces[move.getSource().getRow()][move.getSource().getColumn()];
+			int priority = 0;
+			if (victim != null) {
+				priority += 10000 + Evaluation.value(victim) * 10 - Evaluation.value(attacker) / 10;
+			}
+			if ("Q".equals(move.getPromotion())) {
+				priority += 9000;
+			}
+			return priority;
+		}
+
+	}
+
+	/**
+	 * Convert a mate score to be relative to the position before it is stored
+	 * @param score The score relative to the root
+	 * @param ply The ply of the position
+	 * @return The score to store
+	 */
+	private static int toTable(int score, int ply) {
+		if (score >= MATE - MAX_PLY) {
+			return score + ply;
+		}
+		if (score <= -MATE + MAX_PLY) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	/**
+	 * Convert a stored mate score to be relative to the root
+	 * @param score The stored score
+	 * @param ply The ply of the position
+	 * @return The score relative to the root
+	 */
+	private static int fromTable(int score, int ply) {
+		if (score >= MATE - MAX_PLY) {
+			return score - ply;
+		}
+		if (score <= -MATE + MAX_PLY) {
+			return score + ply;
+		}
+		return score;
+	}
+
+}
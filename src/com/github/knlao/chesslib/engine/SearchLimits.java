@@ -0,0 +1,245 @@
+package com.github.knlao.chesslib.engine;
+
+/**
+ * The limits of a search, a value of 0 means no limit
+ * @author kimilao
+ * @version 1.0
+ */
+public class SearchLimits {
+
+	/**
+	 * The maximum depth
+	 */
+	private int depth;
+
+	/**
+	 * The maximum count of nodes
+	 */
+	private long nodes;
+
+	/**
+	 * The time for the move in milliseconds
+	 */
+	private long moveTime;
+
+	/**
+	 * The remaining time of white in milliseconds
+	 */
+	private long whiteTime;
+
+	/**
+	 * The remaining time of black in milliseconds
+	 */
+	private long blackTime;
+
+	/**
+	 * The increment of white per move in milliseconds
+	 */
+	private long whiteIncrement;
+
+	/**
+	 * The increment of black per move in milliseconds
+	 */
+	private long blackIncrement;
+
+	/**
+	 * How many moves until the next time control
+	 */
+	private int movesToGo;
+
+	/**
+	 * Search until stopped
+	 */
+	private boolean infinite;
+
+	/**
+	 * Search on the opponent's time until a ponder hit or stop
+	 */
+	private boolean ponder;
+
+	/**
+	 * Construct limits without any limit
+	 */
+	public SearchLimits() {
+	}
+
+	/**
+	 * Construct a copy of limits
+	 * @param other The limits to copy
+	 */
+	public SearchLimits(SearchLimits other) {
+		depth = other.depth;
+		nodes = other.nodes;
+		moveTime = other.moveTime;
+		whiteTime = other.whiteTime;
+		blackTime = other.blackTime;
+		whiteIncrement = other.whiteIncrement;
+		blackIncrement = other.blackIncrement;
+		movesToGo = other.movesToGo;
+		infinite = other.infinite;
+		ponder = other.ponder;
+	}
+
+	/**
+	 * Get the maximum depth
+	 * @return The maximum depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Set the maximum depth
+	 * @param depth The maximum depth
+	 */
+	public void setDepth(int depth) {
+		this.depth = depth;
+	}
+
+	/**
+	 * Get the maximum count of nodes
+	 * @return The maximum count of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Set the maximum count of nodes
+	 * @param nodes The maximum count of nodes
+	 */
+	public void setNodes(long nodes) {
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Get the time for the move
+	 * @return The time in milliseconds
+	 */
+	public long getMoveTime() {
+		return moveTime;
+	}
+
+	/**
+	 * Set the time for the move
+	 * @param moveTime The time in milliseconds
+	 */
+	public void setMoveTime(long moveTime) {
+		this.moveTime = moveTime;
+	}
+
+	/**
+	 * Get the remaining time of white
+	 * @return The time in milliseconds
+	 */
+	public long getWhiteTime() {
+		return whiteTime;
+	}
+
+	/**
+	 * Set the remaining time of white
+	 * @param whiteTime The time in milliseconds
+	 */
+	public void setWhiteTime(long whiteTime) {
+		this.whiteTime = whiteTime;
+	}
+
+	/**
+	 * Get the remaining time of black
+	 * @return The time in milliseconds
+	 */
+	public long getBlackTime() {
+		return blackTime;
+	}
+
+	/**
+	 * Set the remaining time of black
+	 * @param blackTime The time in milliseconds
+	 */
+	public void setBlackTime(long blackTime) {
+		this.blackTime = blackTime;
+	}
+
+	/**
+	 * Get the increment of white
+	 * @return The increment in milliseconds
+	 */
+	public long getWhiteIncrement() {
+		return whiteIncrement;
+	}
+
+	/**
+	 * Set the increment of white
+	 * @param whiteIncrement The increment in milliseconds
+	 */
+	public void setWhiteIncrement(long whiteIncrement) {
+		this.whiteIncrement = whiteIncrement;
+	}
+
+	/**
+	 * Get the increment of black
+	 * @return The increment in milliseconds
+	 */
+	public long getBlackIncrement() {
+		return blackIncrement;
+	}
+
+	/**
+	 * Set the increment of black
+	 * @param blackIncrement The increment in milliseconds
+	 */
+	public void setBlackIncrement(long blackIncrement) {
+		this.blackIncrement = blackIncrement;
+	}
+
+	/**
+	 * Get how many moves until the next time control
+	 * @return The count of moves
+	 */
+	public int getMovesToGo() {
+		return movesToGo;
+	}
+
+	/**
+	 * Set how many moves until the next time control
+	 * @param movesToGo The count of moves
+	 */
+	public void setMovesToGo(int movesToGo) {
+		this.movesToGo = movesToGo;
+	}
+
+	/**
+	 * Get if it searches until stopped
+	 * @return <b>true</b>: It searches until stopped<br>
+	 *         <b>false</b>: It stops at the limits
+	 */
+	public boolean isInfinite() {
+		return infinite;
+	}
+
+	/**
+	 * Set if it searches until stopped
+	 * @param infinite Search until stopped or not
+	 */
+	public void setInfinite(boolean infinite) {
+		this.infinite = infinite;
+	}
+
+	/**
+	 * Get if it searches on the opponent's time
+	 * @return <b>true</b>: It waits for a ponder hit or stop<br>
+	 *         <b>false</b>: It is a normal search
+	 */
+	public boolean isPonder() {
+		return ponder;
+	}
+
+	/**
+	 * Set if it searches on the opponent's time
+	 * @param ponder Ponder or not
+	 */
+	public void setPonder(boolean ponder) {
+		this.ponder = ponder;
+	}
+
+}
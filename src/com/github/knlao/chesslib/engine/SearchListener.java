@@ -0,0 +1,23 @@
+package com.github.knlao.chesslib.engine;
+
+/**
+ * The listener of the progress of a search
+ * @author kimilao
+ * @version 1.0
+ */
+public interface SearchListener {
+
+	/**
+	 * Called when an iteration of the search is finished
+	 * @param result The result of the iteration
+	 * @param hashfull The permill of used entries in the transposition table
+	 */
+	void iterationFinished(SearchResult result, int hashfull);
+
+	/**
+	 * Called when the search is finished
+	 * @param result The result of the search
+	 */
+	void searchFinished(SearchResult result);
+
+}
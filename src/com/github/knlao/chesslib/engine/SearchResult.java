@@ -0,0 +1,167 @@
+package com.github.knlao.chesslib.engine;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.github.knlao.chesslib.chess.Move;
+
+/**
+ * The result of a search or of one iteration of a search
+ * @author kimilao
+ * @version 1.0
+ */
+public class SearchResult {
+
+	/**
+	 * The depth reached
+	 */
+	private final int depth;
+
+	/**
+	 * The score in centipawns from the view of the player to move
+	 */
+	private final int score;
+
+	/**
+	 * How many nodes were searched
+	 */
+	private final long nodes;
+
+	/**
+	 * How long the search took in milliseconds
+	 */
+	private final long time;
+
+	/**
+	 * The principal variation, the first move is the best move
+	 */
+	private final List<Move> pv;
+
+	/**
+	 * The best lines of a multi-PV search, the best line first
+	 */
+	private final List<SearchResult> lines;
+
+	/**
+	 * Construct a search result
+	 * @param depth The depth reached
+	 * @param score The score
+	 * @param nodes How many nodes were searched
+	 * @param time How long the search took in milliseconds
+	 * @param pv The principal variation
+	 */
+	public SearchResult(int depth, int score, long nodes, long time, List<Move> pv) {
+		this(depth, score, nodes, time, pv, null);
+	}
+
+	/**
+	 * Construct a search result with the best lines of a multi-PV search
+	 * @param depth The depth reached
+	 * @param score The score of the best line
+	 * @param nodes How many nodes were searched
+	 * @param time How long the search took in milliseconds
+	 * @param pv The principal variation of the best line
+	 * @param lines The best lines, the best line first, null for this line only
+	 */
+	public SearchResult(int depth, int score, long nodes, long time, List<Move> pv, List<SearchResult> lines) {
+		this.depth = depth;
+		this.score = score;
+		this.nodes = nodes;
+		this.time = time;
+		this.pv = pv;
+		this.lines = (lines == null) ? Collections.singletonList(this) : Collections.unmodifiableList(lines);
+	}
+
+	/**
+	 * Get the depth reached
+	 * @return The depth
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Get the score from the view of the player to move
+	 * @return The score in centipawns
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Get how many nodes were searched
+	 * @return The count of nodes
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Get how long the search took
+	 * @return The time in milliseconds
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * Get the nodes searched per second
+	 * @return The nodes per second
+	 */
+	public long getNps() {
+		return time > 0 ? nodes * 1000 / time : nodes * 1000;
+	}
+
+	/**
+	 * Get the principal variation
+	 * @return The list of moves
+	 */
+	public List<Move> getPv() {
+		return pv;
+	}
+
+	/**
+	 * Get the best lines, each with its own score and principal variation;
+	 * a search with one line has only this result
+	 * @return The lines, the best line first
+	 */
+	public List<SearchResult> getLines() {
+		return lines;
+	}
+
+	/**
+	 * Get the best move
+	 * @return <b>Move</b>: The best move<br>
+	 *         <b>null</b>: There is no legal move
+	 */
+	public Move getBestMove() {
+		return pv.isEmpty() ? null : pv.get(0);
+	}
+
+	/**
+	 * Get the expected reply to the best move
+	 * @return <b>Move</b>: The expected reply<br>
+	 *         <b>null</b>: There is no expected reply
+	 */
+	public Move getPonderMove() {
+		return pv.size() < 2 ? null : pv.get(1);
+	}
+
+	/**
+	 * Check if the score is a mate score
+	 * @return <b>true</b>: One side is getting checkmated<br>
+	 *         <b>false</b>: The score is in centipawns
+	 */
+	public boolean isMate() {
+		return Math.abs(score) >= Search.MATE - Search.MAX_PLY;
+	}
+
+	/**
+	 * Get in how many moves the mate happens, negative if the player to move gets checkmated
+	 * @return The count of moves
+	 */
+	public int getMateIn() {
+		return score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2;
+	}
+
+}
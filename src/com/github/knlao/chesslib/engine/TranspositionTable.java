@@ -0,0 +1,206 @@
+package com.github.knlao.chesslib.engine;
+
+import java.util.Arrays;
+
+import com.github.knlao.chesslib.chess.FlightEvents;
+import com.github.knlao.chesslib.chess.Move;
+
+/**
+ * The transposition table shared by the search threads,
+ * each entry is a pair of longs and the key is stored xor-ed with the data
+ * so a torn write from another thread is read as a miss instead of a wrong entry
+ * @author kimilao
+ * @version 1.0
+ */
+public class TranspositionTable {
+
+	/**
+	 * The score is exact
+	 */
+	public static final int EXACT = 1;
+
+	/**
+	 * The score is a lower bound
+	 */
+	public static final int LOWER = 2;
+
+	/**
+	 * The score is an upper bound
+	 */
+	public static final int UPPER = 3;
+
+	/**
+	 * The size of an entry in bytes
+	 */
+	private static final int ENTRY_SIZE = 16;
+
+	/**
+	 * The keys xor-ed with the data
+	 */
+	private long[] keys;
+
+	/**
+	 * The data: move, score, depth and bound
+	 */
+	private long[] data;
+
+	/**
+	 * Construct a transposition table
+	 * @param megabytes The size of the table in megabytes
+	 */
+	public TranspositionTable(int megabytes) {
+		resize(megabytes);
+	}
+
+	/**
+	 * Resize the table, all entries are cleared
+	 * @param megabytes The new size of the table in megabytes
+	 */
+	public void resize(int megabytes) {
+		long bytes = Math.max(1, megabytes) * 1024L * 1024L;
+		int entries = Integer.highestOneBit((int) Math.min(bytes / ENTRY_SIZE, 1 << 30));
+		Object event = FlightEvents.TRANSPOSITION_TABLE_RESIZE.begin();
+		keys = new long[entries];
+		data = new long[entries];
+		if (FlightEvents.TRANSPOSITION_TABLE_RESIZE.end(event)) {
+			FlightEvents.TRANSPOSITION_TABLE_RESIZE.commit(event, megabytes, entries);
+		}
+	}
+
+	/**
+	 * Clear all entries
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(data, 0);
+	}
+
+	/**
+	 * Get how many entries the table has
+	 * @return The count of entries
+	 */
+	public int size() {
+		return keys.length;
+	}
+
+	/**
+	 * Get the size of the table in megabytes
+	 * @return The size in megabytes
+	 */
+	public int getMegabytes() {
+		return (int) ((long) keys.length * ENTRY_SIZE / (1024 * 1024));
+	}
+
+	/**
+	 * Get the data stored for the key
+	 * @param key The hash key of the position
+	 * @return <b>long</b>: The data<br>
+	 *         <b>0</b>: There is no entry for the key
+	 */
+	public long probe(long key) {
+		int index = (int) key & (keys.length - 1);
+		long d = data[index];
+		return (keys[index] ^ d) == key ? d : 0;
+	}
+
+	/**
+	 * Store an entry for the key
+	 * @param key The hash key of the position
+	 * @param move The best move, can be null
+	 * @param score The score
+	 * @param depth The depth of the search
+	 * @param bound The bound of the score (EXACT/LOWER/UPPER)
+	 */
+	public void store(long key, Move move, int score, int depth, int bound) {
+		int index = (int) key & (keys.length - 1);
+		long old = data[index];
+		if ((keys[index] ^ old) == key && depth(old) > depth && bound != EXACT) {
+			return;
+		}
+		long d = (packMove(move) & 0x7FFFL)
+				| ((long) (score & 0xFFFF) << 15)
+				| ((long) (depth & 0xFF) << 31)
+				| ((long) bound << 39);
+		data[index] = d;
+		keys[index] = key ^ d;
+	}
+
+	/**
+	 * Get an estimate of how full the table is
+	 * @return The permill of used entries
+	 */
+	public int hashfull() {
+		int n = Math.min(1000, data.length);
+		int used = 0;
+		for (int i = 0; i < n; i++) {
+			if (data[i] != 0) {
+				used++;
+			}
+		}
+		return used * 1000 / n;
+	}
+
+	/**
+	 * Get the move of the data
+	 * @param data The data
+	 * @return <b>Move</b>: The best move<br>
+	 *         <b>null</b>: There is no move
+	 */
+	public static Move move(long data) {
+		return unpackMove((int) (data & 0x7FFF));
+	}
+
+	/**
+	 * Get the score of the data
+	 * @param data The data
+	 * @return The score
+	 */
+	public static int score(long data) {
+		return (short) (data >>> 15);
+	}
+
+	/**
+	 * Get the depth of the data
+	 * @param data The data
+	 * @return The depth
+	 */
+	public static int depth(long data) {
+		return (int) (data >>> 31) & 0xFF;
+	}
+
+	/**
+	 * Get the bound of the data
+	 * @param data The data
+	 * @return The bound (EXACT/LOWER/UPPER)
+	 */
+	public static int bound(long data) {
+		return (int) (data >>> 39) & 0x3;
+	}
+
+	/**
+	 * Pack a move with {@link Move#pack()}, also for no move. An entry or an opening tree move without a move
+	 * is stored as 0, which no move packs to as its source and target squares differ
+	 * @param move The move, may be null
+	 * @return The packed move, 0 for no move
+	 */
+	static int packMove(Move move) {
+		if (move == null) {
+			return 0;
+		}
+		return move.pack();
+	}
+
+	/**
+	 * Unpack a move packed by packMove with {@link Move#unpack(int)}, 0 is no move
+	 * @param packed The packed move
+	 * @return <b>Move</b>: The move<br>
+	 *         <b>null</b>: There is no move
+	 */
+	static Move unpackMove(int packed) {
+		if (packed == 0) {
+			return null;
+		}
+		return Move.unpack(packed);
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.github.knlao.chesslib.server;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.engine.Search;
+import com.github.knlao.chesslib.engine.SearchLimits;
+import com.github.knlao.chesslib.engine.SearchResult;
+import com.github.knlao.chesslib.engine.TranspositionTable;
+
+/**
+ * The threads analysing positions for a game server, with a bounded queue.
+ * Every pool thread keeps its own search and transposition table between analyses
+ * @author kimilao
+ * @version 1.0
+ */
+public class AnalysisPool implements AnalysisPoolMXBean {
+
+	/**
+	 * How many analyses can wait for a thread
+	 */
+	public static final int QUEUE_CAPACITY = 256;
+
+	/**
+	 * The threads
+	 */
+	private final ThreadPoolExecutor executor;
+
+	/**
+	 * The search of each pool thread
+	 */
+	private final ThreadLocal<Search> searches;
+
+	/**
+	 * How many threads search a position of an analysis
+	 */
+	private volatile int searchThreads = 1;
+
+	/**
+	 * How many analyses were rejected
+	 */
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * Construct a pool
+	 * @param poolSize How many analyses can run at the same time
+	 * @param hash The size of the transposition table of each pool thread in megabytes
+	 */
+	public AnalysisPool(int poolSize, int hash) {
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY), r -> {
+			Thread t = new Thread(r, "game-analysis");
+			t.setDaemon(true);
+			return t;
+		});
+		searches = ThreadLocal.withInitial(() -> new Search(new TranspositionTable(hash)));
+	}
+
+	/**
+	 * Analyse a position
+	 * @param match The position, it must not be changed until the analysis is finished
+	 * @param limits The limits of the search
+	 * @return The result of the analysis when it is finished
+	 */
+	public Future<SearchResult> submit(Match match, SearchLimits limits) {
+		try {
+			return executor.submit(() -> {
+				Search search = searches.get();
+				search.setThreads(searchThreads);
+				return search.think(match, limits, null);
+			});
+		}
+		catch (RejectedExecutionException e) {
+			rejected.increment();
+			throw new ChessException("The analysis queue is full");
+		}
+	}
+
+	/**
+	 * Stop the threads, the waiting analyses are dropped
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	@Override
+	public int getPoolSize() {
+		return executor.getCorePoolSize();
+	}
+
+	@Override
+	public synchronized void setPoolSize(int poolSize) {
+		if (poolSize < 1) {
+			throw new IllegalArgumentException("The pool needs at least 1 thread");
+		}
+		// the maximum can't be below the core size at any time
+		if (poolSize > executor.getMaximumPoolSize()) {
+			executor.setMaximumPoolSize(poolSize);
+			executor.setCorePoolSize(poolSize);
+		}
+		else {
+			executor.setCorePoolSize(poolSize);
+			executor.setMaximumPoolSize(poolSize);
+		}
+	}
+
+	@Override
+	public int getSearchThreads() {
+		return searchThreads;
+	}
+
+	@Override
+	public void setSearchThreads(int searchThreads) {
+		if (searchThreads < 1) {
+			throw new IllegalArgumentException("A search needs at least 1 thread");
+		}
+		this.searchThreads = searchThreads;
+	}
+
+	@Override
+	public int getActiveCount() {
+		return executor.getActiveCount();
+	}
+
+	@Override
+	public int getQueueSize() {
+		return executor.getQueue().size();
+	}
+
+	@Override
+	public double getSaturation() {
+		return (double) (executor.getActiveCount() + executor.getQueue().size()) / executor.getCorePoolSize();
+	}
+
+	@Override
+	public long getCompletedAnalyses() {
+		return executor.getCompletedTaskCount();
+	}
+
+	@Override
+	public long getRejectedAnalyses() {
+		return rejected.sum();
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.github.knlao.chesslib.server;
+
+/**
+ * The management interface of the analysis threads of a game server,
+ * registered as com.github.knlao.chesslib:type=AnalysisPool,port=[port] while the server is bound
+ * @author kimilao
+ * @version 1.0
+ */
+public interface AnalysisPoolMXBean {
+
+	/**
+	 * Get how many analyses can run at the same time
+	 * @return The count of pool threads
+	 */
+	int getPoolSize();
+
+	/**
+	 * Set how many analyses can run at the same time
+	 * @param poolSize The count of pool threads, at least 1
+	 */
+	void setPoolSize(int poolSize);
+
+	/**
+	 * Get how many threads search a position of an analysis
+	 * @return The count of search threads
+	 */
+	int getSearchThreads();
+
+	/**
+	 * Set how many threads search a position of an analysis, used from the next analysis
+	 * @param searchThreads The count of search threads, at least 1
+	 */
+	void setSearchThreads(int searchThreads);
+
+	/**
+	 * Get how many analyses are running
+	 * @return The count of running analyses
+	 */
+	int getActiveCount();
+
+	/**
+	 * Get how many analyses are waiting for a thread
+	 * @return The count of waiting analyses
+	 */
+	int getQueueSize();
+
+	/**
+	 * Get the saturation of the pool: the running and waiting analyses divided by the pool threads,
+	 * above 1 when analyses wait
+	 * @return The saturation
+	 */
+	double getSaturation();
+
+	/**
+	 * Get how many analyses finished
+	 * @return The count of finished analyses
+	 */
+	long getCompletedAnalyses();
+
+	/**
+	 * Get how many analyses were rejected because the queue was full
+	 * @return The count of rejected analyses
+	 */
+	long getRejectedAnalyses();
+
+}
@@ -0,0 +1,688 @@
+package com.github.knlao.chesslib.server;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Color;
+import com.github.knlao.chesslib.chess.HistogramRecorder;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.MoveStatus;
+import com.github.knlao.chesslib.chess.Piece;
+import com.github.knlao.chesslib.engine.SearchLimits;
+import com.github.knlao.chesslib.engine.SearchResult;
+
+/**
+ * A local TCP game server hosting many matches at once.
+ * The sessions live in a registry and don't own a thread, so an idle session costs only its match;
+ * each connection is served by a thread of a pool and can play in any session.
+ * The protocol is one command per line, answered by a line starting with "ok" or "error":
+ * <pre>
+ * new [fen]          create a session, answers its id
+ * move [id] [move]   perform a move such as e2e4 or e7e8q, answers the new FEN
+ * fen [id]           answers the FEN of the session
+ * moves [id]         answers the legal moves of the session
+ * analyze [id] [n]   search the position of the session for n nodes, answers the best move
+ * close [id]         remove the session
+ * stats              answers the counters of the server
+ * quit               close the connection
+ * </pre>
+ * While it is bound the server and its analysis pool are registered as MXBeans on the platform MBean server.
+ * With a {@link MoveJournal} every new session, accepted move and closed session is on the disk before it is answered,
+ * and the sessions of the journal are recovered when the server starts again
+ * @author kimilao
+ * @version 1.0
+ */
+public class GameServer implements GameServerMXBean {
+
+	/**
+	 * The default port
+	 */
+	public static final int DEFAULT_PORT = 7070;
+
+	/**
+	 * The default node limit of an analysis
+	 */
+	public static final long DEFAULT_ANALYSIS_NODES = 100000;
+
+	/**
+	 * The domain of the MXBeans
+	 */
+	private static final String DOMAIN = "com.github.knlao.chesslib";
+
+	/**
+	 * The sessions
+	 */
+	private final SessionRegistry registry = new SessionRegistry();
+
+	/**
+	 * The threads serving the connections
+	 */
+	private final ExecutorService connections = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "game-connection");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * How many moves were performed
+	 */
+	private final LongAdder moves = new LongAdder();
+
+	/**
+	 * How many moves were rejected
+	 */
+	private final LongAdder rejected = new LongAdder();
+
+	/**
+	 * The total time spent performing moves in nanoseconds
+	 */
+	private final LongAdder moveNanos = new LongAdder();
+
+	/**
+	 * The latencies of the moves
+	 */
+	private final HistogramRecorder moveLatency = new HistogramRecorder();
+
+	/**
+	 * The threads analysing positions
+	 */
+	private final AnalysisPool analysis = new AnalysisPool(Runtime.getRuntime().availableProcessors(), 16);
+
+	/**
+	 * When the server was constructed or the statistics were reset, in milliseconds
+	 */
+	private volatile long startTime = System.currentTimeMillis();
+
+	/**
+	 * The socket accepting connections
+	 */
+	private ServerSocket serverSocket;
+
+	/**
+	 * The names of the registered MXBeans
+	 */
+	private final List<ObjectName> mbeans = new ArrayList<>();
+
+	/**
+	 * The journal of the sessions, null if they are kept in memory only
+	 */
+	private MoveJournal journal;
+
+	public static void main(String[] args) throws IOException {
+		if (args.length > 0 && args[0].equals("bench")) {
+			int sessions = (args.length > 1) ? Integer.parseInt(args[1]) : 10000;
+			int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+			int seconds = (args.length > 3) ? Integer.parseInt(args[3]) : 10;
+			benchmark(sessions, threads, seconds, (args.length > 4) ? new File(args[4]) : null);
+			return;
+		}
+		int port = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		GameServer server = new GameServer();
+		if (args.length > 1) {
+			System.out.println("Recovered " + server.openJournal(new File(args[1])) + " sessions");
+		}
+		server.start(port);
+		System.out.println("Listening on port " + server.getPort());
+		server.acceptLoop();
+	}
+
+	/**
+	 * Get the sessions
+	 * @return The registry of the sessions
+	 */
+	public SessionRegistry getRegistry() {
+		return registry;
+	}
+
+	/**
+	 * Get the threads analysing positions
+	 * @return The analysis pool
+	 */
+	public AnalysisPool getAnalysisPool() {
+		return analysis;
+	}
+
+	/**
+	 * Keep the sessions in a journal, the sessions which are in it are recovered first
+	 * @param file The file of the journal, created if it isn't there
+	 * @return How many sessions were recovered
+	 * @throws IOException If the journal can't be read or written
+	 */
+	public int openJournal(File file) throws IOException {
+		if (journal != null) {
+			throw new ChessException("The journal is already open");
+		}
+		Map<Long, Match> sessions = new LinkedHashMap<>();
+		journal = MoveJournal.open(file, sessions);
+		for (Map.Entry<Long, Match> e : sessions.entrySet()) {
+			registry.restore(e.getKey(), e.getValue());
+		}
+		return sessions.size();
+	}
+
+	/**
+	 * Bind the server to a port on the loopback address
+	 * @param port The port, 0 for any free port
+	 * @throws IOException If the port can't be bound
+	 */
+	public void start(int port) throws IOException {
+		serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+		registerMBeans();
+	}
+
+	/**
+	 * Register the server and its analysis pool on the platform MBean server, named by the port
+	 */
+	private void registerMBeans() {
+		MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName server = new ObjectName(DOMAIN + ":type=GameServer,port=" + getPort());
+			ObjectName pool = new ObjectName(DOMAIN + ":type=AnalysisPool,port=" + getPort());
+			platform.registerMBean(this, server);
+			mbeans.add(server);
+			platform.registerMBean(analysis, pool);
+			mbeans.add(pool);
+		}
+		catch (JMException e) {
+			System.err.println("Error registering the MBeans: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the port the server is bound to
+	 * @return The port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/**
+	 * Accept connections until the server is closed
+	 */
+	public void acceptLoop() {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				connections.execute(() -> serve(socket));
+			}
+			catch (IOException e) {
+				if (!serverSocket.isClosed()) {
+					System.err.println("Error accepting a connection: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Close the server and its connections
+	 * @throws IOException If the socket can't be closed
+	 */
+	public void close() throws IOException {
+		serverSocket.close();
+		connections.shutdownNow();
+		analysis.shutdown();
+		MBeanServer platform = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName name : mbeans) {
+			try {
+				platform.unregisterMBean(name);
+			}
+			catch (JMException e) {
+				// already unregistered
+			}
+		}
+		mbeans.clear();
+		if (journal != null) {
+			journal.close();
+		}
+	}
+
+	/**
+	 * Serve a connection until it sends quit or closes
+	 * @param socket The connection
+	 */
+	private void serve(Socket socket) {
+		try (Socket s = socket;
+			BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream()));
+			PrintWriter out = new PrintWriter(s.getOutputStream(), true)) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.equals("quit")) {
+					break;
+				}
+				out.println(execute(line));
+			}
+		}
+		catch (IOException e) {
+			// the client went away
+		}
+	}
+
+	/**
+	 * Execute a command of the protocol
+	 * @param line The command
+	 * @return The answer
+	 */
+	public String execute(String line) {
+		String[] tokens = line.split("\\s+", 3);
+		try {
+			switch (tokens[0]) {
+			case "new":
+				Session created = create((tokens.length > 1) ? new Match(line.substring(4).trim()) : new Match());
+				return "ok " + created.getId();
+			case "move":
+				return move(session(tokens), Move.fromNotation(argument(tokens)));
+			case "fen":
+				return "ok " + session(tokens).read(Match::toFen);
+			case "moves":
+				StringBuilder sb = new StringBuilder("ok");
+				for (Move m : session(tokens).read(Match::legalMoves)) {
+					sb.append(' ').append(m);
+				}
+				return sb.toString();
+			case "analyze":
+				return analyze(session(tokens), (tokens.length > 2) ? Long.parseLong(argument(tokens)) : DEFAULT_ANALYSIS_NODES);
+			case "close":
+				return close(id(tokens));
+			case "stats":
+				return "ok " + stats();
+			default:
+				return "error Unknown command " + tokens[0];
+			}
+		}
+		catch (ChessException e) {
+			return "error " + e.getMessage();
+		}
+		catch (IOException e) {
+			return "error The journal failed: " + e.getMessage();
+		}
+		catch (RuntimeException e) {
+			return "error Invalid command " + line;
+		}
+	}
+
+	/**
+	 * Create a session and wait until its start is in the journal
+	 * @param match The match of the session
+	 * @return The session
+	 * @throws IOException If the journal can't be written
+	 */
+	private Session create(Match match) throws IOException {
+		if (journal != null) {
+			journal.check();
+		}
+		Session session = registry.reserve(match);
+		if (journal != null) {
+			// the session is published once its start is on the disk, so no move of it is appended before the start
+			long sequence = session.read(m -> journal.start(session.getId(), m.toFen()));
+			try {
+				journal.await(sequence);
+			}
+			catch (IOException e) {
+				abandon(session);
+				throw new IOException(e.getMessage() + ", session " + session.getId() + " is closed", e);
+			}
+		}
+		registry.publish(session);
+		return session;
+	}
+
+	/**
+	 * Remove a session and wait until its end is in the journal
+	 * @param id The id of the session
+	 * @return The answer
+	 * @throws IOException If the journal failed after the end was appended, the session may be recovered again
+	 */
+	private String close(long id) throws IOException {
+		if (journal != null) {
+			journal.check();
+		}
+		Session session = registry.remove(id);
+		if (session == null) {
+			return "error There is no session " + id;
+		}
+		if (journal == null) {
+			session.close();
+		}
+		else {
+			// the session is closed with its end, so a move by a thread which found it before it was removed isn't appended after the end
+			journal.await(session.read(m -> {
+				session.close();
+				return journal.end(id);
+			}));
+		}
+		return "ok";
+	}
+
+	/**
+	 * Drop a session which may or may not be in the journal as it was answered for. An end is appended
+	 * while the journal still takes records, so what of the session reaches the disk doesn't bring it back
+	 * @param session The session
+	 */
+	private void abandon(Session session) {
+		registry.remove(session.getId());
+		session.read(m -> {
+			session.close();
+			try {
+				journal.end(session.getId());
+			}
+			catch (ChessException e) {
+				// the journal failed, the session is recovered as far as its records reached the disk
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Perform a move in a session and count it
+	 * @param session The session
+	 * @param move The move
+	 * @return The answer: the FEN after the move or the reason the move is illegal
+	 * @throws IOException If the journal failed after the move was appended, the session is removed
+	 */
+	private String move(Session session, Move move) throws IOException {
+		long start = System.nanoTime();
+		long[] sequence = new long[1];
+		String answer = session.withMatch(m -> {
+			if (session.isClosed()) {
+				throw new ChessException("There is no session " + session.getId());
+			}
+			if (journal != null) {
+				journal.check();
+			}
+			int turn = m.getTurn();
+			MoveStatus status = m.tryMove(move);
+			if (status == MoveStatus.OK && journal != null) {
+				try {
+					sequence[0] = journal.move(session.getId(), turn, move);
+				}
+				catch (ChessException e) {
+					// the journal failed since the check, the session stays as it is in the journal
+					m.undo();
+					throw e;
+				}
+			}
+			return (status == MoveStatus.OK) ? "ok " + m.toFen() : "error " + status.getMessage();
+		});
+		if (answer.startsWith("error")) {
+			// a rejected move is only counted, it would make the throughput and the latencies look better
+			rejected.increment();
+			return answer;
+		}
+		if (journal != null) {
+			try {
+				// the lock of the session is released, so the moves of other sessions join the same force to the disk
+				journal.await(sequence[0]);
+			}
+			catch (IOException e) {
+				// the move may or may not be on the disk, so the session isn't answered for again
+				abandon(session);
+				throw new IOException(e.getMessage() + ", session " + session.getId() + " is closed", e);
+			}
+		}
+		long nanos = System.nanoTime() - start;
+		moves.increment();
+		moveNanos.add(nanos);
+		moveLatency.record(nanos);
+		return answer;
+	}
+
+	/**
+	 * Analyse the position of a session on the analysis pool and wait for the result
+	 * @param session The session
+	 * @param nodes The node limit of the search
+	 * @return The answer: the best move, its score, the depth and the nodes searched
+	 */
+	private String analyze(Session session, long nodes) {
+		Match match = session.read(Match::new);
+		SearchLimits limits = new SearchLimits();
+		limits.setNodes(nodes);
+		try {
+			SearchResult result = analysis.submit(match, limits).get();
+			if (result.getBestMove() == null) {
+				return "error There is no legal move";
+			}
+			return "ok bestmove " + result.getBestMove() + " score " + result.getScore()
+					+ " depth " + result.getDepth() + " nodes " + result.getNodes();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "error The analysis was interrupted";
+		}
+		catch (ExecutionException e) {
+			return "error The analysis failed: " + e.getCause().getMessage();
+		}
+	}
+
+	/**
+	 * Get the counters of the server: sessions, moves performed, rejected moves, moves performed per second since the start,
+	 * average move latency, moves per second one thread can perform and heap used per session
+	 * @return The counters
+	 */
+	public String stats() {
+		long count = moves.sum();
+		long seconds = Math.max(1, (System.currentTimeMillis() - startTime) / 1000);
+		long averageNanos = (count == 0) ? 0 : moveNanos.sum() / count;
+		int sessions = registry.size();
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		long heap = memory.getHeapMemoryUsage().getUsed();
+		return "sessions " + sessions
+				+ " moves " + count
+				+ " rejected " + rejected.sum()
+				+ " mps " + count / seconds
+				+ " avg_us " + averageNanos / 1000
+				+ " p99_us " + moveLatency.snapshot().getPercentile(99) / 1000
+				+ " capacity_mps_per_thread " + (averageNanos == 0 ? 0 : 1_000_000_000L / averageNanos)
+				+ " heap_per_session " + (sessions == 0 ? 0 : heap / sessions)
+				+ ((journal == null) ? "" : " journal_records " + journal.getRecords() + " journal_syncs " + journal.getSyncs());
+	}
+
+	@Override
+	public int getActiveSessions() {
+		return registry.size();
+	}
+
+	@Override
+	public long getMoves() {
+		return moves.sum();
+	}
+
+	@Override
+	public long getRejectedMoves() {
+		return rejected.sum();
+	}
+
+	@Override
+	public double getMovesPerSecond() {
+		double seconds = Math.max(1, System.currentTimeMillis() - startTime) / 1000.0;
+		return moves.sum() / seconds;
+	}
+
+	@Override
+	public double getRejectionRate() {
+		long rejectedCount = rejected.sum();
+		long count = moves.sum() + rejectedCount;
+		return (count == 0) ? 0 : (double) rejectedCount / count;
+	}
+
+	@Override
+	public double getAverageMoveLatencyMicros() {
+		return moveLatency.snapshot().getMean() / 1000;
+	}
+
+	@Override
+	public double getP99MoveLatencyMicros() {
+		return moveLatency.snapshot().getPercentile(99) / 1000.0;
+	}
+
+	@Override
+	public long getHeapPerSession() {
+		int sessions = registry.size();
+		return (sessions == 0) ? 0 : ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / sessions;
+	}
+
+	@Override
+	public String dumpPosition(long id) {
+		return registry.get(id).read(m -> {
+			StringBuilder sb = new StringBuilder(m.toFen()).append('\n');
+			Piece[][] pieces = m.getPieces();
+			for (int i = 0; i < pieces.length; i++) {
+				sb.append(8 - i).append(' ');
+				for (int j = 0; j < pieces[i].length; j++) {
+					Piece p = pieces[i][j];
+					String s = (p == null) ? "-" : (p.getColor() == Color.WHITE) ? p.toString() : p.toString().toLowerCase();
+					sb.append(s).append(' ');
+				}
+				sb.append('\n');
+			}
+			return sb.append("  a b c d e f g h").toString();
+		});
+	}
+
+	@Override
+	public void resetStatistics() {
+		moves.reset();
+		rejected.reset();
+		moveNanos.reset();
+		moveLatency.reset();
+		startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Get the id of the session from the tokens of a command
+	 * @param tokens The tokens
+	 * @return The id
+	 */
+	private static long id(String[] tokens) {
+		return Long.parseLong(tokens[1]);
+	}
+
+	/**
+	 * Get the argument after the id from the tokens of a command
+	 * @param tokens The tokens
+	 * @return The argument
+	 */
+	private static String argument(String[] tokens) {
+		return tokens[2].trim();
+	}
+
+	/**
+	 * Get the session from the tokens of a command
+	 * @param tokens The tokens
+	 * @return The session
+	 */
+	private Session session(String[] tokens) {
+		return registry.get(id(tokens));
+	}
+
+	/**
+	 * Measure the heap used per idle session and how many moves per second the sessions can take
+	 * @param count How many sessions
+	 * @param threads How many threads perform moves
+	 * @param seconds How long the moves are performed
+	 * @param journal The file of a journal for the sessions, null for none; it is replaced
+	 * @throws IOException If the journal can't be written
+	 */
+	public static void benchmark(int count, int threads, int seconds, File journal) throws IOException {
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+		GameServer server = new GameServer();
+		if (journal != null) {
+			journal.delete();
+			server.openJournal(journal);
+		}
+		memory.gc();
+		long before = memory.getHeapMemoryUsage().getUsed();
+		for (int i = 0; i < count; i++) {
+			server.create(new Match());
+		}
+		memory.gc();
+		long after = memory.getHeapMemoryUsage().getUsed();
+		System.out.println("Sessions: " + count);
+		System.out.println("Heap per idle session: " + (after - before) / count + " bytes");
+
+		List<Session> sessions = new ArrayList<>(server.registry.sessions());
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		long deadline = System.currentTimeMillis() + seconds * 1000L;
+		long[][] latencies = new long[threads][1 << 20];
+		int[] counts = new int[threads];
+		for (int t = 0; t < threads; t++) {
+			long[] samples = latencies[t];
+			int seed = t;
+			pool.execute(() -> {
+				Random random = new Random(seed);
+				int n = 0;
+				while (System.currentTimeMillis() < deadline) {
+					Session session = sessions.get(random.nextInt(sessions.size()));
+					List<Move> legal = session.read(Match::legalMoves);
+					if (legal.isEmpty()) {
+						continue;
+					}
+					Move move = legal.get(random.nextInt(legal.size()));
+					long start = System.nanoTime();
+					try {
+						server.move(session, move);
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+					samples[n++ & (samples.length - 1)] = System.nanoTime() - start;
+				}
+				counts[seed] = Math.min(n, samples.length);
+			});
+		}
+		pool.shutdown();
+		try {
+			pool.awaitTermination(seconds + 60, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		long[] sorted = new long[Arrays.stream(counts).sum()];
+		int k = 0;
+		for (int t = 0; t < threads; t++) {
+			System.arraycopy(latencies[t], 0, sorted, k, counts[t]);
+			k += counts[t];
+		}
+		Arrays.sort(sorted);
+		System.out.println("Moves per second: " + server.moves.sum() / Math.max(1, seconds));
+		if (server.journal != null) {
+			long syncs = server.journal.getSyncs();
+			System.out.println("Journal records: " + server.journal.getRecords() + ", forces: " + syncs
+					+ ", records per force: " + server.journal.getRecords() / Math.max(1, syncs));
+			server.journal.close();
+		}
+		if (sorted.length > 0) {
+			System.out.println("Move latency p50: " + sorted[sorted.length / 2] / 1000 + " us");
+			System.out.println("Move latency p99: " + sorted[(int) (sorted.length * 0.99)] / 1000 + " us");
+		}
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.github.knlao.chesslib.server;
+
+/**
+ * The management interface of a game server,
+ * registered as com.github.knlao.chesslib:type=GameServer,port=[port] while the server is bound
+ * @author kimilao
+ * @version 1.0
+ */
+public interface GameServerMXBean {
+
+	/**
+	 * Get how many sessions there are
+	 * @return The count of sessions
+	 */
+	int getActiveSessions();
+
+	/**
+	 * Get how many moves were performed since the start or the last reset
+	 * @return The count of moves, the rejected moves not included
+	 */
+	long getMoves();
+
+	/**
+	 * Get how many moves were rejected as illegal since the start or the last reset
+	 * @return The count of rejected moves
+	 */
+	long getRejectedMoves();
+
+	/**
+	 * Get the moves performed per second since the start or the last reset
+	 * @return The moves per second
+	 */
+	double getMovesPerSecond();
+
+	/**
+	 * Get the share of the moves received which were rejected as illegal
+	 * @return The rate from 0 to 1
+	 */
+	double getRejectionRate();
+
+	/**
+	 * Get the average latency of a move performed
+	 * @return The latency in microseconds
+	 */
+	double getAverageMoveLatencyMicros();
+
+	/**
+	 * Get the 99th percentile of the latency of a move performed
+	 * @return The latency in microseconds
+	 */
+	double getP99MoveLatencyMicros();
+
+	/**
+	 * Get the heap used divided by the count of sessions
+	 * @return The bytes per session
+	 */
+	long getHeapPerSession();
+
+	/**
+	 * Dump the position of a session
+	 * @param id The id of the session
+	 * @return The position in FEN and the board
+	 */
+	String dumpPosition(long id);
+
+	/**
+	 * Clear the counters and the latencies, the rates restart from now
+	 */
+	void resetStatistics();
+
+}
@@ -0,0 +1,480 @@
+package com.github.knlao.chesslib.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.MoveStatus;
+
+/**
+ * An append-only journal of the games of a server, so the sessions survive a crash.
+ * A record is the start of a session with its position in FEN, a move of a session with the turn it was played in,
+ * or the end of a session. The records are appended to a buffer in the memory and a thread of the journal writes
+ * the buffer as one frame and forces it to the disk, so the records appended during a force are committed together
+ * by the next one. A caller waits with {@link #await(long)} until its record is on the disk.
+ * A frame is its length, the CRC-32 of its records and the records, a frame cut short by a crash is dropped when the
+ * journal is opened again. Opening a journal replays it into matches and writes it again with only
+ * the start of each session left, in its last position
+ * @author kimilao
+ * @version 1.0
+ */
+public class MoveJournal implements Closeable {
+
+	/**
+	 * The first bytes of a journal
+	 */
+	private static final long MAGIC = 0x4D4F56454A524E31L;
+
+	/**
+	 * The size of the header of a frame: the length and the CRC-32 of the records
+	 */
+	private static final int FRAME_HEADER = 8;
+
+	/**
+	 * The type of the record of the start of a session: the id (long), the length of the FEN (short) and the FEN
+	 */
+	private static final byte START = 1;
+
+	/**
+	 * The type of the record of a move: the id (long), the turn before the move (int) and the packed move (short)
+	 */
+	private static final byte MOVE = 2;
+
+	/**
+	 * The type of the record of the end of a session: the id (long)
+	 */
+	private static final byte END = 3;
+
+	/**
+	 * The file of the journal
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The records not written yet
+	 */
+	private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+
+	/**
+	 * The records being written
+	 */
+	private ByteBuffer writing = ByteBuffer.allocate(1 << 16);
+
+	/**
+	 * The sequence number of the last record appended
+	 */
+	private long appended;
+
+	/**
+	 * The sequence number of the last record on the disk
+	 */
+	private long durable;
+
+	/**
+	 * How many times the journal was forced to the disk
+	 */
+	private long syncs;
+
+	/**
+	 * Why the journal can't be written, null if it can
+	 */
+	private IOException failure;
+
+	/**
+	 * Whether the journal is closed
+	 */
+	private boolean closed;
+
+	/**
+	 * The thread writing the frames
+	 */
+	private final Thread writer;
+
+	/**
+	 * Construct a journal appending to a file
+	 * @param channel The file, its position is at the end
+	 */
+	private MoveJournal(FileChannel channel) {
+		this.channel = channel;
+		writer = new Thread(this::writeLoop, "move-journal");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Open a journal, the sessions in it are replayed and the journal is written again with their last positions only
+	 * @param file The file of the journal, created if it isn't there
+	 * @param sessions The match of each session which didn't end is put in it, by id
+	 * @return The journal
+	 * @throws IOException If the journal can't be read or written, or a record doesn't replay
+	 */
+	public static MoveJournal open(File file, Map<Long, Match> sessions) throws IOException {
+		if (file.exists()) {
+			replay(file, sessions);
+		}
+		File temporary = new File(file.getPath() + ".tmp");
+		try (FileChannel out = FileChannel.open(temporary.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = ByteBuffer.allocate(8).putLong(MAGIC);
+			header.flip();
+			writeFully(out, header);
+			ByteBuffer records = ByteBuffer.allocate(1 << 16);
+			for (Map.Entry<Long, Match> e : sessions.entrySet()) {
+				records = start(records, e.getKey(), e.getValue().toFen());
+			}
+			if (records.position() > 0) {
+				writeFrame(out, records);
+			}
+			out.force(true);
+		}
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		return new MoveJournal(channel);
+	}
+
+	/**
+	 * Append the start of a session
+	 * @param id The id of the session
+	 * @param fen The position of the session in FEN
+	 * @return The sequence number of the record
+	 * @throws ChessException If the journal can't be written or is closed
+	 */
+	public synchronized long start(long id, String fen) {
+		check();
+		pending = start(pending, id, fen);
+		return appended();
+	}
+
+	/**
+	 * Append a move of a session, the moves of a session must be appended in the order they were played
+	 * @param id The id of the session
+	 * @param turn The turn of the match before the move
+	 * @param move The move
+	 * @return The sequence number of the record
+	 * @throws ChessException If the journal can't be written or is closed
+	 */
+	public synchronized long move(long id, int turn, Move move) {
+		check();
+		pending = ensure(pending, 15);
+		pending.put(MOVE).putLong(id).putInt(turn).putShort((short) move.pack());
+		return appended();
+	}
+
+	/**
+	 * Append the end of a session
+	 * @param id The id of the session
+	 * @return The sequence number of the record
+	 * @throws ChessException If the journal can't be written or is closed
+	 */
+	public synchronized long end(long id) {
+		check();
+		pending = ensure(pending, 9);
+		pending.put(END).putLong(id);
+		return appended();
+	}
+
+	/**
+	 * Wait until a record is on the disk
+	 * @param sequence The sequence number of the record
+	 * @throws IOException If the journal can't be written or the thread is interrupted
+	 */
+	public synchronized void await(long sequence) throws IOException {
+		while (durable < sequence) {
+			if (failure != null) {
+				throw new IOException("The journal can't be written", failure);
+			}
+			if (closed) {
+				throw new IOException("The journal is closed");
+			}
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for the journal");
+			}
+		}
+	}
+
+	/**
+	 * Check that records can be appended, so a change which would be appended can be refused before it is made
+	 * @throws ChessException If the journal can't be written or is closed
+	 */
+	public synchronized void check() {
+		if (failure != null) {
+			throw new ChessException("The journal can't be written: " + failure);
+		}
+		if (closed) {
+			throw new ChessException("The journal is closed");
+		}
+	}
+
+	/**
+	 * Get how many records were appended
+	 * @return The count of records
+	 */
+	public synchronized long getRecords() {
+		return appended;
+	}
+
+	/**
+	 * Get how many times the journal was forced to the disk
+	 * @return The count of forces
+	 */
+	public synchronized long getSyncs() {
+		return syncs;
+	}
+
+	/**
+	 * Write the records appended and close the journal
+	 * @throws IOException If the records can't be written or the file can't be closed
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			notifyAll();
+		}
+		try {
+			writer.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+		synchronized (this) {
+			if (failure != null) {
+				throw new IOException("The journal can't be written", failure);
+			}
+		}
+	}
+
+	/**
+	 * Write the records appended as frames until the journal is closed
+	 */
+	private void writeLoop() {
+		while (true) {
+			long sequence;
+			synchronized (this) {
+				while (pending.position() == 0 && !closed) {
+					try {
+						wait();
+					}
+					catch (InterruptedException e) {
+						// only close stops the writer
+					}
+				}
+				if (pending.position() == 0) {
+					return;
+				}
+				ByteBuffer records = pending;
+				pending = writing;
+				writing = records;
+				sequence = appended;
+			}
+			try {
+				writeFrame(channel, writing);
+				channel.force(false);
+			}
+			catch (IOException e) {
+				synchronized (this) {
+					failure = e;
+					notifyAll();
+				}
+				return;
+			}
+			writing.clear();
+			synchronized (this) {
+				durable = sequence;
+				syncs++;
+				notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Count a record which was appended and wake the writer
+	 * @return The sequence number of the record
+	 */
+	private long appended() {
+		notifyAll();
+		return ++appended;
+	}
+
+	/**
+	 * Replay the records of a journal, a frame cut short or damaged ends it and is cut off
+	 * @param file The file of the journal
+	 * @param sessions The match of each session which didn't end is put in it, by id
+	 * @throws IOException If the journal can't be read or a record doesn't replay
+	 */
+	private static void replay(File file, Map<Long, Match> sessions) throws IOException {
+		try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(8);
+			readFully(in, header, 0);
+			if (header.position() < 8 || header.getLong(0) != MAGIC) {
+				throw new IOException("Not a move journal: " + file);
+			}
+			Map<Long, Match> matches = new HashMap<>(sessions);
+			long position = 8;
+			ByteBuffer frame = ByteBuffer.allocate(1 << 16);
+			CRC32 crc = new CRC32();
+			while (true) {
+				ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER);
+				readFully(in, frameHeader, position);
+				if (frameHeader.position() < FRAME_HEADER) {
+					break;
+				}
+				int length = frameHeader.getInt(0);
+				if (length <= 0 || length > in.size() - position - FRAME_HEADER) {
+					break;
+				}
+				if (frame.capacity() < length) {
+					frame = ByteBuffer.allocate(length);
+				}
+				frame.clear().limit(length);
+				readFully(in, frame, position + FRAME_HEADER);
+				crc.reset();
+				crc.update(frame.array(), 0, length);
+				if ((int) crc.getValue() != frameHeader.getInt(4)) {
+					break;
+				}
+				frame.flip();
+				apply(frame, matches);
+				position += FRAME_HEADER + length;
+			}
+			// the frame being written when the server stopped is dropped, the next ones are appended after the last whole one
+			in.truncate(position);
+			sessions.clear();
+			sessions.putAll(matches);
+		}
+	}
+
+	/**
+	 * Apply the records of a frame to the matches
+	 * @param frame The records
+	 * @param matches The matches by id
+	 * @throws IOException If a record doesn't replay, a move of a session which isn't started is skipped
+	 */
+	private static void apply(ByteBuffer frame, Map<Long, Match> matches) throws IOException {
+		while (frame.hasRemaining()) {
+			byte type = frame.get();
+			long id = frame.getLong();
+			if (type == START) {
+				byte[] fen = new byte[frame.getShort() & 0xFFFF];
+				frame.get(fen);
+				matches.put(id, new Match(new String(fen, StandardCharsets.US_ASCII)));
+			}
+			else if (type == MOVE) {
+				int turn = frame.getInt();
+				Move move = Move.unpack(frame.getShort() & 0xFFFF);
+				Match match = matches.get(id);
+				if (match == null) {
+					// a move without a session, such as one appended after the end of its session, has nothing to change
+					System.err.println("Skipping the move " + move + " of session " + id + " which isn't started in the journal");
+					continue;
+				}
+				if (match.getTurn() != turn || match.tryMove(move) != MoveStatus.OK) {
+					throw new IOException("The move " + move + " of session " + id + " doesn't replay");
+				}
+			}
+			else if (type == END) {
+				matches.remove(id);
+			}
+			else {
+				throw new IOException("Unknown record " + type + " in the journal");
+			}
+		}
+	}
+
+	/**
+	 * Append the start of a session to a buffer
+	 * @param buffer The buffer
+	 * @param id The id of the session
+	 * @param fen The position in FEN
+	 * @return The buffer, a larger one if it was full
+	 */
+	private static ByteBuffer start(ByteBuffer buffer, long id, String fen) {
+		byte[] bytes = fen.getBytes(StandardCharsets.US_ASCII);
+		buffer = ensure(buffer, 11 + bytes.length);
+		buffer.put(START).putLong(id).putShort((short) bytes.length).put(bytes);
+		return buffer;
+	}
+
+	/**
+	 * Make room in a buffer
+	 * @param buffer The buffer
+	 * @param bytes How many bytes are needed
+	 * @return The buffer, a larger one with the same content if it was too small
+	 */
+	private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+		if (buffer.remaining() >= bytes) {
+			return buffer;
+		}
+		ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+		buffer.flip();
+		return larger.put(buffer);
+	}
+
+	/**
+	 * Write the records of a buffer as a frame
+	 * @param out The file
+	 * @param records The records, from the start of the buffer to its position
+	 * @throws IOException If the frame can't be written
+	 */
+	private static void writeFrame(FileChannel out, ByteBuffer records) throws IOException {
+		CRC32 crc = new CRC32();
+		crc.update(records.array(), 0, records.position());
+		ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER).putInt(records.position()).putInt((int) crc.getValue());
+		header.flip();
+		records.flip();
+		writeFully(out, header);
+		writeFully(out, records);
+	}
+
+	/**
+	 * Write all of a buffer
+	 * @param out The file
+	 * @param buffer The buffer
+	 * @throws IOException If the buffer can't be written
+	 */
+	private static void writeFully(FileChannel out, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+
+	/**
+	 * Read into a buffer until it is full or the file ends
+	 * @param in The file
+	 * @param buffer The buffer
+	 * @param position Where to read in the file
+	 * @throws IOException If the file can't be read
+	 */
+	private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			int n = in.read(buffer, position);
+			if (n < 0) {
+				return;
+			}
+			position += n;
+		}
+	}
+
+}
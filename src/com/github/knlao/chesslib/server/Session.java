@@ -0,0 +1,122 @@
+package com.github.knlao.chesslib.server;
+
+import java.util.function.Function;
+
+import com.github.knlao.chesslib.chess.CompactMatch;
+import com.github.knlao.chesslib.chess.Match;
+import com.github.knlao.chesslib.chess.Move;
+import com.github.knlao.chesslib.chess.Piece;
+
+/**
+ * A game hosted by the server, the match is not thread safe
+ * so every access to it goes through the lock of the session.
+ * Between accesses the match is kept as a compact match, so an idle session stays small.
+ * Every access inflates the compact match; a change compacts it again, a read drops the inflated match.
+ * The inflated match isn't cached between accesses, it would make a session as large as a match
+ * @author kimilao
+ * @version 1.0
+ */
+public class Session {
+
+	/**
+	 * The id of the session
+	 */
+	private final long id;
+
+	/**
+	 * The match of the session
+	 */
+	private CompactMatch match;
+
+	/**
+	 * When the session was last used, in milliseconds
+	 */
+	private volatile long lastAccess;
+
+	/**
+	 * Whether the session is closed, guarded by the lock of the session
+	 */
+	private boolean closed;
+
+	/**
+	 * Construct a session
+	 * @param id The id of the session
+	 * @param match The match of the session
+	 */
+	public Session(long id, Match match) {
+		this.id = id;
+		this.match = new CompactMatch(match);
+		lastAccess = System.currentTimeMillis();
+	}
+
+	/**
+	 * Get the id of the session
+	 * @return The id
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Get when the session was last used
+	 * @return The time in milliseconds
+	 */
+	public long getLastAccess() {
+		return lastAccess;
+	}
+
+	/**
+	 * Check whether the session is closed, a thread which found the session before it was removed
+	 * checks it under the lock of the session so it doesn't change a closed match
+	 * @return <b>true</b>: The session is closed<br>
+	 *         <b>false</b>: The session is open
+	 */
+	public synchronized boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Close the session, it is also removed from the registry by the caller
+	 */
+	public synchronized void close() {
+		closed = true;
+	}
+
+	/**
+	 * Perform a chess move in the match
+	 * @param move The move
+	 * @return <b>Piece</b>: The captured Piece<br>
+	 *         <b>null</b>: No piece is captured
+	 */
+	public synchronized Piece performChessMove(Move move) {
+		return withMatch(m -> m.performChessMove(move));
+	}
+
+	/**
+	 * Run an action which doesn't change the match while holding the lock of the session,
+	 * the compact match is kept as it is
+	 * @param action The action
+	 * @return The result of the action
+	 */
+	public synchronized <T> T read(Function<Match, T> action) {
+		lastAccess = System.currentTimeMillis();
+		return action.apply(match.toMatch());
+	}
+
+	/**
+	 * Run an action which may change the match while holding the lock of the session
+	 * @param action The action
+	 * @return The result of the action
+	 */
+	public synchronized <T> T withMatch(Function<Match, T> action) {
+		lastAccess = System.currentTimeMillis();
+		Match m = match.toMatch();
+		try {
+			return action.apply(m);
+		}
+		finally {
+			match = new CompactMatch(m);
+		}
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.github.knlao.chesslib.server;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.github.knlao.chesslib.chess.ChessException;
+import com.github.knlao.chesslib.chess.Match;
+
+/**
+ * The sessions hosted by the server, safe to use from many threads
+ * @author kimilao
+ * @version 1.0
+ */
+public class SessionRegistry {
+
+	/**
+	 * The sessions by id
+	 */
+	private final ConcurrentMap<Long, Session> sessions = new ConcurrentHashMap<>();
+
+	/**
+	 * The id of the next session
+	 */
+	private final AtomicLong nextId = new AtomicLong(1);
+
+	/**
+	 * Create a session with a new match
+	 * @return The new session
+	 */
+	public Session create() {
+		return add(new Match());
+	}
+
+	/**
+	 * Create a session with the match
+	 * @param match The match of the session
+	 * @return The new session
+	 */
+	public Session add(Match match) {
+		Session session = reserve(match);
+		publish(session);
+		return session;
+	}
+
+	/**
+	 * Create a session with the match without hosting it, it can't be found until it is published
+	 * @param match The match of the session
+	 * @return The new session
+	 */
+	public Session reserve(Match match) {
+		return new Session(nextId.getAndIncrement(), match);
+	}
+
+	/**
+	 * Host a reserved session
+	 * @param session The session
+	 */
+	public void publish(Session session) {
+		sessions.put(session.getId(), session);
+	}
+
+	/**
+	 * Add a session recovered with its id, the ids of new sessions stay above it
+	 * @param id The id of the session
+	 * @param match The match of the session
+	 * @return The session
+	 */
+	public Session restore(long id, Match match) {
+		Session session = new Session(id, match);
+		sessions.put(id, session);
+		nextId.accumulateAndGet(id + 1, Math::max);
+		return session;
+	}
+
+	/**
+	 * Get a session
+	 * @param id The id of the session
+	 * @return The session
+	 */
+	public Session get(long id) {
+		Session session = sessions.get(id);
+		if (session == null) {
+			throw new ChessException("There is no session " + id);
+		}
+		return session;
+	}
+
+	/**
+	 * Remove a session
+	 * @param id The id of the session
+	 * @return <b>Session</b>: The removed session<br>
+	 *         <b>null</b>: There is no such session
+	 */
+	public Session remove(long id) {
+		return sessions.remove(id);
+	}
+
+	/**
+	 * Get how many sessions there are
+	 * @return The count of sessions
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	/**
+	 * Get all sessions
+	 * @return The sessions
+	 */
+	public Collection<Session> sessions() {
+		return sessions.values();
+	}
+
+}